@@ -28,7 +28,6 @@ import pascal.taie.ir.stmt.Invoke;
 import pascal.taie.language.classes.ClassHierarchy;
 import pascal.taie.language.classes.JClass;
 import pascal.taie.language.classes.JMethod;
-import pascal.taie.language.classes.Subsignature;
 
 import java.util.*;
 
@@ -81,7 +80,7 @@ class CHABuilder implements CGBuilder<Invoke, JMethod> {
 
         switch (kind) {
             case STATIC -> result.add(declareClass.getDeclaredMethod(methodRef.getSubsignature()));
-            case SPECIAL -> result.add(dispatch(declareClass, methodRef.getSubsignature()));
+            case SPECIAL -> result.add(DispatchCache.get().dispatch(declareClass, methodRef.getSubsignature()));
             case VIRTUAL, INTERFACE -> {
                 ArrayDeque<JClass> subclasses = new ArrayDeque<>();
                 HashSet<JClass> set = new HashSet<>();
@@ -89,7 +88,7 @@ class CHABuilder implements CGBuilder<Invoke, JMethod> {
                 set.add(declareClass);
                 while (!subclasses.isEmpty()) {
                     JClass subclass = subclasses.pollFirst();
-                    result.add(dispatch(subclass, methodRef.getSubsignature()));
+                    result.add(DispatchCache.get().dispatch(subclass, methodRef.getSubsignature()));
                     for (JClass jClass : (hierarchy.getDirectSubclassesOf(subclass))) {
                         if (!set.contains(jClass)) {
                             set.add(jClass);
@@ -114,20 +113,4 @@ class CHABuilder implements CGBuilder<Invoke, JMethod> {
 
         return result;
     }
-
-    /**
-     * Looks up the target method based on given class and method subsignature.
-     *
-     * @return the dispatched target method, or null if no satisfying method
-     * can be found.
-     */
-    private JMethod dispatch(JClass jclass, Subsignature subsignature) {
-        if (jclass == null) {
-            return null;
-        }
-        if (jclass.getDeclaredMethod(subsignature) != null && !jclass.getDeclaredMethod(subsignature).isAbstract()) {
-            return jclass.getDeclaredMethod(subsignature);
-        }
-        return dispatch(jclass.getSuperClass(), subsignature);
-    }
 }
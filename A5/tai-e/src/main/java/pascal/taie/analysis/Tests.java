@@ -23,12 +23,24 @@
 package pascal.taie.analysis;
 
 import pascal.taie.Main;
+import pascal.taie.World;
 import pascal.taie.analysis.misc.ClassDumper;
+import pascal.taie.analysis.pta.PointerAnalysisResult;
+import pascal.taie.analysis.pta.ci.CIPTA;
+import pascal.taie.analysis.pta.core.heap.AllocationSiteBasedModel;
+import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.analysis.pta.demand.DemandPointsToAnalysis;
+import pascal.taie.config.AnalysisConfig;
+import pascal.taie.config.AnalysisOptions;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.util.AnalysisException;
 
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
 
 /**
  * Static utility methods for testing.
@@ -52,6 +64,62 @@ public final class Tests {
         doTestPTA("cipta", dir, main, opts);
     }
 
+    /**
+     * Runs CIPTA on given test case, and checks that the demand-driven
+     * queries give the same points-to set for every variable.
+     */
+    public static void testDemandPTA(String dir, String main,
+                                     int stepBudget, int maxLevel, String... opts) {
+        doTestDemandPTA(dir, main, stepBudget, maxLevel, true, opts);
+    }
+
+    /**
+     * Runs CIPTA on given test case, and checks that the demand-driven
+     * queries give a superset of the points-to set of every variable,
+     * i.e., the answers are sound even if they are not refined.
+     */
+    public static void testDemandPTASound(String dir, String main,
+                                          int stepBudget, int maxLevel, String... opts) {
+        doTestDemandPTA(dir, main, stepBudget, maxLevel, false, opts);
+    }
+
+    private static void doTestDemandPTA(String dir, String main, int stepBudget,
+                                        int maxLevel, boolean exact, String... opts) {
+        doTestPTA(CIPTA.ID, dir, main, opts);
+        PointerAnalysisResult result = World.get().getResult(CIPTA.ID);
+        AnalysisOptions options = AnalysisConfig.parseConfigs(
+                        Tests.class.getClassLoader()
+                                .getResourceAsStream("tai-e-analyses.yml"))
+                .stream()
+                .filter(config -> config.getId().equals(CIPTA.ID))
+                .findFirst()
+                .orElseThrow()
+                .getOptions();
+        DemandPointsToAnalysis demand = new DemandPointsToAnalysis(
+                new AllocationSiteBasedModel(options), stepBudget, maxLevel);
+        List<String> mismatches = new ArrayList<>();
+        for (Var var : result.getVars()) {
+            // objects of the two analyses are compared by their strings,
+            // as they are created by different heap models
+            Set<String> expected = toStrings(result.getPointsToSet(var));
+            Set<String> given = toStrings(demand.getPointsToSet(var));
+            if (exact ? !given.equals(expected) : !given.containsAll(expected)) {
+                mismatches.add(String.format("%s, expected: %s, given: %s",
+                        var, expected, given));
+            }
+        }
+        if (!mismatches.isEmpty()) {
+            throw new AnalysisException("Mismatches of demand-driven points-to set\n" +
+                    String.join("\n", mismatches));
+        }
+    }
+
+    private static Set<String> toStrings(Set<Obj> pts) {
+        Set<String> objs = new TreeSet<>();
+        pts.forEach(obj -> objs.add(obj.toString()));
+        return objs;
+    }
+
     private static void doTestPTA(
             String id, String dir, String main, String... opts) {
         List<String> args = new ArrayList<>();
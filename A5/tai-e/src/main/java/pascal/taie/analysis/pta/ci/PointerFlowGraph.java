@@ -25,19 +25,35 @@ package pascal.taie.analysis.pta.ci;
 import pascal.taie.analysis.pta.core.heap.Obj;
 import pascal.taie.ir.exp.Var;
 import pascal.taie.language.classes.JField;
+import pascal.taie.language.type.Type;
 import pascal.taie.util.collection.Maps;
 import pascal.taie.util.collection.MultiMap;
 import pascal.taie.util.collection.Sets;
 import pascal.taie.util.collection.TwoKeyMap;
+import pascal.taie.util.graph.Graph;
+import pascal.taie.util.graph.SCC;
 
+import javax.annotation.Nullable;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 /**
  * Represents pointer flow graph in pointer analysis.
+ * <p>
+ * The pointers in a cycle of PFG always have the same points-to set
+ * at fixpoint, so they can be merged into one node (see
+ * {@link #mergeNodes(List)}). The merged pointers are represented by
+ * their representative, and the edges added to or queried on a merged
+ * pointer are redirected to its representative.
+ * <p>
+ * An edge may have type filters, i.e., only the objects whose types
+ * are subtypes of (any of) the filters flow along the edge. As the
+ * pointers connected by filtered edges may point to different objects,
+ * such edges are ignored by cycle detection.
  */
-class PointerFlowGraph {
+class PointerFlowGraph implements Graph<Pointer> {
 
     /**
      * Set of all pointer in this PFG.
@@ -69,6 +85,32 @@ class PointerFlowGraph {
      */
     private final MultiMap<Pointer, Pointer> successors = Maps.newMultiMap();
 
+    /**
+     * Map from a pointer (node) to its predecessors in PFG.
+     */
+    private final MultiMap<Pointer, Pointer> predecessors = Maps.newMultiMap();
+
+    /**
+     * Set of pointers which have been merged into other pointers.
+     */
+    private final Set<Pointer> merged = Sets.newSet();
+
+    /**
+     * Map from a merged pointer to its representative.
+     */
+    private final Map<Pointer, Pointer> representatives = Maps.newMap();
+
+    /**
+     * Map from a representative to the pointers merged into it.
+     */
+    private final MultiMap<Pointer, Pointer> mergedPointers = Maps.newMultiMap();
+
+    /**
+     * Map from (source, target) to the type filters of the edge.
+     * The edges without type filters are absent in this map.
+     */
+    private final TwoKeyMap<Pointer, Pointer, Set<Type>> filters = Maps.newTwoKeyMap();
+
     /**
      * Returns all pointers in this PFG.
      */
@@ -128,13 +170,203 @@ class PointerFlowGraph {
      * otherwise false.
      */
     boolean addEdge(Pointer source, Pointer target) {
-        return successors.put(source, target);
+        return addEdge(source, target, null);
+    }
+
+    /**
+     * Adds an edge (source -> target) with a type filter to this PFG.
+     * If filter is null, all objects flow along the edge.
+     *
+     * @return true if this PFG changed as a result of the call, i.e.,
+     * the edge is new or more objects can flow along it, otherwise false.
+     */
+    boolean addEdge(Pointer source, Pointer target, @Nullable Type filter) {
+        source = getRepresentative(source);
+        target = getRepresentative(target);
+        if (source == target) {
+            // the edge is inside a merged cycle
+            return false;
+        }
+        return putEdge(source, target,
+                filter == null ? null : Set.of(filter));
+    }
+
+    /**
+     * Adds an edge between two nodes, or merges given filters into
+     * the filters of the existing edge.
+     */
+    private boolean putEdge(Pointer source, Pointer target,
+                            @Nullable Set<Type> edgeFilters) {
+        if (successors.put(source, target)) {
+            predecessors.put(target, source);
+            if (edgeFilters != null) {
+                filters.put(source, target, Sets.newHybridSet(edgeFilters));
+            }
+            return true;
+        }
+        Set<Type> existing = filters.get(source, target);
+        if (existing == null) {
+            // the existing edge has no filters
+            return false;
+        }
+        if (edgeFilters == null) {
+            filters.remove(source, target);
+            return true;
+        }
+        return existing.addAll(edgeFilters);
+    }
+
+    /**
+     * @return the type filters of edge (source -> target),
+     * or null if the edge has no filters.
+     */
+    @Nullable
+    Set<Type> getFilters(Pointer source, Pointer target) {
+        return filters.get(getRepresentative(source), getRepresentative(target));
     }
 
     /**
      * @return successors of given pointer in the PFG.
      */
-    Set<Pointer> getSuccsOf(Pointer pointer) {
-        return successors.get(pointer);
+    @Override
+    public Set<Pointer> getSuccsOf(Pointer pointer) {
+        return successors.get(getRepresentative(pointer));
+    }
+
+    @Override
+    public Set<Pointer> getPredsOf(Pointer pointer) {
+        return predecessors.get(getRepresentative(pointer));
+    }
+
+    @Override
+    public boolean hasNode(Pointer pointer) {
+        return pointers.contains(pointer) && !merged.contains(pointer);
+    }
+
+    @Override
+    public boolean hasEdge(Pointer source, Pointer target) {
+        return successors.contains(source, target);
+    }
+
+    /**
+     * @return the nodes in this PFG, i.e., the pointers which
+     * have not been merged into other pointers.
+     */
+    @Override
+    public Set<Pointer> getNodes() {
+        Set<Pointer> nodes = Sets.newSet();
+        for (Pointer pointer : pointers) {
+            if (!merged.contains(pointer)) {
+                nodes.add(pointer);
+            }
+        }
+        return nodes;
+    }
+
+    /**
+     * @return the representative of given pointer, or the pointer itself
+     * if it has not been merged into other pointers.
+     */
+    Pointer getRepresentative(Pointer pointer) {
+        Pointer rep = representatives.get(pointer);
+        return rep != null ? rep : pointer;
+    }
+
+    /**
+     * @return the pointers merged into given representative
+     * (excluding the representative itself).
+     */
+    Set<Pointer> getMergedPointers(Pointer rep) {
+        return mergedPointers.get(rep);
+    }
+
+    /**
+     * @return the cycles in this PFG. Each cycle is given as a list of
+     * nodes that are strongly connected to each other.
+     */
+    List<List<Pointer>> getCycles() {
+        return new SCC<>(new UnfilteredGraph()).getTrueComponents();
+    }
+
+    /**
+     * Merges the given nodes into the first one of them (the representative).
+     * The edges of the other nodes are moved to the representative.
+     */
+    void mergeNodes(List<Pointer> component) {
+        Pointer rep = component.get(0);
+        for (Pointer node : component.subList(1, component.size())) {
+            for (Pointer succ : List.copyOf(successors.get(node))) {
+                Set<Type> edgeFilters = filters.remove(node, succ);
+                predecessors.remove(succ, node);
+                if (succ != rep) {
+                    putEdge(rep, succ, edgeFilters);
+                }
+            }
+            successors.removeAll(node);
+            for (Pointer pred : List.copyOf(predecessors.get(node))) {
+                Set<Type> edgeFilters = filters.remove(pred, node);
+                successors.remove(pred, node);
+                if (pred != rep) {
+                    putEdge(pred, rep, edgeFilters);
+                }
+            }
+            predecessors.removeAll(node);
+            merged.add(node);
+            representatives.put(node, rep);
+            mergedPointers.put(rep, node);
+            for (Pointer m : mergedPointers.get(node)) {
+                representatives.put(m, rep);
+                mergedPointers.put(rep, m);
+            }
+            mergedPointers.removeAll(node);
+        }
+    }
+
+    /**
+     * View of this PFG without the filtered edges.
+     */
+    private class UnfilteredGraph implements Graph<Pointer> {
+
+        @Override
+        public boolean hasNode(Pointer pointer) {
+            return PointerFlowGraph.this.hasNode(pointer);
+        }
+
+        @Override
+        public boolean hasEdge(Pointer source, Pointer target) {
+            return successors.contains(source, target)
+                    && !filters.containsKey(source, target);
+        }
+
+        @Override
+        public Set<Pointer> getPredsOf(Pointer pointer) {
+            Set<Pointer> preds = Sets.newHybridSet();
+            for (Pointer pred : predecessors.get(pointer)) {
+                if (!filters.containsKey(pred, pointer)) {
+                    preds.add(pred);
+                }
+            }
+            return preds;
+        }
+
+        @Override
+        public Set<Pointer> getSuccsOf(Pointer pointer) {
+            Map<Pointer, Set<Type>> filtered = filters.get(pointer);
+            if (filtered == null || filtered.isEmpty()) {
+                return successors.get(pointer);
+            }
+            Set<Pointer> succs = Sets.newHybridSet();
+            for (Pointer succ : successors.get(pointer)) {
+                if (!filtered.containsKey(succ)) {
+                    succs.add(succ);
+                }
+            }
+            return succs;
+        }
+
+        @Override
+        public Set<Pointer> getNodes() {
+            return PointerFlowGraph.this.getNodes();
+        }
     }
 }
@@ -60,6 +60,32 @@ class PointsToSet implements Iterable<Obj> {
         return set.add(obj);
     }
 
+    /**
+     * Adds all objects in given points-to set to this set.
+     *
+     * @return true if this points-to set changed as a result of the call,
+     * otherwise false.
+     */
+    boolean addAll(PointsToSet pts) {
+        return set.addAll(pts.set);
+    }
+
+    /**
+     * Adds all objects in given points-to set to this set.
+     *
+     * @return the objects in given set which were not in this set,
+     * i.e., the difference set.
+     */
+    PointsToSet addAllDiff(PointsToSet pts) {
+        PointsToSet diff = new PointsToSet();
+        for (Obj obj : pts) {
+            if (set.add(obj)) {
+                diff.addObject(obj);
+            }
+        }
+        return diff;
+    }
+
     /**
      * @return true if this points-to set contains the given object, otherwise false.
      */
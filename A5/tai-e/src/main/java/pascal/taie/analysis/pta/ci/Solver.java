@@ -25,23 +25,48 @@ package pascal.taie.analysis.pta.ci;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import pascal.taie.World;
-import pascal.taie.analysis.graph.callgraph.CallGraphs;
 import pascal.taie.analysis.graph.callgraph.CallKind;
 import pascal.taie.analysis.graph.callgraph.DefaultCallGraph;
+import pascal.taie.analysis.graph.callgraph.DispatchCache;
 import pascal.taie.analysis.graph.callgraph.Edge;
 import pascal.taie.analysis.pta.core.heap.HeapModel;
 import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.config.AnalysisOptions;
+import pascal.taie.config.ConfigException;
+import pascal.taie.ir.IR;
 import pascal.taie.ir.exp.InvokeExp;
 import pascal.taie.ir.exp.Var;
 import pascal.taie.ir.stmt.*;
 import pascal.taie.language.classes.ClassHierarchy;
+import pascal.taie.language.classes.ClassNames;
 import pascal.taie.language.classes.JMethod;
 import pascal.taie.language.type.Type;
+import pascal.taie.language.type.TypeSystem;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.TwoKeyMap;
+import pascal.taie.util.graph.MergedNode;
+import pascal.taie.util.graph.MergedSCCGraph;
+import pascal.taie.util.graph.TopoSorter;
+
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 class Solver {
 
     private static final Logger logger = LogManager.getLogger(Solver.class);
 
+    /**
+     * Minimum number of new PFG edges before re-ranking the pointers.
+     * The pointers are re-ranked when the new edges exceed both this
+     * number and half of the pointers ranked last time, so the cost of
+     * ranking is amortized over the growth of PFG.
+     */
+    private static final int MIN_RERANK_EDGES = 32;
+
+    private final AnalysisOptions options;
+
     private final HeapModel heapModel;
 
     private DefaultCallGraph callGraph;
@@ -50,11 +75,71 @@ class Solver {
 
     private WorkList workList;
 
+    /**
+     * Whether the work list is ordered by the topological order of
+     * the condensation of PFG.
+     */
+    private boolean topological;
+
+    /**
+     * Number of new PFG edges since the pointers were last ranked.
+     */
+    private int edgesSinceRanking;
+
+    /**
+     * Number of pointers ranked last time.
+     */
+    private int rankedCount;
+
+    /**
+     * Number of new PFG edges between two cycle detections,
+     * 0 means cycle detection is disabled.
+     */
+    private int cycleDetectionInterval;
+
+    /**
+     * Number of new PFG edges since last cycle detection.
+     */
+    private int newEdgeCount;
+
+    /**
+     * Number of pointers merged by cycle collapse.
+     */
+    private int collapsedCount;
+
+    /**
+     * Whether substitute pointer-equivalent variables before
+     * analyzing each reachable method.
+     */
+    private boolean varSubstitution;
+
+    /**
+     * Number of variables substituted by other variables.
+     */
+    private int substitutedCount;
+
     private StmtProcessor stmtProcessor;
 
+    /**
+     * Whether the PFG edges to typed variables filter the objects
+     * by the declared types of the variables.
+     */
+    private boolean typeFilter;
+
+    private TypeSystem typeSystem;
+
+    /**
+     * Cache of subtype checks, map from (object type, filter type)
+     * to whether the object type is a subtype of the filter type.
+     */
+    private final TwoKeyMap<Type, Type, Boolean> subtypes = Maps.newTwoKeyMap();
+
     private ClassHierarchy hierarchy;
 
-    Solver(HeapModel heapModel) {
+    private SolverMetrics metrics;
+
+    Solver(AnalysisOptions options, HeapModel heapModel) {
+        this.options = options;
         this.heapModel = heapModel;
     }
 
@@ -64,15 +149,37 @@ class Solver {
     void solve() {
         initialize();
         analyze();
+        if (workList.getCoalescedCount() > 0) {
+            logger.info("{} work-list entries were coalesced",
+                    workList.getCoalescedCount());
+        }
+        metrics.logWorkListPops();
+        if (collapsedCount > 0) {
+            logger.info("{} pointers were merged by cycle collapse",
+                    collapsedCount);
+        }
+        if (substitutedCount > 0) {
+            logger.info("{} variables were substituted", substitutedCount);
+        }
+        logger.info("Dispatch cache: {}", DispatchCache.get());
+        metrics.finish();
     }
 
     /**
      * Initializes pointer analysis.
      */
     private void initialize() {
-        workList = new WorkList();
+        workList = makeWorkList(options.getString("worklist"));
+        topological = "topo".equals(options.getString("worklist"));
+        Object interval = options.get("cycle-detection-interval");
+        cycleDetectionInterval = interval != null ? (Integer) interval : 0;
+        varSubstitution = Boolean.TRUE.equals(options.get("var-substitution"));
+        typeFilter = Boolean.TRUE.equals(options.get("type-filter"));
+        typeSystem = World.get().getTypeSystem();
         pointerFlowGraph = new PointerFlowGraph();
         callGraph = new DefaultCallGraph();
+        metrics = new SolverMetrics(CIPTA.ID, options,
+                () -> callGraph.getNumberOfMethods());
         stmtProcessor = new StmtProcessor();
         hierarchy = World.get().getClassHierarchy();
         // initialize main method
@@ -81,6 +188,22 @@ class Solver {
         addReachable(main);
     }
 
+    /**
+     * @return the work list of given kind, i.e., "fifo" (default),
+     * "coalescing" or "topo".
+     */
+    private static WorkList makeWorkList(String kind) {
+        if (kind == null || kind.equals("fifo")) {
+            return new WorkList(false);
+        } else if (kind.equals("coalescing")) {
+            return new WorkList(true);
+        } else if (kind.equals("topo")) {
+            return new WorkList(true, true);
+        } else {
+            throw new ConfigException("Unexpected work list: " + kind);
+        }
+    }
+
     /**
      * Processes new reachable method.
      */
@@ -89,11 +212,33 @@ class Solver {
             return;
         }
         callGraph.addReachableMethod(method);
+        metrics.onReachable(method::toString);
+        if (varSubstitution) {
+            substituteVars(method.getIR());
+        }
         for (var stmt : method.getIR().getStmts()) {
+            long start = metrics.startTimer();
             stmt.accept(stmtProcessor);
+            metrics.stopTimer(stmt.getClass(), 1, start);
         }
     }
 
+    /**
+     * Merges each substitutable variable in given IR into the variable
+     * which substitutes it, so that they share one PFG node and
+     * one points-to set.
+     */
+    private void substituteVars(IR ir) {
+        VarSubstitution.compute(ir).forEach((var, root) -> {
+            var rootPtr = pointerFlowGraph.getRepresentative(
+                    pointerFlowGraph.getVarPtr(root));
+            var varPtr = pointerFlowGraph.getVarPtr(var);
+            varPtr.setPointsToSet(rootPtr.getPointsToSet());
+            pointerFlowGraph.mergeNodes(List.of(rootPtr, varPtr));
+            ++substitutedCount;
+        });
+    }
+
     /**
      * Processes statements in new reachable methods.
      */
@@ -113,6 +258,16 @@ class Solver {
             return null;
         }
 
+        @Override
+        public Void visit(Cast stmt) {
+            if (typeFilter) {
+                var lPointer = pointerFlowGraph.getVarPtr(stmt.getLValue());
+                var rPointer = pointerFlowGraph.getVarPtr(stmt.getRValue().getValue());
+                addPFGEdge(rPointer, lPointer, stmt.getRValue().getCastType());
+            }
+            return null;
+        }
+
         @Override
         public Void visit(LoadArray stmt) {
             return StmtVisitor.super.visit(stmt);
@@ -159,13 +314,13 @@ class Solver {
                     VarPtr actualPtr = pointerFlowGraph.getVarPtr(actual);
                     Var form = method.getIR().getParam(i);
                     VarPtr formPtr = pointerFlowGraph.getVarPtr(form);
-                    addPFGEdge(actualPtr, formPtr);
+                    addPFGEdge(actualPtr, formPtr, getFilter(form));
                 }
                 if (stmt.getLValue() != null) {
                     for (Var returnVar : method.getIR().getReturnVars()) {
                         VarPtr returnVarPtr = pointerFlowGraph.getVarPtr(returnVar);
                         VarPtr lVarPtr = pointerFlowGraph.getVarPtr(stmt.getLValue());
-                        addPFGEdge(returnVarPtr, lVarPtr);
+                        addPFGEdge(returnVarPtr, lVarPtr, getFilter(stmt.getLValue()));
                     }
                 }
             }
@@ -177,11 +332,66 @@ class Solver {
      * Adds an edge "source -> target" to the PFG.
      */
     private void addPFGEdge(Pointer source, Pointer target) {
-        if (pointerFlowGraph.addEdge(source, target)) {
+        addPFGEdge(source, target, null);
+    }
+
+    /**
+     * Adds an edge "source -> target" with a type filter to the PFG.
+     */
+    private void addPFGEdge(Pointer source, Pointer target, @Nullable Type filter) {
+        if (pointerFlowGraph.addEdge(source, target, filter)) {
+            metrics.onNewPFGEdge();
+            ++newEdgeCount;
+            ++edgesSinceRanking;
             if (!source.getPointsToSet().isEmpty()) {
-                workList.addEntry(target, source.getPointsToSet());
+                propagateAlong(source, target, source.getPointsToSet());
+            }
+        }
+    }
+
+    /**
+     * Adds the objects in pointsToSet which can flow along PFG edge
+     * "source -> target" to the work list.
+     */
+    private void propagateAlong(Pointer source, Pointer target, PointsToSet pointsToSet) {
+        var filters = pointerFlowGraph.getFilters(source, target);
+        if (filters != null) {
+            var filtered = new PointsToSet();
+            for (var obj : pointsToSet) {
+                if (isAssignable(obj.getType(), filters)) {
+                    filtered.addObject(obj);
+                }
+            }
+            pointsToSet = filtered;
+        }
+        if (!pointsToSet.isEmpty()) {
+            workList.addEntry(target, pointsToSet);
+        }
+    }
+
+    /**
+     * @return true if type is a subtype of any of given filters.
+     */
+    private boolean isAssignable(Type type, Set<Type> filters) {
+        for (Type filter : filters) {
+            if (type.equals(filter) || subtypes.computeIfAbsent(type, filter,
+                    (t, f) -> typeSystem.isSubtype(f, t))) {
+                return true;
             }
         }
+        return false;
+    }
+
+    /**
+     * @return the type filter of the PFG edges to given variable, or null
+     * if type filter is disabled or the variable accepts all objects.
+     */
+    @Nullable
+    private Type getFilter(Var var) {
+        if (!typeFilter || var.getType().getName().equals(ClassNames.OBJECT)) {
+            return null;
+        }
+        return var.getType();
     }
 
     /**
@@ -189,37 +399,131 @@ class Solver {
      */
     private void analyze() {
         while (!workList.isEmpty()) {
+            if (cycleDetectionInterval > 0 &&
+                    newEdgeCount >= cycleDetectionInterval) {
+                collapseCycles();
+            }
+            if (topological && edgesSinceRanking >
+                    Math.max(MIN_RERANK_EDGES, rankedCount / 2)) {
+                rankPointers();
+            }
             var entry = workList.pollEntry();
-            var diff = propagate(entry.pointer(), entry.pointsToSet());
-            if (entry.pointer() instanceof VarPtr varPtr) {
-                var var = varPtr.getVar();
-                for (var obj : diff) {
-                    for (var storeField : var.getStoreFields()) {
-                        var rValue = pointerFlowGraph.getVarPtr(storeField.getRValue());
-                        var field = storeField.getFieldRef().resolve();
-                        var lValue = pointerFlowGraph.getInstanceField(obj, field);
-                        addPFGEdge(rValue, lValue);
-                    }
-                    for (var loadField : var.getLoadFields()) {
-                        var lValue = pointerFlowGraph.getVarPtr(loadField.getLValue());
-                        var field = loadField.getFieldRef().resolve();
-                        var rValue = pointerFlowGraph.getInstanceField(obj, field);
-                        addPFGEdge(rValue, lValue);
-                    }
-                    for (StoreArray storeArray : var.getStoreArrays()) {
-                        var rValue = pointerFlowGraph.getVarPtr(storeArray.getRValue());
-                        var arrayIndex = pointerFlowGraph.getArrayIndex(obj);
-                        addPFGEdge(rValue, arrayIndex);
-                    }
-                    for (LoadArray loadArray : var.getLoadArrays()) {
-                        var lValue = pointerFlowGraph.getVarPtr(loadArray.getLValue());
-                        var arrayIndex = pointerFlowGraph.getArrayIndex(obj);
-                        addPFGEdge(arrayIndex, lValue);
-                    }
-                    processCall(var, obj);
+            metrics.onWorkListPop(entry.pointer());
+            var pointer = pointerFlowGraph.getRepresentative(entry.pointer());
+            var diff = propagate(pointer, entry.pointsToSet());
+            if (!diff.isEmpty()) {
+                metrics.onPropagate(diff.size());
+                processNewPointsTo(pointer, diff);
+                for (var merged : pointerFlowGraph.getMergedPointers(pointer)) {
+                    processNewPointsTo(merged, diff);
+                }
+            }
+        }
+    }
+
+    /**
+     * Processes the statements that are affected by the new objects
+     * pointed to by given pointer.
+     */
+    private void processNewPointsTo(Pointer pointer, PointsToSet diff) {
+        if (pointer instanceof VarPtr varPtr) {
+            var var = varPtr.getVar();
+            for (var obj : diff) {
+                long start = metrics.startTimer();
+                for (var storeField : var.getStoreFields()) {
+                    var rValue = pointerFlowGraph.getVarPtr(storeField.getRValue());
+                    var field = storeField.getFieldRef().resolve();
+                    var lValue = pointerFlowGraph.getInstanceField(obj, field);
+                    addPFGEdge(rValue, lValue);
+                }
+                metrics.stopTimer(StoreField.class, var.getStoreFields().size(), start);
+                start = metrics.startTimer();
+                for (var loadField : var.getLoadFields()) {
+                    var lValue = pointerFlowGraph.getVarPtr(loadField.getLValue());
+                    var field = loadField.getFieldRef().resolve();
+                    var rValue = pointerFlowGraph.getInstanceField(obj, field);
+                    addPFGEdge(rValue, lValue);
+                }
+                metrics.stopTimer(LoadField.class, var.getLoadFields().size(), start);
+                start = metrics.startTimer();
+                for (StoreArray storeArray : var.getStoreArrays()) {
+                    var rValue = pointerFlowGraph.getVarPtr(storeArray.getRValue());
+                    var arrayIndex = pointerFlowGraph.getArrayIndex(obj);
+                    addPFGEdge(rValue, arrayIndex);
+                }
+                metrics.stopTimer(StoreArray.class, var.getStoreArrays().size(), start);
+                start = metrics.startTimer();
+                for (LoadArray loadArray : var.getLoadArrays()) {
+                    var lValue = pointerFlowGraph.getVarPtr(loadArray.getLValue());
+                    var arrayIndex = pointerFlowGraph.getArrayIndex(obj);
+                    addPFGEdge(arrayIndex, lValue);
+                }
+                metrics.stopTimer(LoadArray.class, var.getLoadArrays().size(), start);
+                start = metrics.startTimer();
+                processCall(var, obj);
+                metrics.stopTimer(Invoke.class, var.getInvokes().size(), start);
+            }
+        }
+    }
+
+    /**
+     * Ranks the pointers by the topological order of the condensation
+     * of PFG, so that the work list processes the pointers in a cycle
+     * (or a single pointer) after the pointers flowing into them.
+     */
+    private void rankPointers() {
+        edgesSinceRanking = 0;
+        Map<Pointer, Integer> ranks = Maps.newMap();
+        List<MergedNode<Pointer>> order = new TopoSorter<>(
+                new MergedSCCGraph<>(pointerFlowGraph)).get();
+        for (int i = 0; i < order.size(); ++i) {
+            for (Pointer pointer : order.get(i).getNodes()) {
+                ranks.put(pointer, i);
+                for (Pointer merged : pointerFlowGraph.getMergedPointers(pointer)) {
+                    ranks.put(merged, i);
                 }
             }
+        }
+        rankedCount = ranks.size();
+        workList.setRanks(ranks);
+    }
 
+    /**
+     * Detects the cycles in PFG and merges the pointers in each cycle,
+     * so that they share one points-to set and are propagated as one node.
+     */
+    private void collapseCycles() {
+        newEdgeCount = 0;
+        for (var cycle : pointerFlowGraph.getCycles()) {
+            var union = new PointsToSet();
+            cycle.forEach(p -> union.addAll(p.getPointsToSet()));
+            var rep = cycle.get(0);
+            var sharedPts = rep.getPointsToSet();
+            for (var node : cycle) {
+                // the objects that are new to node (and the pointers
+                // merged into it) must be processed for them
+                var diff = node.getPointsToSet().addAllDiff(union);
+                node.setPointsToSet(sharedPts);
+                var merged = pointerFlowGraph.getMergedPointers(node);
+                merged.forEach(p -> p.setPointsToSet(sharedPts));
+                if (!diff.isEmpty()) {
+                    processNewPointsTo(node, diff);
+                    merged.forEach(p -> processNewPointsTo(p, diff));
+                }
+            }
+            pointerFlowGraph.mergeNodes(cycle);
+            collapsedCount += cycle.size() - 1;
+            if (!sharedPts.isEmpty()) {
+                for (var succ : pointerFlowGraph.getSuccsOf(rep)) {
+                    propagateAlong(rep, succ, sharedPts);
+                }
+            }
+            if (typeFilter) {
+                // merging may relax the filters of the edges to rep
+                for (var pred : pointerFlowGraph.getPredsOf(rep)) {
+                    propagateAlong(pred, rep, pred.getPointsToSet());
+                }
+            }
         }
     }
 
@@ -237,7 +541,7 @@ class Solver {
         }
         if (!diff.isEmpty()) {
             for (var succ : pointerFlowGraph.getSuccsOf(pointer)) {
-                workList.addEntry(succ, pointsToSet);
+                propagateAlong(pointer, succ, pointsToSet);
             }
         }
         return diff;
@@ -251,6 +555,7 @@ class Solver {
      */
     private void processCall(Var var, Obj recv) {
         for (var invoke : var.getInvokes()) {
+            metrics.onDispatch();
             var method = resolveCallee(recv, invoke);
             var thisPointer = pointerFlowGraph.getVarPtr(method.getIR().getThis());
             workList.addEntry(thisPointer, new PointsToSet(recv));
@@ -263,13 +568,14 @@ class Solver {
                 for (var i = 0; i < method.getParamCount(); i++) {
                     var arg = pointerFlowGraph.getVarPtr(args.get(i));
                     var param = pointerFlowGraph.getVarPtr(params.get(i));
-                    addPFGEdge(arg, param);
+                    addPFGEdge(arg, param, getFilter(params.get(i)));
                 }
 
                 var returnVar = invoke.getLValue();
                 if (returnVar != null) {
                     for (var v : method.getIR().getReturnVars()) {
-                        addPFGEdge(pointerFlowGraph.getVarPtr(v), pointerFlowGraph.getVarPtr(returnVar));
+                        addPFGEdge(pointerFlowGraph.getVarPtr(v), pointerFlowGraph.getVarPtr(returnVar),
+                                getFilter(returnVar));
                     }
                 }
             }
@@ -303,7 +609,7 @@ class Solver {
      */
     private JMethod resolveCallee(Obj recv, Invoke callSite) {
         Type type = recv != null ? recv.getType() : null;
-        return CallGraphs.resolveCallee(type, callSite);
+        return DispatchCache.get().resolveCallee(type, callSite);
     }
 
     CIPTAResult getResult() {
@@ -0,0 +1,373 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.ci;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pascal.taie.config.AnalysisOptions;
+import pascal.taie.config.ConfigException;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.util.collection.Maps;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Instrumentation of the solver. It counts the work-list pops, the objects
+ * propagated to points-to sets, the new PFG edges, the dispatches of
+ * instance calls and the growth of reachable methods, and times the
+ * processing of statements by their kinds.
+ * <p>
+ * The metrics are exposed as JFR events (see {@link ProgressEvent},
+ * {@link ReachableMethodEvent} and {@link StmtTimeEvent}), a progress line
+ * logged every "progress-interval" seconds, and a JSON file given by
+ * option "metrics-file". The statements are timed only if either
+ * of the two options is given, as timing is not free.
+ */
+class SolverMetrics {
+
+    private static final Logger logger = LogManager.getLogger(SolverMetrics.class);
+
+    /**
+     * The clock is read for the progress every this number (plus one)
+     * of work-list pops.
+     */
+    private static final int PROGRESS_CHECK_MASK = 1023;
+
+    /**
+     * Minimum interval between two samples of reachable methods.
+     */
+    private static final long SAMPLE_INTERVAL = 100_000_000L; // 100ms
+
+    private final String analysis;
+
+    private final IntSupplier reachableMethods;
+
+    /**
+     * Interval of progress lines in nanoseconds, 0 means no progress line.
+     */
+    private final long progressInterval;
+
+    private final String metricsFile;
+
+    /**
+     * Whether either "progress-interval" or "metrics-file" is given.
+     */
+    private final boolean instrumented;
+
+    private final boolean timing;
+
+    private final long startTime = System.nanoTime();
+
+    private long nextProgressTime;
+
+    private long lastSampleTime = startTime - SAMPLE_INTERVAL;
+
+    private long workListPops;
+
+    /**
+     * Map from a pointer to the number of times its entries were polled,
+     * which is counted only if the solver is instrumented, as it costs
+     * a map update per work-list pop.
+     */
+    private final Map<Pointer, Integer> pollCounts = Maps.newMap();
+
+    private long propagatedObjects;
+
+    private long pfgEdges;
+
+    private long dispatches;
+
+    /**
+     * Samples of (elapsed milliseconds, number of reachable methods).
+     */
+    private final List<long[]> reachableGrowth = new ArrayList<>();
+
+    /**
+     * Map from statement kind to (count, nanoseconds) of its processing.
+     */
+    private final Map<Class<? extends Stmt>, long[]> stmtTimes = Maps.newMap();
+
+    /**
+     * Total recorded time of processing statements.
+     */
+    private long timedTotal;
+
+    SolverMetrics(String analysis, AnalysisOptions options,
+                  IntSupplier reachableMethods) {
+        this.analysis = analysis;
+        this.reachableMethods = reachableMethods;
+        Object interval = options.get("progress-interval");
+        double seconds = interval != null ? ((Number) interval).doubleValue() : 0;
+        if (seconds < 0) {
+            throw new ConfigException("Invalid progress-interval: " + interval);
+        }
+        progressInterval = (long) (seconds * 1_000_000_000L);
+        nextProgressTime = startTime + progressInterval;
+        metricsFile = options.getString("metrics-file");
+        instrumented = progressInterval > 0 || metricsFile != null;
+        timing = instrumented;
+    }
+
+    void onWorkListPop(Pointer pointer) {
+        if (instrumented) {
+            pollCounts.merge(pointer, 1, Integer::sum);
+        }
+        if ((++workListPops & PROGRESS_CHECK_MASK) == 0 && progressInterval > 0) {
+            long now = System.nanoTime();
+            if (now >= nextProgressTime) {
+                nextProgressTime = now + progressInterval;
+                logProgress(now);
+                commitProgressEvent(false);
+            }
+        }
+    }
+
+    void onPropagate(int objects) {
+        propagatedObjects += objects;
+    }
+
+    void onNewPFGEdge() {
+        ++pfgEdges;
+    }
+
+    void onDispatch() {
+        ++dispatches;
+    }
+
+    void onReachable(Supplier<String> method) {
+        long now = System.nanoTime();
+        if (now - lastSampleTime >= SAMPLE_INTERVAL) {
+            lastSampleTime = now;
+            reachableGrowth.add(new long[]{
+                    (now - startTime) / 1_000_000, reachableMethods.getAsInt()});
+        }
+        ReachableMethodEvent event = new ReachableMethodEvent();
+        if (event.shouldCommit()) {
+            event.method = method.get();
+            event.reachableMethods = reachableMethods.getAsInt();
+            event.commit();
+        }
+    }
+
+    /**
+     * @return start time of processing statements, which is passed
+     * to {@link #stopTimer(Class, int, long)} after the processing.
+     */
+    long startTimer() {
+        return timing ? System.nanoTime() - timedTotal : 0;
+    }
+
+    /**
+     * Records the time of processing given number of statements
+     * of given kind since start. The processing may make new methods
+     * reachable, whose statements are timed by their own kinds, thus
+     * the time is measured on a clock which excludes the recorded time,
+     * so that the nested processing is not counted twice.
+     */
+    void stopTimer(Class<? extends Stmt> kind, int stmts, long start) {
+        if (timing) {
+            long elapsed = System.nanoTime() - timedTotal - start;
+            timedTotal += elapsed;
+            if (stmts > 0) {
+                long[] time = stmtTimes.computeIfAbsent(kind, k -> new long[2]);
+                time[0] += stmts;
+                time[1] += elapsed;
+            }
+        }
+    }
+
+    /**
+     * Reports the metrics after the solver finishes. The last progress
+     * line is logged only if the solver is instrumented.
+     */
+    void finish() {
+        long now = System.nanoTime();
+        reachableGrowth.add(new long[]{
+                (now - startTime) / 1_000_000, reachableMethods.getAsInt()});
+        if (instrumented) {
+            logProgress(now);
+        }
+        commitProgressEvent(true);
+        stmtTimes.forEach((kind, time) -> {
+            StmtTimeEvent event = new StmtTimeEvent();
+            event.kind = kind.getSimpleName();
+            event.count = time[0];
+            event.time = time[1];
+            event.commit();
+        });
+        if (metricsFile != null) {
+            writeMetrics(now);
+        }
+    }
+
+    /**
+     * Logs the number of work-list pops, together with the numbers of
+     * pops per pointer if they are counted.
+     */
+    void logWorkListPops() {
+        if (instrumented) {
+            logger.info("{} work-list entries of {} pointers were processed, " +
+                            "at most {} times per pointer", workListPops,
+                    pollCounts.size(), getMaxPollCount());
+        } else {
+            logger.info("{} work-list entries were processed", workListPops);
+        }
+    }
+
+    private int getMaxPollCount() {
+        return pollCounts.values()
+                .stream()
+                .mapToInt(Integer::intValue)
+                .max()
+                .orElse(0);
+    }
+
+    private void logProgress(long now) {
+        logger.info("[{}] {}s: {} work-list pops, {} propagated objects, " +
+                        "{} PFG edges, {} dispatches, {} reachable methods",
+                analysis, String.format("%.1f", (now - startTime) / 1e9),
+                workListPops, propagatedObjects, pfgEdges, dispatches,
+                reachableMethods.getAsInt());
+    }
+
+    private void commitProgressEvent(boolean last) {
+        ProgressEvent event = new ProgressEvent();
+        if (event.shouldCommit()) {
+            event.analysis = analysis;
+            event.last = last;
+            event.workListPops = workListPops;
+            event.propagatedObjects = propagatedObjects;
+            event.pfgEdges = pfgEdges;
+            event.dispatches = dispatches;
+            event.reachableMethods = reachableMethods.getAsInt();
+            event.commit();
+        }
+    }
+
+    private void writeMetrics(long now) {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("analysis", analysis);
+        metrics.put("elapsedMillis", (now - startTime) / 1_000_000);
+        metrics.put("workListPops", workListPops);
+        metrics.put("polledPointers", pollCounts.size());
+        metrics.put("maxPollsPerPointer", getMaxPollCount());
+        metrics.put("propagatedObjects", propagatedObjects);
+        metrics.put("pfgEdges", pfgEdges);
+        metrics.put("dispatches", dispatches);
+        metrics.put("reachableMethods", reachableMethods.getAsInt());
+        metrics.put("reachableMethodGrowth", reachableGrowth);
+        Map<String, Object> times = new TreeMap<>();
+        stmtTimes.forEach((kind, time) -> {
+            Map<String, Long> t = new LinkedHashMap<>();
+            t.put("count", time[0]);
+            t.put("nanos", time[1]);
+            times.put(kind.getSimpleName(), t);
+        });
+        metrics.put("stmtTimes", times);
+        File file = new File(metricsFile);
+        logger.info("Writing solver metrics to {} ...", file);
+        try {
+            new ObjectMapper().writerWithDefaultPrettyPrinter()
+                    .writeValue(file, metrics);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write metrics file", e);
+        }
+    }
+
+    @Name("pascal.taie.pta.Progress")
+    @Label("Solver Progress")
+    @Description("Cumulative work done by the pointer analysis solver")
+    @Category({"Tai-e", "Pointer Analysis"})
+    @StackTrace(false)
+    static class ProgressEvent extends Event {
+
+        @Label("Analysis")
+        String analysis;
+
+        @Label("Last")
+        boolean last;
+
+        @Label("Work-List Pops")
+        long workListPops;
+
+        @Label("Propagated Objects")
+        long propagatedObjects;
+
+        @Label("PFG Edges")
+        long pfgEdges;
+
+        @Label("Dispatches")
+        long dispatches;
+
+        @Label("Reachable Methods")
+        int reachableMethods;
+    }
+
+    @Name("pascal.taie.pta.ReachableMethod")
+    @Label("Reachable Method")
+    @Description("A method becomes reachable in the pointer analysis solver")
+    @Category({"Tai-e", "Pointer Analysis"})
+    @StackTrace(false)
+    static class ReachableMethodEvent extends Event {
+
+        @Label("Method")
+        String method;
+
+        @Label("Reachable Methods")
+        int reachableMethods;
+    }
+
+    @Name("pascal.taie.pta.StmtTime")
+    @Label("Statement Time")
+    @Description("Time spent by the pointer analysis solver on a statement kind")
+    @Category({"Tai-e", "Pointer Analysis"})
+    @StackTrace(false)
+    static class StmtTimeEvent extends Event {
+
+        @Label("Statement Kind")
+        String kind;
+
+        @Label("Count")
+        long count;
+
+        @Label("Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long time;
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.ci;
+
+import pascal.taie.ir.IR;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.Copy;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.Sets;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Finds the variables which are pointer-equivalent to other variables
+ * in the same method, before the method is analyzed.
+ * <p>
+ * If the only definition of a variable x is a copy "x = y", then x
+ * always points to the same objects as y, thus x can be substituted
+ * by y. The substitutions are followed along copy chains, so that each
+ * variable is mapped to the root of its chain, i.e., a variable which
+ * is defined by other statements, or by more than one statement.
+ * Parameters and this variable are never substituted, as they also
+ * receive objects from the callers.
+ */
+class VarSubstitution {
+
+    private VarSubstitution() {
+    }
+
+    /**
+     * @return the map from each substitutable variable in given IR
+     * to the variable which substitutes it.
+     */
+    static Map<Var, Var> compute(IR ir) {
+        Map<Var, Integer> defCounts = Maps.newMap();
+        Map<Var, Var> sources = Maps.newMap();
+        for (Stmt stmt : ir.getStmts()) {
+            stmt.getDef().ifPresent(def -> {
+                if (def instanceof Var var) {
+                    defCounts.merge(var, 1, Integer::sum);
+                    if (stmt instanceof Copy copy) {
+                        sources.put(var, copy.getRValue());
+                    }
+                }
+            });
+        }
+        sources.keySet().removeIf(var -> defCounts.get(var) > 1
+                || ir.getParams().contains(var)
+                || var == ir.getThis());
+        Map<Var, Var> roots = Maps.newMap();
+        for (Var var : sources.keySet()) {
+            findRoot(var, sources, roots);
+        }
+        roots.entrySet().removeIf(e -> e.getKey() == e.getValue());
+        return roots;
+    }
+
+    /**
+     * Follows the copy chain from given variable to its root, and records
+     * the root of each variable on the chain. For a cycle of copies,
+     * the variable at which the cycle is detected is taken as the root.
+     */
+    private static void findRoot(
+            Var var, Map<Var, Var> sources, Map<Var, Var> roots) {
+        List<Var> chain = new ArrayList<>();
+        Set<Var> visited = Sets.newSet();
+        Var v = var;
+        while (sources.containsKey(v) && !roots.containsKey(v)
+                && visited.add(v)) {
+            chain.add(v);
+            v = sources.get(v);
+        }
+        Var root = roots.getOrDefault(v, v);
+        chain.forEach(c -> roots.put(c, root));
+    }
+}
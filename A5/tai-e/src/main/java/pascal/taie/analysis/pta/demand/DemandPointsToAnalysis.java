@@ -0,0 +1,411 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.demand;
+
+import pascal.taie.World;
+import pascal.taie.analysis.graph.callgraph.DispatchCache;
+import pascal.taie.analysis.pta.core.heap.HeapModel;
+import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.ir.IR;
+import pascal.taie.ir.exp.CastExp;
+import pascal.taie.ir.exp.FieldAccess;
+import pascal.taie.ir.exp.InstanceFieldAccess;
+import pascal.taie.ir.exp.InvokeInstanceExp;
+import pascal.taie.ir.exp.NullLiteral;
+import pascal.taie.ir.exp.ReferenceLiteral;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.AssignLiteral;
+import pascal.taie.ir.stmt.Cast;
+import pascal.taie.ir.stmt.Copy;
+import pascal.taie.ir.stmt.DefinitionStmt;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.ir.stmt.LoadArray;
+import pascal.taie.ir.stmt.LoadField;
+import pascal.taie.ir.stmt.New;
+import pascal.taie.ir.stmt.StoreArray;
+import pascal.taie.ir.stmt.StoreField;
+import pascal.taie.language.classes.JField;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.language.type.ReferenceType;
+import pascal.taie.language.type.Type;
+import pascal.taie.language.type.TypeSystem;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.Sets;
+
+import javax.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Demand-driven, context-insensitive pointer analysis, which computes
+ * the points-to sets of given variables without solving the whole program.
+ * <p>
+ * A query traverses the pointer assignments backwards from the queried
+ * variable (CFL-reachability), and then propagates the reached objects
+ * forwards over the traversed assignments. The analysis refines its
+ * answers level by level:
+ * <ul>
+ *     <li>Level 0 is field-based, i.e., a load x.f is matched with every
+ *     store y.f, and calls follow the CHA call graph.</li>
+ *     <li>Level k (k &gt; 0) matches a load x.f with a store y.f only if
+ *     x and y are aliases at level k-1, and follows only the calls whose
+ *     receiver objects at level k-1 dispatch to the callee.</li>
+ * </ul>
+ * Every level is sound, and higher levels are more precise. Refinement
+ * of a query stops at the given number of levels, or when it exceeds the
+ * step budget, in which case the answer of the last finished level is
+ * returned. Answers of all variables traversed by finished queries are
+ * cached and reused across queries.
+ */
+public class DemandPointsToAnalysis {
+
+    private final HeapModel heapModel;
+
+    private final int stepBudget;
+
+    private final int maxLevel;
+
+    private final TypeSystem typeSystem = World.get().getTypeSystem();
+
+    private ProgramIndex index;
+
+    /**
+     * Cached points-to sets of each refinement level.
+     */
+    private final List<Map<Var, Set<Obj>>> caches = new ArrayList<>();
+
+    /**
+     * Number of steps taken by the current query.
+     */
+    private int steps;
+
+    private int queryCount;
+
+    private int budgetExceededCount;
+
+    /**
+     * @param heapModel  the heap model which abstracts the objects.
+     * @param stepBudget maximum number of steps for refining a query.
+     * @param maxLevel   maximum refinement level.
+     */
+    public DemandPointsToAnalysis(HeapModel heapModel, int stepBudget, int maxLevel) {
+        this.heapModel = heapModel;
+        this.stepBudget = stepBudget;
+        this.maxLevel = maxLevel;
+        for (int level = 0; level <= maxLevel; ++level) {
+            caches.add(Maps.newMap());
+        }
+    }
+
+    /**
+     * @return set of objects pointed to by var.
+     */
+    public Set<Obj> getPointsToSet(Var var) {
+        ++queryCount;
+        if (!isReference(var) || !getIndex().isReachable(var.getMethod())) {
+            return Set.of();
+        }
+        // level 0 is not limited by the budget,
+        // so that every query gets a sound answer
+        steps = Integer.MIN_VALUE;
+        Set<Obj> result = query(var, 0);
+        steps = 0;
+        for (int level = 1; level <= maxLevel; ++level) {
+            try {
+                result = query(var, level);
+            } catch (BudgetExceededException e) {
+                ++budgetExceededCount;
+                break;
+            }
+        }
+        return Collections.unmodifiableSet(result);
+    }
+
+    /**
+     * @return set of objects pointed to by base.field.
+     */
+    public Set<Obj> getPointsToSet(Var base, JField field) {
+        Set<Obj> basePts = getPointsToSet(base);
+        Set<Obj> result = Sets.newHybridSet();
+        for (StoreField store : getIndex().getStores(field)) {
+            if (!store.isStatic() && !Collections.disjoint(basePts,
+                    getPointsToSet(getBase(store.getFieldAccess())))) {
+                result.addAll(getPointsToSet(store.getRValue()));
+            }
+        }
+        return Collections.unmodifiableSet(result);
+    }
+
+    /**
+     * @return set of objects pointed to by given static field.
+     */
+    public Set<Obj> getPointsToSet(JField field) {
+        Set<Obj> result = Sets.newHybridSet();
+        for (StoreField store : getIndex().getStores(field)) {
+            result.addAll(getPointsToSet(store.getRValue()));
+        }
+        return Collections.unmodifiableSet(result);
+    }
+
+    private ProgramIndex getIndex() {
+        if (index == null) {
+            index = new ProgramIndex();
+        }
+        return index;
+    }
+
+    /**
+     * Computes the points-to set of given variable at given level,
+     * and caches the points-to sets of all traversed variables.
+     */
+    private Set<Obj> query(Var var, int level) {
+        Map<Var, Set<Obj>> cache = caches.get(level);
+        Set<Obj> cached = cache.get(var);
+        if (cached != null) {
+            return cached;
+        }
+        Query query = new Query(level);
+        query.traverse(var);
+        query.propagate();
+        cache.putAll(query.pointsTo);
+        return query.pointsTo.get(var);
+    }
+
+    private void step() {
+        if (++steps > stepBudget) {
+            throw new BudgetExceededException();
+        }
+    }
+
+    private static boolean isReference(Var var) {
+        return var.getType() instanceof ReferenceType;
+    }
+
+    private static Var getBase(FieldAccess access) {
+        return ((InstanceFieldAccess) access).getBase();
+    }
+
+    /**
+     * A query of a single level, which collects the assignments reaching
+     * the queried variable, and then solves them.
+     */
+    private class Query {
+
+        private final int level;
+
+        /**
+         * Points-to sets of the traversed variables.
+         */
+        private final Map<Var, Set<Obj>> pointsTo = Maps.newMap();
+
+        /**
+         * Assignments from each traversed variable to the others.
+         */
+        private final Map<Var, List<Flow>> flows = Maps.newMap();
+
+        private final Deque<Var> traverseList = new ArrayDeque<>();
+
+        private final Deque<Var> propagateList = new ArrayDeque<>();
+
+        private Query(int level) {
+            this.level = level;
+        }
+
+        private void traverse(Var queried) {
+            addVar(queried);
+            while (!traverseList.isEmpty()) {
+                Var var = traverseList.poll();
+                step();
+                Set<Obj> cached = caches.get(level).get(var);
+                if (cached != null) {
+                    addObjects(var, cached);
+                    continue;
+                }
+                IR ir = var.getMethod().getIR();
+                JMethod method = ir.getMethod();
+                if (var == ir.getThis()) {
+                    for (Invoke invoke : getIndex().getCallers(method)) {
+                        Var recv = ((InvokeInstanceExp) invoke.getInvokeExp()).getBase();
+                        addFlow(recv, var, o -> DispatchCache.get()
+                                .resolveCallee(o.getType(), invoke) == method);
+                    }
+                }
+                int i = ir.getParams().indexOf(var);
+                if (i >= 0) {
+                    for (Invoke invoke : getIndex().getCallers(method)) {
+                        if (isCallee(invoke, method)) {
+                            addFlow(invoke.getInvokeExp().getArg(i), var, null);
+                        }
+                    }
+                }
+                for (DefinitionStmt<?, ?> def : getIndex().getDefinitions(var)) {
+                    traverse(var, def);
+                }
+            }
+        }
+
+        private void traverse(Var var, DefinitionStmt<?, ?> def) {
+            if (def instanceof New newStmt) {
+                addObjects(var, Set.of(heapModel.getObj(newStmt)));
+            } else if (def instanceof AssignLiteral assign) {
+                if (assign.getRValue() instanceof ReferenceLiteral literal
+                        && !(literal instanceof NullLiteral)) {
+                    addObjects(var, Set.of(heapModel.getConstantObj(literal)));
+                }
+            } else if (def instanceof Copy copy) {
+                addFlow(copy.getRValue(), var, null);
+            } else if (def instanceof Cast cast) {
+                CastExp exp = cast.getRValue();
+                Type castType = exp.getCastType();
+                addFlow(exp.getValue(), var,
+                        o -> typeSystem.isSubtype(castType, o.getType()));
+            } else if (def instanceof LoadField load) {
+                JField field = load.getFieldRef().resolve();
+                for (StoreField store : getIndex().getStores(field)) {
+                    if (load.isStatic() || mayAlias(
+                            getBase(load.getFieldAccess()),
+                            getBase(store.getFieldAccess()))) {
+                        addFlow(store.getRValue(), var, null);
+                    }
+                }
+            } else if (def instanceof LoadArray load) {
+                for (StoreArray store : getIndex().getArrayStores()) {
+                    if (mayAlias(load.getArrayAccess().getBase(),
+                            store.getArrayAccess().getBase())) {
+                        addFlow(store.getRValue(), var, null);
+                    }
+                }
+            } else if (def instanceof Invoke invoke) {
+                for (JMethod callee : getIndex().getCallees(invoke)) {
+                    if (isCallee(invoke, callee)) {
+                        for (Var ret : callee.getIR().getReturnVars()) {
+                            addFlow(ret, var, null);
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * @return true if x and y may point to the same object
+         * at the previous level. At level 0, it is always true.
+         */
+        private boolean mayAlias(Var x, Var y) {
+            return level == 0 || !Collections.disjoint(
+                    query(x, level - 1), query(y, level - 1));
+        }
+
+        /**
+         * @return true if callee may be called by invoke at the
+         * previous level. At level 0, it follows the CHA call graph.
+         */
+        private boolean isCallee(Invoke invoke, JMethod callee) {
+            if (level == 0 || invoke.isStatic() || invoke.isSpecial()) {
+                return true;
+            }
+            Var recv = ((InvokeInstanceExp) invoke.getInvokeExp()).getBase();
+            for (Obj o : query(recv, level - 1)) {
+                if (DispatchCache.get().resolveCallee(o.getType(), invoke) == callee) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void addVar(Var var) {
+            if (!pointsTo.containsKey(var)) {
+                pointsTo.put(var, Sets.newHybridSet());
+                traverseList.add(var);
+            }
+        }
+
+        private void addFlow(Var source, Var target, @Nullable Predicate<Obj> filter) {
+            step();
+            addVar(source);
+            flows.computeIfAbsent(source, v -> new ArrayList<>())
+                    .add(new Flow(target, filter));
+        }
+
+        private void addObjects(Var var, Set<Obj> objs) {
+            if (pointsTo.get(var).addAll(objs)) {
+                propagateList.add(var);
+            }
+        }
+
+        /**
+         * Propagates the objects along the traversed assignments
+         * until a fixed point is reached.
+         */
+        private void propagate() {
+            while (!propagateList.isEmpty()) {
+                Var source = propagateList.poll();
+                Set<Obj> objs = pointsTo.get(source);
+                for (Flow flow : flows.getOrDefault(source, List.of())) {
+                    Set<Obj> pts = pointsTo.get(flow.target());
+                    boolean changed = false;
+                    for (Obj o : objs) {
+                        if (flow.filter() == null || flow.filter().test(o)) {
+                            changed |= pts.add(o);
+                        }
+                    }
+                    if (changed) {
+                        propagateList.add(flow.target());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * An assignment to target, which passes only the objects
+     * satisfying the filter (if present).
+     */
+    private record Flow(Var target, @Nullable Predicate<Obj> filter) {
+    }
+
+    /**
+     * Thrown when a query exceeds the step budget. It only aborts the
+     * refinement of the query, thus it carries no message or stack trace,
+     * which would be costly to fill for every aborted query.
+     */
+    private static class BudgetExceededException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        private BudgetExceededException() {
+            super(null, null, false, false);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d queries, %d exceeded the step budget %d",
+                queryCount, budgetExceededCount, stepBudget);
+    }
+}
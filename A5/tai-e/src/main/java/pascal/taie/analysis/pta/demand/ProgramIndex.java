@@ -0,0 +1,197 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.demand;
+
+import pascal.taie.World;
+import pascal.taie.analysis.graph.callgraph.DispatchCache;
+import pascal.taie.ir.exp.NullLiteral;
+import pascal.taie.ir.exp.ReferenceLiteral;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.AssignLiteral;
+import pascal.taie.ir.stmt.DefinitionStmt;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.ir.stmt.New;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.ir.stmt.StoreArray;
+import pascal.taie.ir.stmt.StoreField;
+import pascal.taie.language.classes.JField;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.language.type.Type;
+import pascal.taie.language.type.TypeSystem;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.MultiMap;
+import pascal.taie.util.collection.Sets;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Indexes the statements that demand-driven queries traverse backwards,
+ * i.e., the definitions of each variable, the stores of each field,
+ * and the callers and callees of each method. The call relation is
+ * approximated by rapid type analysis (RTA) from the main method, which
+ * dispatches virtual calls on the types instantiated in reachable methods.
+ * It is cheap compared to solving the whole program, and the queries
+ * refine it with the points-to sets of receiver variables.
+ */
+class ProgramIndex {
+
+    private final TypeSystem typeSystem = World.get().getTypeSystem();
+
+    private final Set<JMethod> reachableMethods = Sets.newSet();
+
+    private final Deque<JMethod> methodWorkList = new ArrayDeque<>();
+
+    /**
+     * Types of the objects created in reachable methods.
+     */
+    private final Set<Type> instantiatedTypes = Sets.newSet();
+
+    /**
+     * Virtual (and interface) call sites in reachable methods.
+     */
+    private final List<Invoke> virtualInvokes = new ArrayList<>();
+
+    private final MultiMap<Invoke, JMethod> callees = Maps.newMultiMap();
+
+    private final MultiMap<JMethod, Invoke> callers = Maps.newMultiMap();
+
+    /**
+     * Stores of each field, including both instance and static fields.
+     */
+    private final MultiMap<JField, StoreField> fieldStores = Maps.newMultiMap();
+
+    private final List<StoreArray> arrayStores = new ArrayList<>();
+
+    /**
+     * Definition statements of each variable, built per method on demand.
+     */
+    private final Map<JMethod, MultiMap<Var, DefinitionStmt<?, ?>>> definitions
+            = Maps.newMap();
+
+    ProgramIndex() {
+        addReachable(World.get().getMainMethod());
+        while (!methodWorkList.isEmpty()) {
+            JMethod method = methodWorkList.poll();
+            if (!method.isNative()) {
+                method.getIR().forEach(this::processStmt);
+            }
+        }
+    }
+
+    private void addReachable(JMethod method) {
+        if (reachableMethods.add(method)) {
+            methodWorkList.add(method);
+        }
+    }
+
+    private void processStmt(Stmt stmt) {
+        if (stmt instanceof New newStmt) {
+            addInstantiatedType(newStmt.getRValue().getType());
+        } else if (stmt instanceof AssignLiteral assign) {
+            if (assign.getRValue() instanceof ReferenceLiteral literal
+                    && !(literal instanceof NullLiteral)) {
+                addInstantiatedType(literal.getType());
+            }
+        } else if (stmt instanceof StoreField store) {
+            fieldStores.put(store.getFieldRef().resolve(), store);
+        } else if (stmt instanceof StoreArray store) {
+            arrayStores.add(store);
+        } else if (stmt instanceof Invoke invoke) {
+            if (invoke.isStatic() || invoke.isSpecial()) {
+                JMethod callee = DispatchCache.get().resolveCallee(null, invoke);
+                if (callee != null) {
+                    addCallEdge(invoke, callee);
+                }
+            } else if (!invoke.isDynamic()) {
+                virtualInvokes.add(invoke);
+                instantiatedTypes.forEach(type -> dispatch(type, invoke));
+            }
+        }
+    }
+
+    private void addInstantiatedType(Type type) {
+        if (instantiatedTypes.add(type)) {
+            virtualInvokes.forEach(invoke -> dispatch(type, invoke));
+        }
+    }
+
+    private void dispatch(Type type, Invoke invoke) {
+        Type declaringType = invoke.getMethodRef().getDeclaringClass().getType();
+        if (typeSystem.isSubtype(declaringType, type)) {
+            JMethod callee = DispatchCache.get().resolveCallee(type, invoke);
+            if (callee != null) {
+                addCallEdge(invoke, callee);
+            }
+        }
+    }
+
+    private void addCallEdge(Invoke invoke, JMethod callee) {
+        if (callees.put(invoke, callee)) {
+            callers.put(callee, invoke);
+            addReachable(callee);
+        }
+    }
+
+    boolean isReachable(JMethod method) {
+        return reachableMethods.contains(method);
+    }
+
+    Set<JMethod> getCallees(Invoke invoke) {
+        return callees.get(invoke);
+    }
+
+    Set<Invoke> getCallers(JMethod method) {
+        return callers.get(method);
+    }
+
+    Set<StoreField> getStores(JField field) {
+        return fieldStores.get(field);
+    }
+
+    List<StoreArray> getArrayStores() {
+        return Collections.unmodifiableList(arrayStores);
+    }
+
+    /**
+     * @return the statements that define given variable.
+     */
+    Set<DefinitionStmt<?, ?>> getDefinitions(Var var) {
+        JMethod method = var.getMethod();
+        return definitions.computeIfAbsent(method, m -> {
+            MultiMap<Var, DefinitionStmt<?, ?>> defs = Maps.newMultiMap();
+            m.getIR().forEach(stmt -> {
+                if (stmt instanceof DefinitionStmt<?, ?> def
+                        && def.getLValue() instanceof Var lhs) {
+                    defs.put(lhs, def);
+                }
+            });
+            return defs;
+        }).get(var);
+    }
+}
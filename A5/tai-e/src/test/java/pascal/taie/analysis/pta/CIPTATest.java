@@ -29,6 +29,14 @@ public class CIPTATest {
 
     static final String DIR = "cipta";
 
+    /**
+     * Test cases of CIPTA which run with the default options.
+     */
+    static final String[] CASES = {
+            "Example", "Array", "Assign", "Assign2", "StoreLoad", "Call",
+            "InstanceField", "StaticField", "StaticCall", "MergeParam", "Cycle",
+    };
+
     @Test
     public void testExample() {
         Tests.testCIPTA(DIR, "Example");
@@ -49,6 +57,11 @@ public class CIPTATest {
         Tests.testCIPTA(DIR, "Assign2");
     }
 
+    @Test
+    public void testAssign2VarSubstitution() {
+        Tests.testCIPTA(DIR, "Assign2", "var-substitution:true");
+    }
+
     @Test
     public void testStoreLoad() {
         Tests.testCIPTA(DIR, "StoreLoad");
@@ -78,4 +91,51 @@ public class CIPTATest {
     public void testMergeParam() {
         Tests.testCIPTA(DIR, "MergeParam");
     }
+
+    @Test
+    public void testInstanceFieldCoalescing() {
+        Tests.testCIPTA(DIR, "InstanceField", "worklist:coalescing");
+    }
+
+    @Test
+    public void testCycle() {
+        Tests.testCIPTA(DIR, "Cycle");
+    }
+
+    @Test
+    public void testCycleCollapse() {
+        Tests.testCIPTA(DIR, "Cycle", "cycle-detection-interval:1");
+    }
+
+    @Test
+    public void testExampleTopological() {
+        Tests.testCIPTA(DIR, "Example", "worklist:topo");
+    }
+
+    @Test
+    public void testTypeFilter() {
+        Tests.testCIPTA(DIR, "TypeFilter", "type-filter:true");
+    }
+
+    @Test
+    public void testInstanceFieldDemand() {
+        Tests.testDemandPTA(DIR, "InstanceField", 10000, 3);
+    }
+
+    @Test
+    public void testDemandAllCases() {
+        for (String main : CASES) {
+            Tests.testDemandPTA(DIR, main, 10000, 3);
+        }
+        Tests.testDemandPTA(DIR, "TypeFilter", 10000, 3, "type-filter:true");
+    }
+
+    @Test
+    public void testDemandZeroBudget() {
+        // no refinement can finish, so the answers are field-based
+        for (String main : CASES) {
+            Tests.testDemandPTASound(DIR, main, 0, 3);
+        }
+        Tests.testDemandPTASound(DIR, "TypeFilter", 0, 3, "type-filter:true");
+    }
 }
@@ -0,0 +1,33 @@
+class Cycle {
+
+    public static void main(String[] args) {
+        Node n1 = new Node();
+        Node n2 = new Node();
+        Node a = n1;
+        Node b = a;
+        Node c = b;
+        for (int i = 0; i < 10; ++i) {
+            a = c;
+            b = a;
+            c = b;
+            a.next = n2;
+        }
+        Node d = c.next;
+        c = d;
+        Node e = pass(c);
+        e.next = new Node();
+        Node f = b.next.next;
+    }
+
+    static Node pass(Node n) {
+        Node m = n;
+        if (m == null) {
+            return m;
+        }
+        return pass(m);
+    }
+}
+
+class Node {
+    Node next;
+}
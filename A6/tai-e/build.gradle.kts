@@ -31,6 +31,52 @@ java {
     }
 }
 
+// JMH benchmarks in src/jmh/java, run by "gradle jmh", where JMH options
+// can be given by -PjmhArgs, e.g., -PjmhArgs="PointsToSet -p impl=bit".
+// The JMH dependencies are only resolved when the benchmarks are built,
+// thus they are not needed by the build and tests of the assignment.
+val jmh: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+}
+
+configurations["jmhImplementation"].extendsFrom(configurations.implementation.get())
+
+dependencies {
+    "jmhImplementation"("org.openjdk.jmh:jmh-core:1.37")
+    "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:1.37")
+}
+
+tasks.named<JavaCompile>("compileJmhJava") { options.encoding = "UTF-8" }
+
+tasks.register<JavaExec>("jmh") {
+    description = "Runs the JMH benchmarks."
+    group = "benchmark"
+    classpath = jmh.runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+    args((findProperty("jmhArgs") as String?)?.split(" ") ?: listOf<String>())
+}
+
+// End-to-end benchmarks of the analyses on synthetic programs,
+// run by "gradle benchmark", where the options of the driver can be
+// given by -PbenchmarkArgs, e.g., -PbenchmarkArgs="--scale 200".
+// See pascal.taie.benchmark.BenchmarkDriver for the options.
+val benchmark: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+}
+
+configurations["benchmarkImplementation"].extendsFrom(configurations.implementation.get())
+
+tasks.named<JavaCompile>("compileBenchmarkJava") { options.encoding = "UTF-8" }
+
+tasks.register<JavaExec>("benchmark") {
+    description = "Runs the analyses on synthetic programs and compares the costs with a baseline."
+    group = "benchmark"
+    classpath = benchmark.runtimeClasspath
+    mainClass.set("pascal.taie.benchmark.BenchmarkDriver")
+    args((findProperty("benchmarkArgs") as String?)?.split(" ") ?: listOf<String>())
+}
+
 val libDir = project.projectDir.parentFile.parentFile.resolve("lib")
 libDir.listFiles()
     ?.map { it.name }
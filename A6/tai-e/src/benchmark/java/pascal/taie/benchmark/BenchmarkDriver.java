@@ -0,0 +1,356 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import pascal.taie.benchmark.ProgramGenerator.Shape;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the analyses of the assignments on the synthetic programs
+ * generated by {@link ProgramGenerator}, and reports their wall time
+ * (excluding the World building, which is reported separately),
+ * peak heap and result sizes.
+ * <p>
+ * Each run is performed in a fresh JVM on the classpath of the assignment
+ * which implements the analysis, thus the assignments must be compiled
+ * before (by "gradle compileJava" in their directories). The results
+ * are written to results.json in the output directory, and compared
+ * with the results of a previous run given by --baseline, where the runs
+ * which become slower or use more heap beyond --threshold percent, or whose
+ * result sizes change, are reported as regressions in report.md.
+ * The driver exits with status 1 if there is any regression.
+ * <p>
+ * Options:
+ * <pre>
+ * --repo &lt;dir&gt;         root of the repository (default: ../..)
+ * --out &lt;dir&gt;          output directory (default: build/benchmark)
+ * --scale &lt;n&gt;          scale of the generated programs (default: 100)
+ * --shapes &lt;a,b&gt;       program shapes (default: all shapes)
+ * --analyses &lt;a,b&gt;     analyses (default: all analyses)
+ * --baseline &lt;file&gt;    results.json of a previous run
+ * --threshold &lt;pct&gt;    tolerated increase of time and heap (default: 20)
+ * --heap &lt;size&gt;        maximum heap of each run (default: 4g)
+ * --timeout &lt;sec&gt;      timeout of each run (default: 600)
+ * </pre>
+ */
+public final class BenchmarkDriver {
+
+    /**
+     * Increases of time below this are noises, whatever the threshold is.
+     */
+    private static final long MIN_TIME_REGRESSION = 100; // ms
+
+    /**
+     * Increases of heap below this are noises, whatever the threshold is.
+     */
+    private static final long MIN_HEAP_REGRESSION = 32L << 20; // 32MB
+
+    private static final String[] SELECTORS = {
+            "ci", "1-call", "1-obj", "1-type", "2-call", "2-obj", "2-type",
+            "scaler", "zipper"
+    };
+
+    /**
+     * An analysis to benchmark, which is implemented in given assignment,
+     * and is run by given arguments of Tai-e.
+     */
+    private record Analysis(String name, String assignment, String id,
+                            List<String> args) {
+    }
+
+    private static List<Analysis> allAnalyses() {
+        List<Analysis> analyses = new ArrayList<>();
+        analyses.add(new Analysis("deadcode", "A3", "deadcode", List.of(
+                "-a", "deadcode",
+                "-a", "livevar=strongly:false",
+                "-a", "constprop=edge-refine:false")));
+        analyses.add(new Analysis("inter-constprop", "A4", "inter-constprop", List.of(
+                "-a", "inter-constprop=edge-refine:false;alias-aware:false",
+                "-a", "cg=algorithm:cha")));
+        analyses.add(new Analysis("cipta", "A5", "cipta", List.of(
+                "-a", "cipta=only-app:true;implicit-entries:false")));
+        for (String cs : SELECTORS) {
+            analyses.add(new Analysis("cspta-" + cs, "A6", "cspta", List.of(
+                    "-a", "cspta=cs:" + cs + ";only-app:true;implicit-entries:false")));
+        }
+        analyses.add(new Analysis("taint", "A8", "cspta", List.of(
+                "-a", "cspta=cs:1-call;only-app:true;implicit-entries:false;" +
+                        "taint-config:src/test/resources/pta/taint/taint-config.yml")));
+        return analyses;
+    }
+
+    private Path repo = Path.of("../..");
+
+    private Path out = Path.of("build/benchmark");
+
+    private int scale = 100;
+
+    private List<Shape> shapes = Arrays.asList(Shape.values());
+
+    private List<Analysis> analyses = allAnalyses();
+
+    private Path baseline;
+
+    private double threshold = 20;
+
+    private String heap = "4g";
+
+    private long timeout = 600;
+
+    private BenchmarkDriver() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkDriver driver = new BenchmarkDriver();
+        driver.parseArgs(args);
+        System.exit(driver.run() ? 0 : 1);
+    }
+
+    private void parseArgs(String[] args) {
+        for (int i = 0; i < args.length; i += 2) {
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value of " + args[i]);
+            }
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--repo" -> repo = Path.of(value);
+                case "--out" -> out = Path.of(value);
+                case "--scale" -> scale = Integer.parseInt(value);
+                case "--shapes" -> shapes = Arrays.stream(value.split(","))
+                        .map(Shape::of)
+                        .toList();
+                case "--analyses" -> {
+                    List<String> names = List.of(value.split(","));
+                    analyses = allAnalyses().stream()
+                            .filter(a -> names.contains(a.name()))
+                            .toList();
+                    if (analyses.size() != names.size()) {
+                        throw new IllegalArgumentException("Unknown analyses in " + value);
+                    }
+                }
+                case "--baseline" -> baseline = Path.of(value);
+                case "--threshold" -> threshold = Double.parseDouble(value);
+                case "--heap" -> heap = value;
+                case "--timeout" -> timeout = Long.parseLong(value);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+    }
+
+    /**
+     * @return true if there is no regression.
+     */
+    private boolean run() throws Exception {
+        Files.createDirectories(out.resolve("logs"));
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (Shape shape : shapes) {
+            Path program = out.resolve("programs").resolve(shape.getName());
+            ProgramGenerator.generate(shape, scale, program);
+            for (Analysis analysis : analyses) {
+                Map<String, Object> result = runAnalysis(shape, program, analysis);
+                System.out.printf("%-12s %-16s %s%n", shape.getName(),
+                        analysis.name(), result.get("status"));
+                results.add(result);
+            }
+        }
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.writerWithDefaultPrettyPrinter()
+                .writeValue(out.resolve("results.json").toFile(), results);
+        List<Map<String, Object>> baselineResults = baseline == null ? List.of() :
+                mapper.readValue(baseline.toFile(), new TypeReference<>() {});
+        boolean passed;
+        try (PrintStream report = new PrintStream(out.resolve("report.md").toFile())) {
+            passed = report(results, baselineResults, report);
+        }
+        System.out.println("Report is written to " + out.resolve("report.md"));
+        return passed;
+    }
+
+    private Map<String, Object> runAnalysis(
+            Shape shape, Path program, Analysis analysis) throws Exception {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("program", shape.getName());
+        result.put("scale", scale);
+        result.put("analysis", analysis.name());
+        Path dir = repo.resolve(analysis.assignment()).resolve("tai-e");
+        Path classes = dir.resolve("build/classes/java/main");
+        if (!Files.isDirectory(classes)) {
+            result.put("status", "not compiled: " + dir);
+            return result;
+        }
+        List<String> classPath = new ArrayList<>();
+        // the runner must not see the classes of this assignment (A6),
+        // as they shadow the ones of the benchmarked assignment
+        classPath.add(Path.of(BenchmarkRunner.class.getProtectionDomain()
+                .getCodeSource().getLocation().toURI()).toString());
+        classPath.add(classes.toAbsolutePath().toString());
+        Path resources = dir.resolve("build/resources/main");
+        if (Files.isDirectory(resources)) {
+            classPath.add(resources.toAbsolutePath().toString());
+        }
+        classPath.add(dir.resolve("lib/tai-e-assignment.jar").toAbsolutePath().toString());
+        classPath.add(repo.resolve("lib/dependencies.jar").toAbsolutePath().toString());
+        List<String> command = new ArrayList<>(List.of(
+                Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-Xmx" + heap,
+                "-cp", String.join(File.pathSeparator, classPath),
+                BenchmarkRunner.class.getName(), analysis.id(),
+                "-pp", "-cp", program.toAbsolutePath().toString(),
+                "-m", ProgramGenerator.MAIN));
+        command.addAll(analysis.args());
+        File log = out.resolve("logs")
+                .resolve(shape.getName() + "-" + analysis.name() + ".log")
+                .toFile();
+        Process process = new ProcessBuilder(command)
+                .directory(dir.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(log)
+                .start();
+        if (!process.waitFor(timeout, TimeUnit.SECONDS)) {
+            process.destroyForcibly().waitFor();
+            result.put("status", "timeout");
+            return result;
+        }
+        String line = Files.readAllLines(log.toPath()).stream()
+                .filter(l -> l.startsWith(BenchmarkRunner.RESULT_PREFIX))
+                .findFirst()
+                .orElse(null);
+        if (process.exitValue() != 0 || line == null) {
+            result.put("status", "failed (exit " + process.exitValue() + "), see " + log);
+            return result;
+        }
+        result.put("status", "ok");
+        result.putAll(new ObjectMapper().readValue(
+                line.substring(BenchmarkRunner.RESULT_PREFIX.length()),
+                new TypeReference<Map<String, Object>>() {}));
+        return result;
+    }
+
+    /**
+     * Writes the report of given results compared with baseline.
+     *
+     * @return true if there is no regression.
+     */
+    private boolean report(List<Map<String, Object>> results,
+                           List<Map<String, Object>> baselineResults,
+                           PrintStream report) {
+        Map<String, Map<String, Object>> baselines = new LinkedHashMap<>();
+        baselineResults.forEach(r -> baselines.put(key(r), r));
+        List<String> regressions = new ArrayList<>();
+        report.println("# Benchmark report (scale " + scale + ")");
+        report.println();
+        report.println("| program | analysis | status | time (ms) | baseline | " +
+                "frontend (ms) | peak heap (MB) | baseline | sizes |");
+        report.println("|---|---|---|---:|---:|---:|---:|---:|---|");
+        for (Map<String, Object> r : results) {
+            Map<String, Object> base = baselines.get(key(r));
+            report.printf("| %s | %s | %s | %s | %s | %s | %s | %s | %s |%n",
+                    r.get("program"), r.get("analysis"), r.get("status"),
+                    format(r.get("analysisMillis"), 1),
+                    baseValue(base, "analysisMillis", 1),
+                    format(r.get("frontendMillis"), 1),
+                    format(r.get("peakHeapBytes"), 1 << 20),
+                    baseValue(base, "peakHeapBytes", 1 << 20),
+                    Objects.requireNonNullElse(r.get("sizes"), "-"));
+            if (base != null) {
+                checkRegression(r, base, regressions);
+            }
+        }
+        report.println();
+        if (baseline == null) {
+            report.println("No baseline is given.");
+        } else if (regressions.isEmpty()) {
+            report.println("No regression against " + baseline + ".");
+        } else {
+            report.println("## Regressions against " + baseline);
+            report.println();
+            regressions.forEach(r -> report.println("- " + r));
+            regressions.forEach(r -> System.out.println("REGRESSION: " + r));
+        }
+        return regressions.isEmpty();
+    }
+
+    private void checkRegression(Map<String, Object> result,
+                                 Map<String, Object> base, List<String> regressions) {
+        String name = key(result);
+        if (!"ok".equals(result.get("status"))) {
+            if ("ok".equals(base.get("status"))) {
+                regressions.add(name + ": " + result.get("status"));
+            }
+            return;
+        }
+        if (!"ok".equals(base.get("status"))) {
+            return;
+        }
+        checkIncrease(name, "time", result, base, "analysisMillis",
+                MIN_TIME_REGRESSION, regressions);
+        checkIncrease(name, "peak heap", result, base, "peakHeapBytes",
+                MIN_HEAP_REGRESSION, regressions);
+        if (!Objects.equals(result.get("sizes"), base.get("sizes"))) {
+            regressions.add(name + ": result sizes changed from "
+                    + base.get("sizes") + " to " + result.get("sizes"));
+        }
+    }
+
+    private void checkIncrease(String name, String metric,
+                               Map<String, Object> result, Map<String, Object> base,
+                               String key, long minIncrease, List<String> regressions) {
+        if (!(base.get(key) instanceof Number baseNumber)) {
+            return; // the baseline is written by an older runner
+        }
+        long value = ((Number) result.get(key)).longValue();
+        long baseValue = baseNumber.longValue();
+        if (value - baseValue > minIncrease
+                && value > baseValue * (1 + threshold / 100)) {
+            regressions.add(String.format("%s: %s increased by %.1f%% (%d -> %d)",
+                    name, metric, 100.0 * (value - baseValue) / baseValue,
+                    baseValue, value));
+        }
+    }
+
+    private static String key(Map<String, Object> result) {
+        return result.get("program") + "/" + result.get("analysis");
+    }
+
+    private static String baseValue(Map<String, Object> base, String key, long unit) {
+        return base == null ? "-" : format(base.get(key), unit);
+    }
+
+    private static String format(Object value, long unit) {
+        return value instanceof Number n ? Long.toString(n.longValue() / unit) : "-";
+    }
+}
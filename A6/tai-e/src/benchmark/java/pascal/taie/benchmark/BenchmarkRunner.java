@@ -0,0 +1,290 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.management.GarbageCollectionNotificationInfo;
+import pascal.taie.Main;
+import pascal.taie.World;
+import pascal.taie.config.Options;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.language.classes.JMethod;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Runs an analysis in the JVM started by {@link BenchmarkDriver}, and
+ * prints its wall time, the wall time of building the World (i.e.,
+ * the frontend), peak heap and result sizes as a line starting with
+ * {@link #RESULT_PREFIX}.
+ * <p>
+ * The steps of {@link Main#main(String[])} are invoked reflectively,
+ * as they are private, so that the World building is timed separately.
+ * <p>
+ * This class runs on the classpath of the assignment which implements
+ * the analysis, thus it only uses the APIs common to all assignments,
+ * and inspects the results reflectively.
+ * <p>
+ * Usage: BenchmarkRunner &lt;analysis ID&gt; &lt;arguments of Tai-e&gt;
+ */
+public final class BenchmarkRunner {
+
+    static final String RESULT_PREFIX = "BENCHMARK-RESULT ";
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        String id = args[0];
+        String[] taieArgs = new String[args.length - 1];
+        System.arraycopy(args, 1, taieArgs, 0, taieArgs.length);
+        PeakHeap peakHeap = new PeakHeap();
+        Options options = (Options) invokeMain("processArgs",
+                new Class<?>[]{ String[].class }, (Object) taieArgs);
+        List<?> plan = (List<?>) invokeMain("processConfigs",
+                new Class<?>[]{ Options.class }, options);
+        long start = System.nanoTime();
+        invokeMain("buildWorld",
+                new Class<?>[]{ Options.class, List.class }, options, plan);
+        long frontendMillis = (System.nanoTime() - start) / 1_000_000;
+        start = System.nanoTime();
+        invokeMain("executePlan", new Class<?>[]{ List.class }, plan);
+        long analysisMillis = (System.nanoTime() - start) / 1_000_000;
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("analysisMillis", analysisMillis);
+        result.put("frontendMillis", frontendMillis);
+        result.put("peakHeapBytes", peakHeap.get());
+        Object analysisResult = World.get().getResult(id);
+        result.put("sizes", analysisResult != null ?
+                getSizes(analysisResult) : getMethodResultSizes(id));
+        System.out.println(RESULT_PREFIX + new ObjectMapper().writeValueAsString(result));
+    }
+
+    /**
+     * Invokes a private static method of {@link Main}.
+     */
+    private static Object invokeMain(String name, Class<?>[] paramTypes,
+                                     Object... args) throws Exception {
+        Method method = Main.class.getDeclaredMethod(name, paramTypes);
+        method.setAccessible(true);
+        try {
+            return method.invoke(null, args);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Tracks the peak of the used heap, i.e., the total usage of the heap
+     * memory pools at the same time. The usage is sampled before each GC,
+     * when the heap is the fullest, and when the peak is read.
+     * The per-pool peaks are not summed, as they are reached at
+     * different times.
+     */
+    private static class PeakHeap implements NotificationListener {
+
+        private final Set<String> heapPools = ManagementFactory
+                .getMemoryPoolMXBeans()
+                .stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .map(MemoryPoolMXBean::getName)
+                .collect(Collectors.toSet());
+
+        private final AtomicLong peak = new AtomicLong();
+
+        private PeakHeap() {
+            for (GarbageCollectorMXBean gc :
+                    ManagementFactory.getGarbageCollectorMXBeans()) {
+                ((NotificationEmitter) gc).addNotificationListener(this, null, null);
+            }
+        }
+
+        @Override
+        public void handleNotification(Notification notification, Object handback) {
+            if (notification.getType().equals(
+                    GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION)) {
+                GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo
+                        .from((CompositeData) notification.getUserData());
+                long used = info.getGcInfo()
+                        .getMemoryUsageBeforeGc()
+                        .entrySet()
+                        .stream()
+                        .filter(e -> heapPools.contains(e.getKey()))
+                        .mapToLong(e -> e.getValue().getUsed())
+                        .sum();
+                peak.accumulateAndGet(used, Math::max);
+            }
+        }
+
+        private long get() {
+            long used = ManagementFactory.getMemoryMXBean()
+                    .getHeapMemoryUsage().getUsed();
+            return peak.accumulateAndGet(used, Math::max);
+        }
+    }
+
+    /**
+     * @return the sizes of the results of a method analysis (e.g., dead
+     * code), which are stored in the IR of the application methods.
+     */
+    private static Map<String, Long> getMethodResultSizes(String id) {
+        long elements = 0;
+        for (JMethod method : getApplicationMethods()) {
+            if (method.getIR().getResult(id) instanceof Collection<?> c) {
+                elements += c.size();
+            }
+        }
+        return Map.of("elements", elements);
+    }
+
+    private static List<JMethod> getApplicationMethods() {
+        return World.get().getClassHierarchy()
+                .applicationClasses()
+                .flatMap(c -> c.getDeclaredMethods().stream())
+                .filter(m -> !m.isAbstract() && !m.isNative())
+                .toList();
+    }
+
+    /**
+     * @return the sizes of given analysis result of the whole program,
+     * i.e., the numbers of variables, points-to relations, reachable
+     * methods, call edges and taint flows for pointer analysis results,
+     * the number of facts after the statements of the application methods
+     * for data-flow results (e.g., inter-procedural constants), or the
+     * number of elements for the results which are collections.
+     */
+    private static Map<String, Long> getSizes(Object result) throws Exception {
+        Map<String, Long> sizes = new LinkedHashMap<>();
+        if (result instanceof Collection<?> c) {
+            sizes.put("elements", (long) c.size());
+        } else if (result instanceof Map<?, ?> m) {
+            sizes.put("elements", (long) m.size());
+        } else if (hasMethod(result, "getOutFact")) {
+            long facts = 0;
+            for (JMethod method : getApplicationMethods()) {
+                for (Stmt stmt : method.getIR().getStmts()) {
+                    Object fact = findMethod(result, "getOutFact", stmt)
+                            .invoke(result, stmt);
+                    if (fact != null) {
+                        facts += getFactSize(fact);
+                    }
+                }
+            }
+            sizes.put("facts", facts);
+        } else if (hasMethod(result, "getVars")) {
+            Collection<?> vars = (Collection<?>) invoke(result, "getVars");
+            sizes.put("vars", (long) vars.size());
+            long pts = 0;
+            if (!vars.isEmpty()) {
+                Method getPts = findMethod(result, "getPointsToSet",
+                        vars.iterator().next());
+                for (Object var : vars) {
+                    pts += ((Collection<?>) getPts.invoke(result, var)).size();
+                }
+            }
+            sizes.put("varPointsTo", pts);
+            Object callGraph = invoke(result, "getCallGraph");
+            sizes.put("reachableMethods",
+                    ((Number) invoke(callGraph, "getNumberOfMethods")).longValue());
+            sizes.put("callEdges",
+                    ((Number) invoke(callGraph, "getNumberOfEdges")).longValue());
+            if (hasMethod(result, "getKeys")) {
+                for (Object key : (Collection<?>) invoke(result, "getKeys")) {
+                    if (key.toString().contains("Taint")) {
+                        Object flows = findMethod(result, "getResult", key)
+                                .invoke(result, key);
+                        sizes.put("taintFlows", (long) ((Collection<?>) flows).size());
+                    }
+                }
+            }
+        }
+        return sizes;
+    }
+
+    private static long getFactSize(Object fact) throws Exception {
+        if (fact instanceof Collection<?> c) {
+            return c.size();
+        } else if (hasMethod(fact, "keySet")) { // e.g., MapFact
+            return ((Collection<?>) invoke(fact, "keySet")).size();
+        } else {
+            return ((Number) invoke(fact, "size")).longValue();
+        }
+    }
+
+    private static boolean hasMethod(Object o, String name) {
+        for (Method m : o.getClass().getMethods()) {
+            if (m.getName().equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return public method of o with given name, which accepts given
+     * arguments (i.e., their classes, as they are never null).
+     */
+    private static Method findMethod(Object o, String name, Object... args) {
+        for (Method m : o.getClass().getMethods()) {
+            if (m.getName().equals(name) && m.getParameterCount() == args.length
+                    && accepts(m.getParameterTypes(), args)) {
+                // the class of o may be inaccessible, e.g., package-private
+                m.setAccessible(true);
+                return m;
+            }
+        }
+        throw new IllegalArgumentException(o.getClass() + " has no method " + name);
+    }
+
+    private static boolean accepts(Class<?>[] paramTypes, Object[] args) {
+        for (int i = 0; i < args.length; ++i) {
+            if (!paramTypes[i].isInstance(args[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Object invoke(Object o, String name) throws Exception {
+        return findMethod(o, name).invoke(o);
+    }
+}
@@ -0,0 +1,378 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Generates synthetic Java programs of given shapes and scales, whose
+ * main class is {@link #MAIN}. Every program also flows strings from
+ * SourceSink.source() to SourceSink.sink(), which match the sources and
+ * sinks of the taint configuration used by the tests of taint analysis.
+ */
+public final class ProgramGenerator {
+
+    public static final String MAIN = "Main";
+
+    public enum Shape {
+
+        /**
+         * Deep chains of static and instance calls, which pass objects,
+         * strings and constants along the chains.
+         */
+        CALL_CHAIN("call-chain"),
+
+        /**
+         * Many lists, maps and boxes, which hold objects, other containers
+         * and strings, like the code using collections.
+         */
+        CONTAINERS("containers"),
+
+        /**
+         * Wide class hierarchy, whose virtual calls have many targets.
+         */
+        HIERARCHY("hierarchy"),
+
+        /**
+         * Big methods consisting of switches and branches on constants,
+         * where many branches and assignments are dead.
+         */
+        SWITCH("switch");
+
+        private final String name;
+
+        Shape(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public static Shape of(String name) {
+            for (Shape shape : values()) {
+                if (shape.name.equals(name)) {
+                    return shape;
+                }
+            }
+            throw new IllegalArgumentException("Unknown program shape: " + name);
+        }
+    }
+
+    private ProgramGenerator() {
+    }
+
+    /**
+     * Generates the program of given shape and scale in dir.
+     */
+    public static void generate(Shape shape, int scale, Path dir) throws IOException {
+        Files.createDirectories(dir);
+        String main = switch (shape) {
+            case CALL_CHAIN -> callChain(scale);
+            case CONTAINERS -> containers(scale);
+            case HIERARCHY -> hierarchy(scale);
+            case SWITCH -> switches(scale);
+        };
+        Files.writeString(dir.resolve(MAIN + ".java"), main);
+        Files.writeString(dir.resolve("SourceSink.java"), SOURCE_SINK);
+    }
+
+    private static final String SOURCE_SINK = """
+            class SourceSink {
+
+                static String source() {
+                    return new String();
+                }
+
+                static void sink(String s) {
+                }
+
+                static void sink(String s, int n) {
+                }
+            }
+            """;
+
+    private static String callChain(int depth) {
+        StringBuilder b = new StringBuilder();
+        b.append("""
+                class Main {
+                    public static void main(String[] args) {
+                        Node n1 = Chain.c0(new Node(), SourceSink.source(), 0);
+                        Node n2 = Chain.c0(new Node(), "safe", 1);
+                        SourceSink.sink((String) n1.value);
+                        SourceSink.sink((String) n2.value);
+                        Worker w1 = new Worker();
+                        Worker w2 = new Worker();
+                        SourceSink.sink((String) w1.w0(SourceSink.source()));
+                        SourceSink.sink((String) w2.w0("safe"));
+                    }
+                }
+
+                class Node {
+                    Object value;
+                    Node next;
+
+                    Node link(Object value) {
+                        Node n = new Node();
+                        n.value = value;
+                        n.next = this;
+                        return n;
+                    }
+                }
+
+                """);
+        b.append("class Chain {\n");
+        for (int i = 0; i < depth; ++i) {
+            b.append("    static Node c").append(i).append("(Node n, String s, int d) {\n")
+                    .append("        int x = d + ").append(i).append(";\n")
+                    .append("        if (x < 0) {\n")
+                    .append("            s = null;\n")
+                    .append("        }\n")
+                    .append("        Node m = n.link(s);\n");
+            if (i + 1 < depth) {
+                b.append("        return c").append(i + 1).append("(m, s, x);\n");
+            } else {
+                b.append("        return m;\n");
+            }
+            b.append("    }\n\n");
+        }
+        b.append("}\n\n");
+        b.append("class Worker {\n")
+                .append("    Object last;\n\n");
+        for (int i = 0; i < depth; ++i) {
+            b.append("    Object w").append(i).append("(Object o) {\n")
+                    .append("        this.last = o;\n");
+            if (i + 1 < depth) {
+                b.append("        return w").append(i + 1).append("(this.last);\n");
+            } else {
+                b.append("        return this.last;\n");
+            }
+            b.append("    }\n\n");
+        }
+        b.append("}\n");
+        return b.toString();
+    }
+
+    private static String containers(int count) {
+        StringBuilder b = new StringBuilder();
+        b.append("""
+                class MyList {
+                    Object[] elems = new Object[4];
+                    int size;
+
+                    void add(Object e) {
+                        if (size == elems.length) {
+                            Object[] bigger = new Object[size * 2];
+                            for (int i = 0; i < size; ++i) {
+                                bigger[i] = elems[i];
+                            }
+                            elems = bigger;
+                        }
+                        elems[size++] = e;
+                    }
+
+                    Object get(int i) {
+                        return elems[i];
+                    }
+                }
+
+                class MyMap {
+                    MyList keys = new MyList();
+                    MyList values = new MyList();
+
+                    void put(Object k, Object v) {
+                        keys.add(k);
+                        values.add(v);
+                    }
+
+                    Object get(Object k) {
+                        for (int i = 0; i < keys.size; ++i) {
+                            if (keys.get(i) == k) {
+                                return values.get(i);
+                            }
+                        }
+                        return null;
+                    }
+                }
+
+                class Box {
+                    Object item;
+
+                    void set(Object item) {
+                        this.item = item;
+                    }
+
+                    Object get() {
+                        return item;
+                    }
+                }
+
+                class Item {
+                    int id;
+
+                    Item(int id) {
+                        this.id = id;
+                    }
+                }
+
+                """);
+        b.append("class Main {\n")
+                .append("    public static void main(String[] args) {\n")
+                .append("        MyList all = new MyList();\n")
+                .append("        MyMap index = new MyMap();\n");
+        for (int i = 0; i < count; ++i) {
+            b.append("        fill").append(i).append("(all, index);\n");
+        }
+        b.append("        MyList strings = new MyList();\n")
+                .append("        strings.add(SourceSink.source());\n")
+                .append("        strings.add(\"safe\");\n")
+                .append("        SourceSink.sink((String) strings.get(0));\n")
+                .append("        Box box = (Box) index.get(all.get(0));\n")
+                .append("        SourceSink.sink((String) box.get());\n")
+                .append("    }\n\n");
+        for (int i = 0; i < count; ++i) {
+            b.append("    static void fill").append(i).append("(MyList all, MyMap index) {\n")
+                    .append("        MyList list = new MyList();\n")
+                    .append("        Box box = new Box();\n")
+                    .append("        Item item = new Item(").append(i).append(");\n")
+                    .append("        list.add(item);\n")
+                    .append("        box.set(").append(i % 2 == 0 ? "SourceSink.source()" : "\"safe\"")
+                    .append(");\n")
+                    .append("        list.add(box);\n")
+                    .append("        all.add(list);\n")
+                    .append("        index.put(list, box);\n")
+                    .append("        Item back = (Item) list.get(0);\n")
+                    .append("        back.id = back.id + 1;\n")
+                    .append("    }\n\n");
+        }
+        b.append("}\n");
+        return b.toString();
+    }
+
+    private static String hierarchy(int width) {
+        StringBuilder b = new StringBuilder();
+        b.append("""
+                interface Shape {
+                    Object apply(Object o);
+                }
+
+                abstract class Base implements Shape {
+                    Object state;
+
+                    public Object apply(Object o) {
+                        state = o;
+                        return transform(o);
+                    }
+
+                    abstract Object transform(Object o);
+                }
+
+                """);
+        for (int i = 0; i < width; ++i) {
+            if (i % 2 == 0) {
+                b.append("class S").append(i).append(" implements Shape {\n")
+                        .append("    public Object apply(Object o) {\n")
+                        .append(i % 4 == 0 ? "        return o;\n" : "        return new S" + i + "();\n")
+                        .append("    }\n")
+                        .append("}\n\n");
+            } else {
+                b.append("class S").append(i).append(" extends Base {\n")
+                        .append("    Object transform(Object o) {\n")
+                        .append("        return state;\n")
+                        .append("    }\n")
+                        .append("}\n\n");
+            }
+        }
+        b.append("class Main {\n")
+                .append("    public static void main(String[] args) {\n")
+                .append("        Shape[] shapes = new Shape[").append(width).append("];\n")
+                .append("        for (int i = 0; i < shapes.length; ++i) {\n")
+                .append("            shapes[i] = make(i);\n")
+                .append("        }\n")
+                .append("        Object o = SourceSink.source();\n")
+                .append("        for (int i = 0; i < shapes.length; ++i) {\n")
+                .append("            o = shapes[i].apply(o);\n")
+                .append("        }\n")
+                .append("        SourceSink.sink((String) o);\n")
+                .append("        Shape first = make(0);\n")
+                .append("        SourceSink.sink((String) first.apply(\"safe\"));\n")
+                .append("    }\n\n")
+                .append("    static Shape make(int k) {\n")
+                .append("        switch (k) {\n");
+        for (int i = 0; i < width; ++i) {
+            b.append("            case ").append(i).append(": return new S").append(i).append("();\n");
+        }
+        b.append("            default: return null;\n")
+                .append("        }\n")
+                .append("    }\n")
+                .append("}\n");
+        return b.toString();
+    }
+
+    /**
+     * Number of cases of each switch.
+     */
+    private static final int CASES = 16;
+
+    private static String switches(int methods) {
+        StringBuilder b = new StringBuilder();
+        b.append("class Main {\n")
+                .append("    public static void main(String[] args) {\n")
+                .append("        int sum = 0;\n");
+        for (int i = 0; i < methods; ++i) {
+            b.append("        sum = sum + s").append(i).append("(").append(i % CASES).append(");\n");
+        }
+        // no library calls here, as CHA of inter-constprop would reach
+        // the invokedynamic in JDK, which it does not support
+        b.append("        String s = SourceSink.source();\n")
+                .append("        SourceSink.sink(s, sum);\n")
+                .append("    }\n\n");
+        for (int i = 0; i < methods; ++i) {
+            b.append("    static int s").append(i).append("(int k) {\n")
+                    .append("        int x = 0;\n")
+                    .append("        int dead = k * 2;\n")
+                    .append("        switch (k) {\n");
+            for (int c = 0; c < CASES; ++c) {
+                b.append("            case ").append(c).append(":\n")
+                        .append("                x = k + ").append(c * i).append(";\n")
+                        .append("                if (x > ").append(c * i + CASES).append(") {\n")
+                        .append("                    x = x - 1;\n")
+                        .append("                }\n")
+                        .append("                break;\n");
+            }
+            b.append("            default:\n")
+                    .append("                x = -1;\n")
+                    .append("        }\n")
+                    .append("        int y = 1;\n")
+                    .append("        if (y > 2) {\n")
+                    .append("            x = dead;\n")
+                    .append("        }\n")
+                    .append("        return x;\n")
+                    .append("    }\n\n");
+        }
+        b.append("}\n");
+        return b.toString();
+    }
+}
@@ -0,0 +1,313 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.core.cs.element;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pascal.taie.analysis.pta.core.cs.context.Context;
+import pascal.taie.analysis.pta.core.cs.context.TrieContext;
+import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.language.annotation.AnnotationHolder;
+import pascal.taie.language.classes.JClass;
+import pascal.taie.language.classes.JClassBuilder;
+import pascal.taie.language.classes.JClassLoader;
+import pascal.taie.language.classes.JField;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.language.classes.Modifier;
+import pascal.taie.language.type.ClassType;
+import pascal.taie.language.type.Type;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the lookups of context-sensitive elements performed by
+ * the solver, on each implementation of {@link CSManager} selectable by
+ * option "cs-manager". All elements are created in the setup, so the
+ * benchmarks measure the lookups of existing elements, which dominate
+ * in the solver.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CSManagerBenchmark {
+
+    private static final int VARS = 10_000;
+
+    private static final int OBJECTS = 10_000;
+
+    private static final int CONTEXTS = 4;
+
+    private static final int FIELDS = 8;
+
+    private static final int ACCESSES = 100_000;
+
+    @Param({"map", "array", "slot"})
+    public String manager;
+
+    private CSManager csManager;
+
+    private Var[] vars;
+
+    private Obj[] objs;
+
+    private Context[] varContexts;
+
+    private Context[] heapContexts;
+
+    private CSObj[] bases;
+
+    private JField[] fields;
+
+    /**
+     * Slots of {@link #fields}, computed once like the solver does
+     * when building the method templates.
+     */
+    private int[] slots;
+
+    @Setup
+    public void setUp() {
+        csManager = switch (manager) {
+            case "map" -> new MapBasedCSManager();
+            case "array" -> new ArrayBasedCSManager();
+            case "slot" -> new ArrayBasedCSManager(true, null);
+            default -> throw new IllegalArgumentException(
+                    "Unknown CS manager: " + manager);
+        };
+        MockClassLoader loader = new MockClassLoader();
+        ClassType type = loader.type;
+        List<JField> classFields = List.copyOf(type.getJClass().getDeclaredFields());
+        Context[] contexts = new Context[CONTEXTS];
+        for (int i = 0; i < CONTEXTS; ++i) {
+            contexts[i] = TrieContext.make("c" + i);
+        }
+        Var[] allVars = new Var[VARS];
+        for (int i = 0; i < VARS; ++i) {
+            allVars[i] = new Var(null, "v" + i, type, i);
+        }
+        Obj[] allObjs = new Obj[OBJECTS];
+        for (int i = 0; i < OBJECTS; ++i) {
+            allObjs[i] = new MockObj(i, type);
+        }
+        Random random = new Random(0);
+        vars = new Var[ACCESSES];
+        objs = new Obj[ACCESSES];
+        varContexts = new Context[ACCESSES];
+        heapContexts = new Context[ACCESSES];
+        bases = new CSObj[ACCESSES];
+        fields = new JField[ACCESSES];
+        slots = new int[ACCESSES];
+        for (int i = 0; i < ACCESSES; ++i) {
+            vars[i] = allVars[random.nextInt(VARS)];
+            varContexts[i] = contexts[random.nextInt(CONTEXTS)];
+            objs[i] = allObjs[random.nextInt(OBJECTS)];
+            heapContexts[i] = contexts[random.nextInt(CONTEXTS)];
+        }
+        // creates the elements
+        for (int i = 0; i < ACCESSES; ++i) {
+            csManager.getCSVar(varContexts[i], vars[i]);
+            bases[i] = csManager.getCSObj(heapContexts[i], objs[i]);
+            fields[i] = classFields.get(random.nextInt(FIELDS));
+            slots[i] = csManager.getFieldSlot(fields[i]);
+            csManager.getInstanceField(bases[i], fields[i]);
+        }
+    }
+
+    @Benchmark
+    public int getCSVar() {
+        int sum = 0;
+        for (int i = 0; i < ACCESSES; ++i) {
+            sum += csManager.getCSVar(varContexts[i], vars[i]).getVar().getIndex();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int getCSObj() {
+        int sum = 0;
+        for (int i = 0; i < ACCESSES; ++i) {
+            sum += csManager.getCSObj(heapContexts[i], objs[i]).getIndex();
+        }
+        return sum;
+    }
+
+    /**
+     * Looks up the instance fields by the fields alone.
+     */
+    @Benchmark
+    public int getInstanceField() {
+        int sum = 0;
+        for (int i = 0; i < ACCESSES; ++i) {
+            sum += csManager.getInstanceField(bases[i], fields[i])
+                    .getBase().getIndex();
+        }
+        return sum;
+    }
+
+    /**
+     * Looks up the instance fields by the fields and their precomputed
+     * slots, as the solver does when processing field loads and stores.
+     */
+    @Benchmark
+    public int getInstanceFieldBySlot() {
+        int sum = 0;
+        for (int i = 0; i < ACCESSES; ++i) {
+            sum += csManager.getInstanceField(bases[i], fields[i], slots[i])
+                    .getBase().getIndex();
+        }
+        return sum;
+    }
+
+    /**
+     * Loads only one class, which declares {@link #FIELDS} instance fields,
+     * so that the slot mode can number the fields without a world.
+     */
+    private static class MockClassLoader implements JClassLoader {
+
+        private static final String CLASS_NAME = "Node";
+
+        private final JClass jclass;
+
+        private final ClassType type;
+
+        private MockClassLoader() {
+            jclass = new JClass(this, CLASS_NAME);
+            type = new ClassType(this, CLASS_NAME);
+            List<JField> declaredFields = new ArrayList<>();
+            for (int i = 0; i < FIELDS; ++i) {
+                declaredFields.add(new JField(jclass, "f" + i, Set.of(),
+                        type, AnnotationHolder.emptyHolder()));
+            }
+            jclass.build(new JClassBuilder() {
+                @Override
+                public void build(JClass jclass) {
+                }
+
+                @Override
+                public Set<Modifier> getModifiers() {
+                    return Set.of();
+                }
+
+                @Override
+                public String getSimpleName() {
+                    return CLASS_NAME;
+                }
+
+                @Override
+                public ClassType getClassType() {
+                    return type;
+                }
+
+                @Override
+                public JClass getSuperClass() {
+                    return null;
+                }
+
+                @Override
+                public Collection<JClass> getInterfaces() {
+                    return List.of();
+                }
+
+                @Override
+                public JClass getOuterClass() {
+                    return null;
+                }
+
+                @Override
+                public Collection<JField> getDeclaredFields() {
+                    return declaredFields;
+                }
+
+                @Override
+                public Collection<JMethod> getDeclaredMethods() {
+                    return List.of();
+                }
+
+                @Override
+                public AnnotationHolder getAnnotationHolder() {
+                    return AnnotationHolder.emptyHolder();
+                }
+
+                @Override
+                public boolean isApplication() {
+                    return true;
+                }
+            });
+        }
+
+        @Override
+        public JClass loadClass(String name) {
+            return CLASS_NAME.equals(name) ? jclass : null;
+        }
+
+        @Override
+        public Collection<JClass> getLoadedClasses() {
+            return List.of(jclass);
+        }
+    }
+
+    /**
+     * Object which is not created by any program, as the benchmarks
+     * only use the identities and the types of the objects.
+     */
+    private record MockObj(int id, Type type) implements Obj {
+
+        @Override
+        public Type getType() {
+            return type;
+        }
+
+        @Override
+        public Object getAllocation() {
+            return id;
+        }
+
+        @Override
+        public Optional<JMethod> getContainerMethod() {
+            return Optional.empty();
+        }
+
+        @Override
+        public Type getContainerType() {
+            return type;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.pts;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pascal.taie.analysis.pta.core.cs.context.Context;
+import pascal.taie.analysis.pta.core.cs.context.ListContext;
+import pascal.taie.analysis.pta.core.cs.element.CSManager;
+import pascal.taie.analysis.pta.core.cs.element.CSObj;
+import pascal.taie.analysis.pta.core.cs.element.MapBasedCSManager;
+import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.benchmark.SizeDistribution;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.language.type.Type;
+
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the operations of {@link PointsToSet} performed by the
+ * solver, on each implementation given by {@link PointsToSetFactory}.
+ * Each benchmark operates on all sets, whose sizes follow {@link #sizes}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PointsToSetBenchmark {
+
+    private static final int OBJECTS = 10_000;
+
+    private static final int SETS = 1_000;
+
+    @Param({"hybrid", "bit", "shared"})
+    public String impl;
+
+    @Param({SizeDistribution.PTA})
+    public String sizes;
+
+    /**
+     * Objects of each set, in the order of adding.
+     */
+    private CSObj[][] contents;
+
+    private PointsToSet[] sets;
+
+    private PointsToSetFactory factory;
+
+    private CSObj[] probes;
+
+    @Setup
+    public void setUp() {
+        CSManager csManager = new MapBasedCSManager(impl);
+        Context context = ListContext.make();
+        CSObj[] objs = new CSObj[OBJECTS];
+        for (int i = 0; i < OBJECTS; ++i) {
+            objs[i] = csManager.getCSObj(context, new MockObj(i));
+        }
+        factory = csManager.getPointsToSetFactory();
+        Random random = new Random(0);
+        int[] setSizes = SizeDistribution.parse(sizes).sample(random, SETS);
+        contents = new CSObj[SETS][];
+        sets = new PointsToSet[SETS];
+        probes = new CSObj[SETS];
+        for (int i = 0; i < SETS; ++i) {
+            contents[i] = new CSObj[setSizes[i]];
+            for (int j = 0; j < setSizes[i]; ++j) {
+                contents[i][j] = objs[random.nextInt(OBJECTS)];
+            }
+            sets[i] = factory.make();
+            for (CSObj obj : contents[i]) {
+                sets[i].addObject(obj);
+            }
+            probes[i] = objs[random.nextInt(OBJECTS)];
+        }
+    }
+
+    @Benchmark
+    public PointsToSet[] addObject() {
+        PointsToSet[] result = new PointsToSet[SETS];
+        for (int i = 0; i < SETS; ++i) {
+            PointsToSet set = factory.make();
+            for (CSObj obj : contents[i]) {
+                set.addObject(obj);
+            }
+            result[i] = set;
+        }
+        return result;
+    }
+
+    /**
+     * Unions each set with the next one, like propagating along a PFG edge.
+     */
+    @Benchmark
+    public int addAll() {
+        int size = 0;
+        for (int i = 0; i < SETS; ++i) {
+            PointsToSet set = factory.make();
+            set.addAll(sets[i]);
+            set.addAll(sets[(i + 1) % SETS]);
+            size += set.size();
+        }
+        return size;
+    }
+
+    /**
+     * Computes the difference of each set and the next one while
+     * unioning them, like propagating a work-list entry.
+     */
+    @Benchmark
+    public int addAllDiff() {
+        int size = 0;
+        for (int i = 0; i < SETS; ++i) {
+            PointsToSet set = factory.make();
+            set.addAll(sets[i]);
+            size += set.addAllDiff(sets[(i + 1) % SETS]).size();
+        }
+        return size;
+    }
+
+    @Benchmark
+    public int contains() {
+        int count = 0;
+        for (int i = 0; i < SETS; ++i) {
+            if (sets[i].contains(probes[i])) {
+                ++count;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int iterate() {
+        int sum = 0;
+        for (PointsToSet set : sets) {
+            for (CSObj obj : set) {
+                sum += obj.getIndex();
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Object which is not created by any program, as the benchmarks
+     * only use the identities of the objects.
+     */
+    private record MockObj(int id) implements Obj {
+
+        @Override
+        public Type getType() {
+            return null;
+        }
+
+        @Override
+        public Object getAllocation() {
+            return id;
+        }
+
+        @Override
+        public Optional<JMethod> getContainerMethod() {
+            return Optional.empty();
+        }
+
+        @Override
+        public Type getContainerType() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.benchmark;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Distribution of the sizes of sets (or maps) in a benchmark, given as
+ * a histogram "size:weight,size:weight,...", e.g., "1:3,8:1" means that
+ * three quarters of the sets contain one element, and the others contain
+ * eight elements. A single size, e.g., "64", means all sets are of the size.
+ * <p>
+ * The histogram of a program is built from the points-to sets dumped by
+ * pointer analysis (option "action:dump"), by running this class with
+ * the dump file, e.g.,
+ * <pre>
+ * java -cp ... pascal.taie.benchmark.SizeDistribution output/pts.txt.gz
+ * </pre>
+ * which prints the histogram to be given to the benchmarks by
+ * JMH option "-p sizes=...".
+ */
+public final class SizeDistribution {
+
+    /**
+     * Default histogram, i.e., the sizes of the non-empty points-to sets
+     * of variables, built by {@link #main(String[])} from the dump of
+     * CSPTA of A6 (cs:ci, only-app:false) on javac of JDK 8u392, i.e.,
+     * main class com.sun.tools.javac.Main in lib/tools.jar, analyzed
+     * with "-java 8" (5196 reachable methods).
+     */
+    public static final String PTA =
+            "1:13014,2:3882,4:2262,8:1264,16:566,32:1388,64:361,128:384,256:1015,1024:1";
+
+    /**
+     * Header of each part of the dump file, see ResultProcessor.
+     */
+    private static final String HEADER = "Points-to sets of all ";
+
+    /**
+     * Separator of a pointer and its points-to set in the dump file.
+     */
+    private static final String SEP = " -> ";
+
+    private final List<int[]> entries = new ArrayList<>();
+
+    private final int totalWeight;
+
+    private SizeDistribution(String histogram) {
+        int total = 0;
+        for (String entry : histogram.split(",")) {
+            String[] parts = entry.trim().split(":");
+            int size = Integer.parseInt(parts[0]);
+            int weight = parts.length > 1 ? Integer.parseInt(parts[1]) : 1;
+            if (size < 0 || weight <= 0) {
+                throw new IllegalArgumentException("Invalid histogram: " + histogram);
+            }
+            entries.add(new int[]{ size, weight });
+            total += weight;
+        }
+        totalWeight = total;
+    }
+
+    public static SizeDistribution parse(String histogram) {
+        return new SizeDistribution(histogram);
+    }
+
+    /**
+     * @return n sizes sampled from this distribution.
+     */
+    public int[] sample(Random random, int n) {
+        int[] sizes = new int[n];
+        for (int i = 0; i < n; ++i) {
+            int r = random.nextInt(totalWeight);
+            for (int[] entry : entries) {
+                r -= entry[1];
+                if (r < 0) {
+                    sizes[i] = entry[0];
+                    break;
+                }
+            }
+        }
+        return sizes;
+    }
+
+    /**
+     * Builds the histogram of the sizes of the non-empty points-to sets
+     * in a dump file, where each size is rounded down to a power of two.
+     *
+     * @param dumpFile the file dumped by pointer analysis, which may be
+     *                 compressed by gzip.
+     * @param part     the part of the dump, e.g., "variables" or
+     *                 "instance fields".
+     */
+    public static String fromDump(Path dumpFile, String part) throws IOException {
+        Map<Integer, Integer> histogram = new TreeMap<>();
+        InputStream in = Files.newInputStream(dumpFile);
+        if (dumpFile.toString().endsWith(".gz")) {
+            in = new GZIPInputStream(in);
+        }
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            boolean inPart = false;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(HEADER)) {
+                    inPart = line.substring(HEADER.length()).equals(part);
+                } else if (inPart && line.contains(SEP)) {
+                    int size = countElements(
+                            line.substring(line.indexOf(SEP) + SEP.length()));
+                    if (size > 0) {
+                        histogram.merge(Integer.highestOneBit(size), 1, Integer::sum);
+                    }
+                }
+            }
+        }
+        if (histogram.isEmpty()) {
+            throw new IllegalArgumentException(
+                    "No non-empty points-to sets of " + part + " in " + dumpFile);
+        }
+        return histogram.entrySet()
+                .stream()
+                .map(e -> e.getKey() + ":" + e.getValue())
+                .collect(Collectors.joining(","));
+    }
+
+    /**
+     * @return the number of elements of a set printed as "[e1, e2, ...]",
+     * where the elements may contain nested brackets, braces and
+     * parentheses, such as contexts and method signatures.
+     */
+    private static int countElements(String set) {
+        if (set.trim().equals("[]")) {
+            return 0;
+        }
+        int depth = 0;
+        int separators = 0;
+        for (int i = 0; i < set.length(); ++i) {
+            switch (set.charAt(i)) {
+                case '[', '{', '(' -> ++depth;
+                case ']', '}', ')' -> --depth;
+                case ',' -> {
+                    if (depth == 1) {
+                        ++separators;
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+        return separators + 1;
+    }
+
+    /**
+     * Prints the histogram of the dump file given by args[0], of the part
+     * given by args[1] (default "variables").
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: SizeDistribution <dump-file> [part]");
+            System.exit(1);
+        }
+        String part = args.length > 1 ? args[1] : "variables";
+        System.out.println(fromDump(Path.of(args[0]), part));
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.util.collection;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pascal.taie.benchmark.SizeDistribution;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the hybrid sets and maps ({@link Sets#newHybridSet()} and
+ * {@link Maps#newHybridMap()}) against the hash ones, by the operations
+ * of the data-flow facts (SetFact and MapFact) on them, i.e., copy,
+ * union (or update from another map), lookup and iteration.
+ * The keys have identity hash codes, like the variables and statements.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HybridCollectionBenchmark {
+
+    private static final int ELEMENTS = 10_000;
+
+    private static final int COLLECTIONS = 1_000;
+
+    @Param({"hybrid", "hash"})
+    public String kind;
+
+    @Param({SizeDistribution.PTA})
+    public String sizes;
+
+    private Set<Object>[] sets;
+
+    private Map<Object, Integer>[] maps;
+
+    private Object[] probes;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        Object[] elems = new Object[ELEMENTS];
+        for (int i = 0; i < ELEMENTS; ++i) {
+            elems[i] = new Object();
+        }
+        Random random = new Random(0);
+        int[] collectionSizes = SizeDistribution.parse(sizes)
+                .sample(random, COLLECTIONS);
+        sets = (Set<Object>[]) new Set<?>[COLLECTIONS];
+        maps = (Map<Object, Integer>[]) new Map<?, ?>[COLLECTIONS];
+        probes = new Object[COLLECTIONS];
+        for (int i = 0; i < COLLECTIONS; ++i) {
+            sets[i] = newSet();
+            maps[i] = newMap();
+            for (int j = 0; j < collectionSizes[i]; ++j) {
+                Object elem = elems[random.nextInt(ELEMENTS)];
+                sets[i].add(elem);
+                maps[i].put(elem, j);
+            }
+            probes[i] = elems[random.nextInt(ELEMENTS)];
+        }
+    }
+
+    private <E> Set<E> newSet() {
+        return kind.equals("hybrid") ? Sets.newHybridSet() : Sets.newSet();
+    }
+
+    private <K, V> Map<K, V> newMap() {
+        return kind.equals("hybrid") ? Maps.newHybridMap() : Maps.newMap();
+    }
+
+    /**
+     * Like SetFact.copy().
+     */
+    @Benchmark
+    public Set<?>[] setCopy() {
+        Set<?>[] result = new Set<?>[COLLECTIONS];
+        for (int i = 0; i < COLLECTIONS; ++i) {
+            Set<Object> copy = newSet();
+            copy.addAll(sets[i]);
+            result[i] = copy;
+        }
+        return result;
+    }
+
+    /**
+     * Like SetFact.unionWith().
+     */
+    @Benchmark
+    public int setUnion() {
+        int size = 0;
+        for (int i = 0; i < COLLECTIONS; ++i) {
+            Set<Object> union = newSet();
+            union.addAll(sets[i]);
+            union.addAll(sets[(i + 1) % COLLECTIONS]);
+            size += union.size();
+        }
+        return size;
+    }
+
+    @Benchmark
+    public int setContains() {
+        int count = 0;
+        for (int i = 0; i < COLLECTIONS; ++i) {
+            if (sets[i].contains(probes[i])) {
+                ++count;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int setIterate() {
+        int hash = 0;
+        for (Set<Object> set : sets) {
+            for (Object elem : set) {
+                hash += elem.hashCode();
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Like MapFact.copy().
+     */
+    @Benchmark
+    public Map<?, ?>[] mapCopy() {
+        Map<?, ?>[] result = new Map<?, ?>[COLLECTIONS];
+        for (int i = 0; i < COLLECTIONS; ++i) {
+            Map<Object, Integer> copy = newMap();
+            copy.putAll(maps[i]);
+            result[i] = copy;
+        }
+        return result;
+    }
+
+    /**
+     * Like MapFact.copyFrom(), which updates a copy by another map.
+     */
+    @Benchmark
+    public int mapCopyFrom() {
+        int changed = 0;
+        for (int i = 0; i < COLLECTIONS; ++i) {
+            Map<Object, Integer> copy = newMap();
+            copy.putAll(maps[i]);
+            for (Map.Entry<Object, Integer> e : maps[(i + 1) % COLLECTIONS].entrySet()) {
+                if (!e.getValue().equals(copy.put(e.getKey(), e.getValue()))) {
+                    ++changed;
+                }
+            }
+        }
+        return changed;
+    }
+
+    @Benchmark
+    public int mapGet() {
+        int count = 0;
+        for (int i = 0; i < COLLECTIONS; ++i) {
+            if (maps[i].get(probes[i]) != null) {
+                ++count;
+            }
+        }
+        return count;
+    }
+}
@@ -22,13 +22,46 @@
 
 package pascal.taie.analysis;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import pascal.taie.Main;
+import pascal.taie.World;
+import pascal.taie.analysis.graph.callgraph.CallGraph;
 import pascal.taie.analysis.misc.ClassDumper;
+import pascal.taie.analysis.pta.CachedPointerAnalysisResult;
+import pascal.taie.analysis.pta.PointerAnalysisResult;
+import pascal.taie.analysis.pta.core.cs.element.CSObj;
+import pascal.taie.analysis.pta.core.cs.element.Pointer;
+import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.analysis.pta.cs.CSPTA;
+import pascal.taie.analysis.pta.plugin.ResultSnapshot;
+import pascal.taie.config.AnalysisConfig;
+import pascal.taie.config.AnalysisOptions;
+import pascal.taie.config.ConfigManager;
+import pascal.taie.config.PlanConfig;
+import pascal.taie.ir.DefaultIR;
+import pascal.taie.ir.IR;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.ir.stmt.Nop;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.util.AnalysisException;
 
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
 
 /**
  * Static utility methods for testing.
@@ -52,6 +85,428 @@ public final class Tests {
         doTestPTA("cspta", dir, main, opts);
     }
 
+    /**
+     * Runs CSPTA on given test case, and then updates its result after
+     * the methods of changedClass are changed, which is compared with
+     * the expected result again.
+     */
+    public static void testIncrementalCSPTA(
+            String dir, String main, String changedClass, String... opts) {
+        List<String> incOpts = new ArrayList<>(List.of(opts));
+        incOpts.add("incremental:true");
+        doTestPTA(CSPTA.ID, dir, main, incOpts.toArray(new String[0]));
+        CSPTA cspta = makeCSPTA(List.of());
+        checkNumberOfEdges(cspta.analyze());
+        checkNumberOfEdges(cspta.update(Set.copyOf(World.get()
+                .getClassHierarchy()
+                .getClass(changedClass)
+                .getDeclaredMethods())));
+    }
+
+    /**
+     * Runs CSPTA on given test case, removes the static calls to callee
+     * from the main method and updates the result, which is compared with
+     * the result of solving the changed program from scratch. The removed
+     * calls must make some methods unreachable.
+     */
+    public static void testIncrementalCSPTARemovingCalls(
+            String dir, String main, String callee, String... opts) {
+        List<String> incOpts = new ArrayList<>(List.of(opts));
+        incOpts.add("incremental:true");
+        doTestPTA(CSPTA.ID, dir, main, incOpts.toArray(new String[0]));
+        try {
+            Path updatedFile = Files.createTempFile(main, ".txt");
+            Path expectedFile = Files.createTempFile(main, ".txt");
+            try {
+                CSPTA cspta = makeCSPTA(dumpTo(updatedFile));
+                PointerAnalysisResult analyzed = cspta.analyze();
+                checkNumberOfEdges(analyzed);
+                long before = analyzed.getCallGraph().getNumberOfMethods();
+                JMethod mainMethod = World.get().getMainMethod();
+                removeStaticCalls(mainMethod, callee);
+                PointerAnalysisResult updated = cspta.update(Set.of(mainMethod));
+                checkNumberOfEdges(updated);
+                List<String> updatedCalls = toStrings(updated.getCSCallGraph());
+                if (updated.getCallGraph().getNumberOfMethods() >= before) {
+                    throw new AnalysisException("No method becomes unreachable"
+                            + " after removing calls to " + callee);
+                }
+                PointerAnalysisResult expected =
+                        makeCSPTA(dumpTo(expectedFile)).analyze();
+                if (!updatedCalls.equals(toStrings(expected.getCSCallGraph()))) {
+                    throw new AnalysisException("Updated call graph of "
+                            + main + " differs from solving from scratch");
+                }
+                if (!Files.readAllLines(updatedFile)
+                        .equals(Files.readAllLines(expectedFile))) {
+                    throw new AnalysisException("Updated points-to sets of "
+                            + main + " differ from solving from scratch");
+                }
+            } finally {
+                Files.delete(updatedFile);
+                Files.delete(expectedFile);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Creates CSPTA with the configuration given to Main, as the analysis
+     * is run again to keep its solver, and given options overwritten.
+     */
+    private static CSPTA makeCSPTA(List<PlanConfig> overwritten) {
+        List<AnalysisConfig> configs = AnalysisConfig.parseConfigs(
+                Tests.class.getClassLoader()
+                        .getResourceAsStream("tai-e-analyses.yml"));
+        ConfigManager manager = new ConfigManager(configs);
+        manager.overwriteOptions(
+                PlanConfig.readConfigs(World.get().getOptions()));
+        manager.overwriteOptions(overwritten);
+        AnalysisConfig config = configs.stream()
+                .filter(c -> c.getId().equals(CSPTA.ID))
+                .findFirst()
+                .orElseThrow();
+        return new CSPTA(config);
+    }
+
+    private static List<PlanConfig> dumpTo(Path file) {
+        return List.of(new PlanConfig(CSPTA.ID, new AnalysisOptions(
+                Map.of("action", "dump", "file", file.toString()))));
+    }
+
+    /**
+     * Checks that the number of edges counted by the context-sensitive
+     * call graph of result is the number of its edges, as the count is
+     * maintained separately when edges are added and removed.
+     */
+    private static void checkNumberOfEdges(PointerAnalysisResult result) {
+        CallGraph<?, ?> callGraph = result.getCSCallGraph();
+        long edges = callGraph.edges().count();
+        if (callGraph.getNumberOfEdges() != edges) {
+            throw new AnalysisException("Call graph counts "
+                    + callGraph.getNumberOfEdges() + " edges, but has " + edges);
+        }
+    }
+
+    /**
+     * Replaces the static calls to callee in the IR of method by nops.
+     */
+    private static void removeStaticCalls(JMethod method, String callee) {
+        IR ir = method.getIR();
+        List<Stmt> stmts = ir.getStmts().stream().map(stmt -> {
+            if (stmt instanceof Invoke invoke && invoke.isStatic()
+                    && invoke.getMethodRef().getName().equals(callee)) {
+                Nop nop = new Nop();
+                nop.setIndex(stmt.getIndex());
+                nop.setLineNumber(stmt.getLineNumber());
+                return nop;
+            }
+            return stmt;
+        }).toList();
+        IR newIR = new DefaultIR(method, ir.getThis(), ir.getParams(),
+                new LinkedHashSet<>(ir.getReturnVars()), ir.getVars(),
+                stmts, ir.getExceptionEntries());
+        try {
+            Field field = JMethod.class.getDeclaredField("ir");
+            field.setAccessible(true);
+            field.set(method, newIR);
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @return the sorted reachable methods and call edges of callGraph.
+     */
+    private static List<String> toStrings(CallGraph<?, ?> callGraph) {
+        return Stream.concat(callGraph.reachableMethods(), callGraph.edges())
+                .map(Object::toString)
+                .sorted()
+                .toList();
+    }
+
+    /**
+     * Runs CSPTA on given test case, and then checks that the snapshot
+     * of its result answers the same as the result.
+     */
+    public static void testSnapshotCSPTA(String dir, String main, String... opts) {
+        doTestPTA(CSPTA.ID, dir, main, opts);
+        PointerAnalysisResult result = World.get().getResult(CSPTA.ID);
+        try {
+            Path file = Files.createTempFile(main, ".pta");
+            try {
+                ResultSnapshot.write(result, file);
+                checkSnapshot(result, ResultSnapshot.open(file));
+            } finally {
+                Files.delete(file);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Runs CSPTA on given test case, and then checks that the cached
+     * context-insensitive projections of its result are the same as
+     * the unions of the points-to sets under all contexts.
+     */
+    public static void testCIProjectionCSPTA(String dir, String main, String... opts) {
+        doTestPTA(CSPTA.ID, dir, main, opts);
+        CachedPointerAnalysisResult result = World.get().getResult(CSPTA.ID);
+        List<String> mismatches = new ArrayList<>();
+        result.getVars().forEach(v -> {
+            Set<Obj> expected = result.getCSVars()
+                    .stream()
+                    .filter(csVar -> csVar.getVar().equals(v))
+                    .flatMap(csVar -> csVar.getPointsToSet().objects())
+                    .map(CSObj::getObject)
+                    .collect(Collectors.toSet());
+            if (!expected.equals(result.getPointsToSet(v))) {
+                mismatches.add(v + ": " + expected + " != " + result.getPointsToSet(v));
+            }
+        });
+        result.getInstanceFields().forEach(f -> {
+            Obj base = f.getBase().getObject();
+            Set<Obj> expected = result.getInstanceFields()
+                    .stream()
+                    .filter(g -> g.getBase().getObject().equals(base)
+                            && g.getField().equals(f.getField()))
+                    .flatMap(g -> g.getPointsToSet().objects())
+                    .map(CSObj::getObject)
+                    .collect(Collectors.toSet());
+            Set<Obj> given = result.getPointsToSet(base, f.getField());
+            if (!expected.equals(given)) {
+                mismatches.add(base + "." + f.getField().getName() + ": "
+                        + expected + " != " + given);
+            }
+        });
+        if (!mismatches.isEmpty()) {
+            throw new AnalysisException("Mismatches of CI projection:\n"
+                    + String.join("\n", mismatches));
+        }
+    }
+
+    /**
+     * Runs CSPTA on given test case, and then dumps its result to a
+     * gzip file, which should be the same as the expected file,
+     * and be accepted by compare.
+     */
+    public static void testDumpCSPTA(String dir, String main, String... opts) {
+        try {
+            Path file = Files.createTempFile(main, ".txt.gz");
+            try {
+                List<String> dumpOpts = new ArrayList<>(List.of(opts));
+                dumpOpts.add("action:dump");
+                dumpOpts.add("file:" + file);
+                doTestPTA(CSPTA.ID, dir, main, dumpOpts.toArray(new String[0]));
+                String expected = getExpectedFile("src/test/resources/pta/" + dir, main, CSPTA.ID);
+                List<String> expectedLines = Files.readAllLines(Path.of(expected));
+                List<String> dumpedLines;
+                try (var in = new GZIPInputStream(Files.newInputStream(file))) {
+                    dumpedLines = new String(in.readAllBytes()).lines().toList();
+                }
+                if (!expectedLines.equals(dumpedLines)) {
+                    throw new AnalysisException("Dumped points-to sets of "
+                            + main + " differ from " + expected);
+                }
+                List<String> compareOpts = new ArrayList<>(List.of(opts));
+                compareOpts.add("action:compare");
+                compareOpts.add("file:" + file);
+                doTestPTA(CSPTA.ID, dir, main, compareOpts.toArray(new String[0]));
+            } finally {
+                Files.delete(file);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Runs CSPTA on given test case, dumps its result, and then compares
+     * the result with the dump where the points-to sets of some pointers
+     * are corrupted, which should report the first maxMismatches
+     * mismatches and the number of the others.
+     */
+    public static void testCorruptedDumpCSPTA(
+            String dir, String main, int maxMismatches, String... opts) {
+        try {
+            Path file = Files.createTempFile(main, ".txt");
+            try {
+                List<String> dumpOpts = new ArrayList<>(List.of(opts));
+                dumpOpts.add("action:dump");
+                dumpOpts.add("file:" + file);
+                doTestPTA(CSPTA.ID, dir, main, dumpOpts.toArray(new String[0]));
+                // corrupt the points-to sets of the first pointers
+                int corrupted = maxMismatches + 3;
+                List<String> lines = new ArrayList<>(Files.readAllLines(file));
+                for (int i = 0, n = 0; i < lines.size() && n < corrupted; ++i) {
+                    String line = lines.get(i);
+                    int sep = line.indexOf(" -> ");
+                    if (sep >= 0) {
+                        lines.set(i, line.substring(0, sep) + " -> [corrupted]");
+                        ++n;
+                    }
+                }
+                Files.write(file, lines);
+                List<String> compareOpts = new ArrayList<>(List.of(opts));
+                compareOpts.add("action:compare");
+                compareOpts.add("file:" + file);
+                compareOpts.add("max-mismatches:" + maxMismatches);
+                String message = null;
+                try {
+                    doTestPTA(CSPTA.ID, dir, main, compareOpts.toArray(new String[0]));
+                } catch (AnalysisException e) {
+                    message = e.getMessage();
+                }
+                if (message == null) {
+                    throw new AnalysisException("Corrupted dump of "
+                            + main + " is not reported");
+                }
+                long reported = message.lines()
+                        .filter(l -> l.contains("expected: [corrupted]"))
+                        .count();
+                String more = "... and " + (corrupted - maxMismatches) + " more";
+                if (reported != maxMismatches || !message.endsWith(more)) {
+                    throw new AnalysisException("Unexpected report of "
+                            + corrupted + " mismatches:\n" + message);
+                }
+            } finally {
+                Files.delete(file);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Runs CSPTA on given test case with a time budget which is exceeded
+     * at once, and checks that its result is the same as the result of
+     * context-insensitive analysis, and differs from the expected result
+     * of given (context-sensitive) options.
+     */
+    public static void testDegradedCSPTA(String dir, String main, String... opts) {
+        try {
+            Path degradedFile = Files.createTempFile(main, ".txt");
+            Path ciFile = Files.createTempFile(main, ".txt");
+            try {
+                List<String> budgetOpts = new ArrayList<>(List.of(opts));
+                Collections.addAll(budgetOpts, "time-budget:0",
+                        "action:dump", "file:" + degradedFile);
+                doTestPTA(CSPTA.ID, dir, main, budgetOpts.toArray(new String[0]));
+                PointerAnalysisResult result = World.get().getResult(CSPTA.ID);
+                if (result.getCSVars().stream()
+                        .anyMatch(v -> v.getContext().getLength() > 0)) {
+                    throw new AnalysisException("Contexts of " + main
+                            + " are not degraded after the budget is exceeded");
+                }
+                doTestPTA(CSPTA.ID, dir, main, "cs:ci",
+                        "action:dump", "file:" + ciFile);
+                List<String> degradedLines = Files.readAllLines(degradedFile);
+                if (!degradedLines.equals(Files.readAllLines(ciFile))) {
+                    throw new AnalysisException("Degraded points-to sets of "
+                            + main + " differ from context-insensitive ones");
+                }
+                String expected = getExpectedFile(
+                        "src/test/resources/pta/" + dir, main, CSPTA.ID);
+                if (degradedLines.equals(Files.readAllLines(Path.of(expected)))) {
+                    throw new AnalysisException("Context-insensitive points-to"
+                            + " sets of " + main + " are the same as " + expected);
+                }
+            } finally {
+                Files.delete(degradedFile);
+                Files.delete(ciFile);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Runs CSPTA on given test case with the solver metrics written to
+     * a JSON file, and checks that the file records the work of solving.
+     */
+    public static void testMetricsCSPTA(String dir, String main, String... opts) {
+        try {
+            Path file = Files.createTempFile(main, ".json");
+            try {
+                List<String> metricsOpts = new ArrayList<>(List.of(opts));
+                metricsOpts.add("metrics-file:" + file);
+                doTestPTA(CSPTA.ID, dir, main, metricsOpts.toArray(new String[0]));
+                JsonNode metrics = new ObjectMapper().readTree(file.toFile());
+                if (metrics.path("workListPops").asLong() <= 0
+                        || metrics.path("reachableMethods").asLong() <= 0
+                        || !metrics.path("stmtTimes").has("New")) {
+                    throw new AnalysisException("Unexpected metrics of "
+                            + main + ": " + metrics);
+                }
+            } finally {
+                Files.delete(file);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void checkSnapshot(PointerAnalysisResult result,
+                                      ResultSnapshot snapshot) {
+        Function<Pointer, List<String>> toStrings = p -> p.getPointsToSet()
+                .objects()
+                .map(o -> o.getContext() + ":" + o.getObject())
+                .sorted()
+                .toList();
+        List<String> mismatches = new ArrayList<>();
+        result.getVars().forEach(v -> compare(mismatches, v,
+                result.getPointsToSet(v).stream().map(Object::toString).toList(),
+                snapshot.getPointsToSet(ResultSnapshot.toString(v))));
+        result.getCSVars().forEach(v -> compare(mismatches, v, toStrings.apply(v),
+                snapshot.getPointsToSet(v.getContext().toString(),
+                        ResultSnapshot.toString(v.getVar()))));
+        result.getStaticFields().forEach(f -> compare(mismatches, f,
+                toStrings.apply(f),
+                snapshot.getStaticFieldPointsToSet(f.getField().toString())));
+        result.getInstanceFields().forEach(f -> compare(mismatches, f,
+                toStrings.apply(f),
+                snapshot.getInstanceFieldPointsToSet(
+                        f.getBase().getContext().toString(),
+                        f.getBase().getObject().toString(),
+                        f.getField().toString())));
+        result.getArrayIndexes().forEach(a -> compare(mismatches, a,
+                toStrings.apply(a),
+                snapshot.getArrayIndexPointsToSet(
+                        a.getArray().getContext().toString(),
+                        a.getArray().getObject().toString())));
+        CallGraph<Invoke, JMethod> callGraph = result.getCallGraph();
+        callGraph.reachableMethods().forEach(m -> {
+            compare(mismatches, m,
+                    callGraph.callSitesIn(m).map(Object::toString).toList(),
+                    snapshot.getCallSitesIn(m.toString()));
+            callGraph.callSitesIn(m).forEach(cs -> compare(mismatches, cs,
+                    callGraph.getCalleesOf(cs).stream().map(Object::toString).toList(),
+                    snapshot.getCalleesOf(cs.toString())));
+        });
+        if (callGraph.getNumberOfMethods() != snapshot.getReachableMethods().size()) {
+            mismatches.add("#reachable methods: " + callGraph.getNumberOfMethods()
+                    + " != " + snapshot.getReachableMethods().size());
+        }
+        if (!mismatches.isEmpty()) {
+            throw new AnalysisException("Mismatches of snapshot:\n"
+                    + String.join("\n", mismatches));
+        }
+    }
+
+    /**
+     * Compares points-to sets (or methods/call sites) of given element
+     * as sets, since the snapshot orders them by ids.
+     */
+    private static void compare(List<String> mismatches, Object element,
+                                List<String> expected, List<String> given) {
+        if (!Set.copyOf(expected).equals(Set.copyOf(given))
+                || expected.size() != given.size()) {
+            mismatches.add(element + ": " + expected + " != " + given);
+        }
+    }
+
     private static void doTestPTA(
             String id, String dir, String main, String... opts) {
         List<String> args = new ArrayList<>();
@@ -0,0 +1,202 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta;
+
+import pascal.taie.analysis.pta.core.cs.element.CSObj;
+import pascal.taie.analysis.pta.core.cs.element.Pointer;
+import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.util.collection.Maps;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * Context-insensitive projection of points-to sets, which maps each key
+ * (e.g., a variable) to the objects pointed to by the pointers of the key
+ * under any contexts.
+ * <p>
+ * The projection is computed once for all keys in parallel, and stored
+ * in immutable compressed sparse rows, i.e., the ids of the objects of
+ * all keys are sorted per key and concatenated into one array.
+ * The returned sets are views of the rows.
+ *
+ * @param <K> type of keys
+ */
+final class CIProjection<K> {
+
+    private final Numbering numbering;
+
+    private final Map<K, Integer> rows;
+
+    /**
+     * The ids of row i are in [offsets[i], offsets[i + 1]) of {@link #ids}.
+     */
+    private final int[] offsets;
+
+    private final int[] ids;
+
+    /**
+     * @param numbering  numbering of the objects
+     * @param keys       keys of the projection
+     * @param pointersOf function that returns the pointers of a key
+     */
+    CIProjection(Numbering numbering, Collection<K> keys,
+                 Function<K, ? extends Collection<? extends Pointer>> pointersOf) {
+        this.numbering = numbering;
+        List<K> keyList = List.copyOf(keys);
+        int[][] sets = new int[keyList.size()][];
+        IntStream.range(0, sets.length)
+                .parallel()
+                .forEach(i -> sets[i] = numbering.project(
+                        pointersOf.apply(keyList.get(i))));
+        rows = Maps.newMap(sets.length);
+        offsets = new int[sets.length + 1];
+        for (int i = 0; i < sets.length; ++i) {
+            rows.put(keyList.get(i), i);
+            offsets[i + 1] = offsets[i] + sets[i].length;
+        }
+        ids = new int[offsets[sets.length]];
+        for (int i = 0; i < sets.length; ++i) {
+            System.arraycopy(sets[i], 0, ids, offsets[i], sets[i].length);
+        }
+    }
+
+    /**
+     * @return immutable set of the objects of given key.
+     */
+    Set<Obj> get(K key) {
+        Integer row = rows.get(key);
+        return row != null ? new ObjSet(offsets[row], offsets[row + 1]) : Set.of();
+    }
+
+    /**
+     * View of the objects of a row.
+     */
+    private final class ObjSet extends AbstractSet<Obj> {
+
+        private final int from;
+
+        private final int to;
+
+        private ObjSet(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            Integer id = numbering.ids.get(o);
+            return id != null && Arrays.binarySearch(ids, from, to, id) >= 0;
+        }
+
+        @Override
+        public Iterator<Obj> iterator() {
+            return new Iterator<>() {
+
+                private int next = from;
+
+                @Override
+                public boolean hasNext() {
+                    return next < to;
+                }
+
+                @Override
+                public Obj next() {
+                    if (next >= to) {
+                        throw new NoSuchElementException();
+                    }
+                    return numbering.objs[ids[next++]];
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+    }
+
+    /**
+     * Numbering of the objects, which is shared by the projections
+     * of a pointer analysis result.
+     */
+    static final class Numbering {
+
+        private final Obj[] objs;
+
+        private final Map<Obj, Integer> ids;
+
+        /**
+         * Maps index of each CSObj (i.e., {@link CSObj#getIndex()})
+         * to the id of its object.
+         */
+        private final int[] csObjIds;
+
+        Numbering(Collection<CSObj> csObjs) {
+            ids = Maps.newMap();
+            csObjIds = new int[csObjs.stream()
+                    .mapToInt(CSObj::getIndex)
+                    .max()
+                    .orElse(-1) + 1];
+            for (CSObj csObj : csObjs) {
+                csObjIds[csObj.getIndex()] = ids.computeIfAbsent(
+                        csObj.getObject(), o -> ids.size());
+            }
+            objs = new Obj[ids.size()];
+            ids.forEach((obj, id) -> objs[id] = obj);
+        }
+
+        /**
+         * @return sorted ids of the objects pointed to by given pointers.
+         */
+        private int[] project(Collection<? extends Pointer> pointers) {
+            int size = 0;
+            for (Pointer pointer : pointers) {
+                size += pointer.getPointsToSet().size();
+            }
+            int[] result = new int[size];
+            int i = 0;
+            for (Pointer pointer : pointers) {
+                for (CSObj csObj : pointer.getPointsToSet()) {
+                    result[i++] = csObjIds[csObj.getIndex()];
+                }
+            }
+            Arrays.sort(result);
+            int n = 0;
+            for (int j = 0; j < size; ++j) {
+                if (n == 0 || result[j] != result[n - 1]) {
+                    result[n++] = result[j];
+                }
+            }
+            return n == size ? result : Arrays.copyOf(result, n);
+        }
+    }
+}
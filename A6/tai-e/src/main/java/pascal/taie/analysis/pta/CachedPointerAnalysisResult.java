@@ -0,0 +1,113 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta;
+
+import pascal.taie.analysis.graph.callgraph.CallGraph;
+import pascal.taie.analysis.pta.core.cs.element.CSCallSite;
+import pascal.taie.analysis.pta.core.cs.element.CSManager;
+import pascal.taie.analysis.pta.core.cs.element.CSMethod;
+import pascal.taie.analysis.pta.core.cs.element.InstanceField;
+import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.language.classes.JField;
+import pascal.taie.util.collection.Pair;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Pointer analysis result which caches the context-insensitive
+ * projections of the points-to sets of variables and instance fields.
+ * <p>
+ * Each projection is computed for all variables (or fields) in parallel
+ * at its first query, instead of computing the union of the points-to sets
+ * under all contexts for each query, thus the clients which query
+ * the points-to sets many times (e.g., the statistics of the result,
+ * and alias-aware analyses) do not repeat the work.
+ * The sets returned by the projections are immutable.
+ */
+public class CachedPointerAnalysisResult extends PointerAnalysisResultImpl {
+
+    private final CSManager csManager;
+
+    private CIProjection.Numbering numbering;
+
+    private volatile CIProjection<Var> varPointsTo;
+
+    private volatile CIProjection<Pair<Obj, JField>> fieldPointsTo;
+
+    public CachedPointerAnalysisResult(CSManager csManager,
+                                       CallGraph<CSCallSite, CSMethod> csCallGraph) {
+        super(csManager, csCallGraph);
+        this.csManager = csManager;
+    }
+
+    @Override
+    public Set<Obj> getPointsToSet(Var var) {
+        CIProjection<Var> projection = varPointsTo;
+        if (projection == null) {
+            synchronized (this) {
+                projection = varPointsTo;
+                if (projection == null) {
+                    projection = new CIProjection<>(getNumbering(),
+                            csManager.getVars(), csManager::getCSVarsOf);
+                    varPointsTo = projection;
+                }
+            }
+        }
+        return projection.get(var);
+    }
+
+    /**
+     * @return the objects pointed to by given field of given object
+     * under any heap contexts of the object.
+     */
+    public Set<Obj> getPointsToSet(Obj base, JField field) {
+        CIProjection<Pair<Obj, JField>> projection = fieldPointsTo;
+        if (projection == null) {
+            synchronized (this) {
+                projection = fieldPointsTo;
+                if (projection == null) {
+                    Map<Pair<Obj, JField>, List<InstanceField>> fields =
+                            csManager.getInstanceFields()
+                                    .stream()
+                                    .collect(Collectors.groupingBy(f -> new Pair<>(
+                                            f.getBase().getObject(), f.getField())));
+                    projection = new CIProjection<>(getNumbering(),
+                            fields.keySet(), fields::get);
+                    fieldPointsTo = projection;
+                }
+            }
+        }
+        return projection.get(new Pair<>(base, field));
+    }
+
+    private CIProjection.Numbering getNumbering() {
+        if (numbering == null) {
+            numbering = new CIProjection.Numbering(csManager.getObjects());
+        }
+        return numbering;
+    }
+}
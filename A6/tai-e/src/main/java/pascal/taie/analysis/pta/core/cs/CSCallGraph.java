@@ -31,11 +31,19 @@ import pascal.taie.analysis.pta.core.cs.element.CSMethod;
 import pascal.taie.ir.stmt.Invoke;
 import pascal.taie.ir.stmt.Stmt;
 import pascal.taie.language.classes.JMethod;
+import pascal.taie.util.collection.Maps;
 import pascal.taie.util.collection.Sets;
 import pascal.taie.util.collection.Views;
 
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Stream;
 
 /**
@@ -45,6 +53,17 @@ public class CSCallGraph extends AbstractCallGraph<CSCallSite, CSMethod> {
 
     private final CSManager csManager;
 
+    /**
+     * Map from each reachable method to its call sites, which are
+     * collected once when the method becomes reachable.
+     */
+    private final Map<CSMethod, CSCallSite[]> callSites = Maps.newMap();
+
+    /**
+     * Number of edges in this call graph.
+     */
+    private final AtomicInteger edgeCount = new AtomicInteger();
+
     public CSCallGraph(CSManager csManager) {
         this.csManager = csManager;
     }
@@ -56,6 +75,45 @@ public class CSCallGraph extends AbstractCallGraph<CSCallSite, CSMethod> {
         entryMethods.add(entryMethod);
     }
 
+    /**
+     * Removes a reachable method from this call graph, together with
+     * the call edges to it and from its call sites, so that it can
+     * become reachable again, e.g., after its IR is changed.
+     */
+    public void removeReachableMethod(CSMethod csMethod) {
+        if (reachableMethods.remove(csMethod)) {
+            for (CSCallSite csCallSite : callSites.remove(csMethod)) {
+                for (Edge<CSCallSite, CSMethod> edge : List.copyOf(csCallSite.getEdges())) {
+                    edge.getCallee().removeEdge(edge);
+                    edgeCount.decrementAndGet();
+                }
+                csCallSite.clearEdges();
+            }
+        }
+        for (Edge<CSCallSite, CSMethod> edge : List.copyOf(csMethod.getEdges())) {
+            edge.getCallSite().removeEdge(edge);
+            csMethod.removeEdge(edge);
+            edgeCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * Removes the call edges from the call sites of a reachable method,
+     * which remains reachable.
+     */
+    public void removeEdgesOutOf(CSMethod csMethod) {
+        CSCallSite[] csCallSites = callSites.get(csMethod);
+        if (csCallSites != null) {
+            for (CSCallSite csCallSite : csCallSites) {
+                for (Edge<CSCallSite, CSMethod> edge : List.copyOf(csCallSite.getEdges())) {
+                    csCallSite.removeEdge(edge);
+                    edge.getCallee().removeEdge(edge);
+                    edgeCount.decrementAndGet();
+                }
+            }
+        }
+    }
+
     /**
      * Adds a reachable method to this call graph.
      *
@@ -64,8 +122,11 @@ public class CSCallGraph extends AbstractCallGraph<CSCallSite, CSMethod> {
      */
     public boolean addReachableMethod(CSMethod csMethod) {
         if (reachableMethods.add(csMethod)) {
-            callSitesIn(csMethod).forEach(csCallSite ->
-                    csCallSite.setContainer(csMethod));
+            CSCallSite[] csCallSites = collectCallSites(csMethod);
+            for (CSCallSite csCallSite : csCallSites) {
+                csCallSite.setContainer(csMethod);
+            }
+            callSites.put(csMethod, csCallSites);
             return true;
         } else {
             return false;
@@ -73,19 +134,27 @@ public class CSCallGraph extends AbstractCallGraph<CSCallSite, CSMethod> {
     }
 
     /**
-     * Adds a new call graph edge to this call graph.
+     * Adds a new call graph edge to this call graph. The edges can be
+     * added by multiple threads, as the edges of each call site and
+     * callee are updated under the lock of the call site and callee.
      *
      * @param edge the call edge to be added
      * @return true if the call graph changed as a result of the call,
      * otherwise false.
      */
     public boolean addEdge(Edge<CSCallSite, CSMethod> edge) {
-        if (edge.getCallSite().addEdge(edge)) {
-            edge.getCallee().addEdge(edge);
-            return true;
-        } else {
-            return false;
+        CSCallSite csCallSite = edge.getCallSite();
+        synchronized (csCallSite) {
+            if (!csCallSite.addEdge(edge)) {
+                return false;
+            }
+        }
+        CSMethod callee = edge.getCallee();
+        synchronized (callee) {
+            callee.addEdge(edge);
         }
+        edgeCount.incrementAndGet();
+        return true;
     }
 
     @Override
@@ -105,16 +174,26 @@ public class CSCallGraph extends AbstractCallGraph<CSCallSite, CSMethod> {
 
     @Override
     public Set<CSCallSite> getCallSitesIn(CSMethod csMethod) {
+        CSCallSite[] csCallSites = callSites.get(csMethod);
+        if (csCallSites != null) {
+            return new CallSiteSet(csMethod, csCallSites);
+        }
+        // the method is not reachable, so its call sites are not cached
+        Set<CSCallSite> result = Sets.newHybridOrderedSet();
+        result.addAll(Arrays.asList(collectCallSites(csMethod)));
+        return Collections.unmodifiableSet(result);
+    }
+
+    private CSCallSite[] collectCallSites(CSMethod csMethod) {
         JMethod method = csMethod.getMethod();
         Context context = csMethod.getContext();
-        Set<CSCallSite> callSites = Sets.newHybridOrderedSet();
+        List<CSCallSite> csCallSites = new ArrayList<>();
         for (Stmt s : method.getIR()) {
             if (s instanceof Invoke) {
-                CSCallSite csCallSite = csManager.getCSCallSite(context, (Invoke) s);
-                callSites.add(csCallSite);
+                csCallSites.add(csManager.getCSCallSite(context, (Invoke) s));
             }
         }
-        return Collections.unmodifiableSet(callSites);
+        return csCallSites.toArray(new CSCallSite[0]);
     }
 
     @Override
@@ -130,10 +209,15 @@ public class CSCallGraph extends AbstractCallGraph<CSCallSite, CSMethod> {
     @Override
     public Stream<Edge<CSCallSite, CSMethod>> edges() {
         return reachableMethods.stream()
-                .flatMap(this::callSitesIn)
+                .flatMap(csMethod -> Arrays.stream(callSites.get(csMethod)))
                 .flatMap(this::edgesOutOf);
     }
 
+    @Override
+    public int getNumberOfEdges() {
+        return edgeCount.get();
+    }
+
     @Override
     public boolean isRelevant(Stmt stmt) {
         throw new UnsupportedOperationException();
@@ -143,4 +227,38 @@ public class CSCallGraph extends AbstractCallGraph<CSCallSite, CSMethod> {
     public Set<CSMethod> getResult(Stmt stmt) {
         throw new UnsupportedOperationException();
     }
+
+    /**
+     * Unmodifiable set of the call sites in a reachable method,
+     * backed by the call-site array of the method.
+     */
+    private static class CallSiteSet extends AbstractSet<CSCallSite> {
+
+        private final CSMethod container;
+
+        private final CSCallSite[] csCallSites;
+
+        private CallSiteSet(CSMethod container, CSCallSite[] csCallSites) {
+            this.container = container;
+            this.csCallSites = csCallSites;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            // the container of each call site is set when its method
+            // becomes reachable, so it identifies the call sites in a method
+            return o instanceof CSCallSite csCallSite
+                    && csCallSite.getContainer() == container;
+        }
+
+        @Override
+        public Iterator<CSCallSite> iterator() {
+            return Arrays.asList(csCallSites).iterator();
+        }
+
+        @Override
+        public int size() {
+            return csCallSites.length;
+        }
+    }
 }
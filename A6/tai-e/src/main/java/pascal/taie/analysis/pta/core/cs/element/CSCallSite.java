@@ -76,6 +76,19 @@ public class CSCallSite extends AbstractCSElement {
         return Collections.unmodifiableSet(edges);
     }
 
+    public void removeEdge(Edge<CSCallSite, CSMethod> edge) {
+        edges.remove(edge);
+    }
+
+    /**
+     * Removes the call edges and container of this call site,
+     * after its container becomes unreachable.
+     */
+    public void clearEdges() {
+        edges.clear();
+        container = null;
+    }
+
     @Override
     public String toString() {
         return context + ":" + callSite;
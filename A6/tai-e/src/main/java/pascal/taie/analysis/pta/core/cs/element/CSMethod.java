@@ -68,6 +68,10 @@ public class CSMethod extends AbstractCSElement {
         return Collections.unmodifiableSet(edges);
     }
 
+    public void removeEdge(Edge<CSCallSite, CSMethod> edge) {
+        edges.remove(edge);
+    }
+
     public <R> R getResult(String id, Supplier<R> supplier) {
         return resultHolder.getResult(id, supplier);
     }
@@ -0,0 +1,257 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.core.cs.element;
+
+import pascal.taie.analysis.pta.core.cs.context.Context;
+import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.analysis.pta.pts.PointsToSetFactory;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.language.classes.JField;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.util.collection.Maps;
+
+import java.util.AbstractCollection;
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Manages context-sensitive elements and pointers by concurrent maps,
+ * so that the elements can be created by multiple threads, e.g., by
+ * the parallel pointer analysis solver. Each element is created exactly
+ * once, as the elements are created by atomic
+ * {@link ConcurrentMap#computeIfAbsent}.
+ */
+public class ConcurrentCSManager implements CSManager {
+
+    private static final int INITIAL_OBJECT_CAPACITY = 1024;
+
+    private final ConcurrentMap<Var, ConcurrentMap<Context, CSVar>> vars =
+            Maps.newConcurrentMap();
+
+    private final ConcurrentMap<Obj, ConcurrentMap<Context, CSObj>> objs =
+            Maps.newConcurrentMap();
+
+    /**
+     * Context-sensitive objects, indexed by {@link CSObj#getIndex()}.
+     * The array is replaced by a larger copy when it is full, and
+     * the objects are added under the lock of this manager.
+     */
+    private volatile AtomicReferenceArray<CSObj> objArray =
+            new AtomicReferenceArray<>(INITIAL_OBJECT_CAPACITY);
+
+    private volatile int objCount;
+
+    private final ConcurrentMap<Invoke, ConcurrentMap<Context, CSCallSite>> callSites =
+            Maps.newConcurrentMap();
+
+    private final ConcurrentMap<JMethod, ConcurrentMap<Context, CSMethod>> methods =
+            Maps.newConcurrentMap();
+
+    private final ConcurrentMap<JField, StaticField> staticFields =
+            Maps.newConcurrentMap();
+
+    private final ConcurrentMap<CSObj, ConcurrentMap<JField, InstanceField>> instanceFields =
+            Maps.newConcurrentMap();
+
+    private final ConcurrentMap<CSObj, ArrayIndex> arrayIndexes =
+            Maps.newConcurrentMap();
+
+    private final PointsToSetFactory ptsFactory;
+
+    public ConcurrentCSManager() {
+        this(null);
+    }
+
+    /**
+     * @param ptsImpl the implementation of the points-to sets of the
+     *                pointers, as accepted by {@link PointsToSetFactory}.
+     */
+    public ConcurrentCSManager(String ptsImpl) {
+        ptsFactory = new PointsToSetFactory(ptsImpl, this);
+    }
+
+    @Override
+    public CSVar getCSVar(Context context, Var var) {
+        return getInner(vars, var).computeIfAbsent(context, c ->
+                initializePointsToSet(new CSVar(var, c)));
+    }
+
+    @Override
+    public CSObj getCSObj(Context heapContext, Obj obj) {
+        return getInner(objs, obj).computeIfAbsent(heapContext, c ->
+                newCSObj(obj, c));
+    }
+
+    private synchronized CSObj newCSObj(Obj obj, Context context) {
+        int index = objCount;
+        AtomicReferenceArray<CSObj> array = objArray;
+        if (index == array.length()) {
+            AtomicReferenceArray<CSObj> larger =
+                    new AtomicReferenceArray<>(array.length() * 2);
+            for (int i = 0; i < index; ++i) {
+                larger.set(i, array.get(i));
+            }
+            objArray = array = larger;
+        }
+        CSObj csObj = new CSObj(obj, context, index);
+        array.set(index, csObj);
+        objCount = index + 1;
+        return csObj;
+    }
+
+    @Override
+    public CSObj getObject(int index) {
+        return objArray.get(index);
+    }
+
+    @Override
+    public CSCallSite getCSCallSite(Context context, Invoke callSite) {
+        return getInner(callSites, callSite).computeIfAbsent(context, c ->
+                new CSCallSite(callSite, c));
+    }
+
+    @Override
+    public CSMethod getCSMethod(Context context, JMethod method) {
+        return getInner(methods, method).computeIfAbsent(context, c ->
+                new CSMethod(method, c));
+    }
+
+    @Override
+    public StaticField getStaticField(JField field) {
+        return staticFields.computeIfAbsent(field, f ->
+                initializePointsToSet(new StaticField(f)));
+    }
+
+    @Override
+    public InstanceField getInstanceField(CSObj base, JField field) {
+        return getInner(instanceFields, base).computeIfAbsent(field, f ->
+                initializePointsToSet(new InstanceField(base, f)));
+    }
+
+    @Override
+    public ArrayIndex getArrayIndex(CSObj array) {
+        return arrayIndexes.computeIfAbsent(array, a ->
+                initializePointsToSet(new ArrayIndex(a)));
+    }
+
+    @Override
+    public Collection<Var> getVars() {
+        return Collections.unmodifiableSet(vars.keySet());
+    }
+
+    @Override
+    public Collection<CSVar> getCSVars() {
+        return new NestedValues<>(vars);
+    }
+
+    @Override
+    public Collection<CSVar> getCSVarsOf(Var var) {
+        var csVars = vars.get(var);
+        return csVars != null ?
+                Collections.unmodifiableCollection(csVars.values()) : Set.of();
+    }
+
+    @Override
+    public Collection<CSObj> getObjects() {
+        return new AbstractList<>() {
+            @Override
+            public CSObj get(int index) {
+                return getObject(index);
+            }
+
+            @Override
+            public int size() {
+                return objCount;
+            }
+        };
+    }
+
+    @Override
+    public Collection<StaticField> getStaticFields() {
+        return Collections.unmodifiableCollection(staticFields.values());
+    }
+
+    @Override
+    public Collection<InstanceField> getInstanceFields() {
+        return new NestedValues<>(instanceFields);
+    }
+
+    @Override
+    public Collection<ArrayIndex> getArrayIndexes() {
+        return Collections.unmodifiableCollection(arrayIndexes.values());
+    }
+
+    private static <K1, K2, V> ConcurrentMap<K2, V> getInner(
+            ConcurrentMap<K1, ConcurrentMap<K2, V>> map, K1 key) {
+        ConcurrentMap<K2, V> inner = map.get(key);
+        return inner != null ? inner :
+                map.computeIfAbsent(key, k -> Maps.newConcurrentMap());
+    }
+
+    @Override
+    public PointsToSetFactory getPointsToSetFactory() {
+        return ptsFactory;
+    }
+
+    private <P extends Pointer> P initializePointsToSet(P pointer) {
+        pointer.setPointsToSet(ptsFactory.make());
+        return pointer;
+    }
+
+    /**
+     * Unmodifiable view of the values of the inner maps of a nested map.
+     */
+    private static class NestedValues<V> extends AbstractCollection<V> {
+
+        private final Map<?, ? extends Map<?, V>> map;
+
+        private NestedValues(Map<?, ? extends Map<?, V>> map) {
+            this.map = map;
+        }
+
+        @Override
+        public Iterator<V> iterator() {
+            return map.values()
+                    .stream()
+                    .flatMap(inner -> inner.values().stream())
+                    .iterator();
+        }
+
+        @Override
+        public int size() {
+            int size = 0;
+            for (Map<?, V> inner : map.values()) {
+                size += inner.size();
+            }
+            return size;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.core.cs.selector;
+
+import pascal.taie.analysis.pta.core.cs.context.Context;
+import pascal.taie.analysis.pta.core.cs.element.CSCallSite;
+import pascal.taie.analysis.pta.core.cs.element.CSMethod;
+import pascal.taie.analysis.pta.core.cs.element.CSObj;
+import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.language.classes.JMethod;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Context selector with time and memory budgets. It selects contexts by
+ * the primary selector until a budget is exceeded, and then degrades to
+ * the (cheaper) fallback selector for all subsequent selections, i.e.,
+ * the contexts of newly reached methods and the heap contexts of newly
+ * created objects. The pointer analysis stays sound after degradation,
+ * as any context selection yields a sound result.
+ * <p>
+ * The selector is safe for concurrent use if its primary and fallback
+ * selectors are, as the budgets are only sampled: the memory usage
+ * may be checked a bit later than every given number of selections.
+ */
+public class BudgetedSelector implements ContextSelector {
+
+    /**
+     * Number of selections between two checks of memory usage,
+     * as querying the heap is more expensive than reading the clock.
+     */
+    private static final int MEMORY_CHECK_INTERVAL = 1024;
+
+    private final ContextSelector primary;
+
+    private final ContextSelector fallback;
+
+    /**
+     * Deadline in {@link System#nanoTime()}, or {@link Long#MAX_VALUE}
+     * if there is no time budget.
+     */
+    private final long deadline;
+
+    /**
+     * Maximum used heap in bytes, or {@link Long#MAX_VALUE}
+     * if there is no memory budget.
+     */
+    private final long memoryBudget;
+
+    private int selectionCount;
+
+    private volatile boolean degraded;
+
+    /**
+     * Methods whose contexts were selected by the fallback selector.
+     */
+    private final Set<JMethod> degradedMethods = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param primary      the selector used within budgets.
+     * @param fallback     the selector used after a budget is exceeded.
+     * @param deadline     deadline in {@link System#nanoTime()},
+     *                     or {@link Long#MAX_VALUE} for no time budget.
+     * @param memoryBudget maximum used heap in bytes,
+     *                     or {@link Long#MAX_VALUE} for no memory budget.
+     */
+    public BudgetedSelector(ContextSelector primary, ContextSelector fallback,
+                            long deadline, long memoryBudget) {
+        this.primary = primary;
+        this.fallback = fallback;
+        this.deadline = deadline;
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * @return true if a budget has been exceeded.
+     */
+    public boolean isDegraded() {
+        return degraded;
+    }
+
+    /**
+     * @return the methods whose contexts were selected by the fallback
+     * selector after degradation.
+     */
+    public Set<JMethod> getDegradedMethods() {
+        return Collections.unmodifiableSet(degradedMethods);
+    }
+
+    @Override
+    public Context getEmptyContext() {
+        return primary.getEmptyContext();
+    }
+
+    @Override
+    public Context selectContext(CSCallSite callSite, JMethod callee) {
+        return getCalleeSelector(callee).selectContext(callSite, callee);
+    }
+
+    @Override
+    public Context selectContext(CSCallSite callSite, CSObj recv, JMethod callee) {
+        return getCalleeSelector(callee).selectContext(callSite, recv, callee);
+    }
+
+    @Override
+    public Context selectHeapContext(CSMethod method, Obj obj) {
+        return getSelector().selectHeapContext(method, obj);
+    }
+
+    /**
+     * @return the selector for the contexts of callee, which is recorded
+     * as a degraded method if the fallback selector is returned.
+     */
+    private ContextSelector getCalleeSelector(JMethod callee) {
+        ContextSelector selector = getSelector();
+        if (selector == fallback) {
+            degradedMethods.add(callee);
+        }
+        return selector;
+    }
+
+    private ContextSelector getSelector() {
+        if (!degraded) {
+            degraded = isOverBudget();
+        }
+        return degraded ? fallback : primary;
+    }
+
+    private boolean isOverBudget() {
+        if (deadline != Long.MAX_VALUE && System.nanoTime() - deadline > 0) {
+            return true;
+        }
+        if (memoryBudget != Long.MAX_VALUE
+                && ++selectionCount % MEMORY_CHECK_INTERVAL == 0) {
+            Runtime runtime = Runtime.getRuntime();
+            return runtime.totalMemory() - runtime.freeMemory() > memoryBudget;
+        }
+        return false;
+    }
+}
@@ -23,7 +23,7 @@
 package pascal.taie.analysis.pta.core.cs.selector;
 
 import pascal.taie.analysis.pta.core.cs.context.Context;
-import pascal.taie.analysis.pta.core.cs.context.ListContext;
+import pascal.taie.analysis.pta.core.cs.context.TrieContext;
 import pascal.taie.analysis.pta.core.cs.element.CSCallSite;
 import pascal.taie.analysis.pta.core.cs.element.CSMethod;
 import pascal.taie.analysis.pta.core.cs.element.CSObj;
@@ -38,16 +38,16 @@ public class _2CallSelector implements ContextSelector {
 
     @Override
     public Context getEmptyContext() {
-        return ListContext.make();
+        return TrieContext.make();
     }
 
     @Override
     public Context selectContext(CSCallSite callSite, JMethod callee) {
         int cxLen = callSite.getContext().getLength();
         if (cxLen > 0) {
-            return ListContext.make(callSite.getContext().getElementAt(cxLen - 1), callSite.getCallSite());
+            return TrieContext.make(callSite.getContext().getElementAt(cxLen - 1), callSite.getCallSite());
         }
-        return ListContext.make(callSite.getCallSite());
+        return TrieContext.make(callSite.getCallSite());
     }
 
     @Override
@@ -59,7 +59,7 @@ public class _2CallSelector implements ContextSelector {
     public Context selectHeapContext(CSMethod method, Obj obj) {
         int cxLen = method.getContext().getLength();
         if (cxLen > 0) {
-            return ListContext.make(method.getContext().getElementAt(cxLen - 1));
+            return TrieContext.make(method.getContext().getElementAt(cxLen - 1));
         }
         return getEmptyContext();
     }
@@ -23,7 +23,7 @@
 package pascal.taie.analysis.pta.core.cs.selector;
 
 import pascal.taie.analysis.pta.core.cs.context.Context;
-import pascal.taie.analysis.pta.core.cs.context.ListContext;
+import pascal.taie.analysis.pta.core.cs.context.TrieContext;
 import pascal.taie.analysis.pta.core.cs.element.CSCallSite;
 import pascal.taie.analysis.pta.core.cs.element.CSMethod;
 import pascal.taie.analysis.pta.core.cs.element.CSObj;
@@ -37,7 +37,7 @@ public class _2ObjSelector implements ContextSelector {
 
     @Override
     public Context getEmptyContext() {
-        return ListContext.make();
+        return TrieContext.make();
     }
 
     @Override
@@ -45,10 +45,10 @@ public class _2ObjSelector implements ContextSelector {
         int length = callSite.getContext().getLength();
         switch (length) {
             case 1 -> {
-                return ListContext.make(callSite.getContext().getElementAt(0));
+                return TrieContext.make(callSite.getContext().getElementAt(0));
             }
             case 2 -> {
-                return ListContext.make(callSite.getContext().getElementAt(0), callSite.getContext().getElementAt(1));
+                return TrieContext.make(callSite.getContext().getElementAt(0), callSite.getContext().getElementAt(1));
             }
             default -> {
                 return getEmptyContext();
@@ -60,16 +60,16 @@ public class _2ObjSelector implements ContextSelector {
     public Context selectContext(CSCallSite callSite, CSObj recv, JMethod callee) {
         int length = recv.getContext().getLength();
         if (length > 0) {
-            return ListContext.make(recv.getContext().getElementAt(length - 1), recv.getObject());
+            return TrieContext.make(recv.getContext().getElementAt(length - 1), recv.getObject());
         }
-        return ListContext.make(recv.getObject());
+        return TrieContext.make(recv.getObject());
     }
 
     @Override
     public Context selectHeapContext(CSMethod method, Obj obj) {
         int length = method.getContext().getLength();
         if (length > 0) {
-            return ListContext.make(method.getContext().getElementAt(length - 1));
+            return TrieContext.make(method.getContext().getElementAt(length - 1));
         }
         return getEmptyContext();
     }
@@ -23,7 +23,7 @@
 package pascal.taie.analysis.pta.core.cs.selector;
 
 import pascal.taie.analysis.pta.core.cs.context.Context;
-import pascal.taie.analysis.pta.core.cs.context.ListContext;
+import pascal.taie.analysis.pta.core.cs.context.TrieContext;
 import pascal.taie.analysis.pta.core.cs.element.CSCallSite;
 import pascal.taie.analysis.pta.core.cs.element.CSMethod;
 import pascal.taie.analysis.pta.core.cs.element.CSObj;
@@ -38,7 +38,7 @@ public class _2TypeSelector implements ContextSelector {
 
     @Override
     public Context getEmptyContext() {
-        return ListContext.make();
+        return TrieContext.make();
     }
 
     @Override
@@ -46,10 +46,10 @@ public class _2TypeSelector implements ContextSelector {
         int length = callSite.getContext().getLength();
         switch (length) {
             case 1 -> {
-                return ListContext.make(callSite.getContext().getElementAt(0));
+                return TrieContext.make(callSite.getContext().getElementAt(0));
             }
             case 2 -> {
-                return ListContext.make(callSite.getContext().getElementAt(0), callSite.getContext().getElementAt(1));
+                return TrieContext.make(callSite.getContext().getElementAt(0), callSite.getContext().getElementAt(1));
             }
             default -> {
                 return getEmptyContext();
@@ -61,14 +61,14 @@ public class _2TypeSelector implements ContextSelector {
     public Context selectContext(CSCallSite callSite, CSObj recv, JMethod callee) {
         var cxLen = recv.getContext().getLength();
         if (cxLen > 0) {
-            return ListContext.make(recv.getContext().getElementAt(cxLen - 1), recv.getObject().getContainerType());
+            return TrieContext.make(recv.getContext().getElementAt(cxLen - 1), recv.getObject().getContainerType());
         }
-        return ListContext.make(recv.getObject().getContainerType());
+        return TrieContext.make(recv.getObject().getContainerType());
     }
 
     @Override
     public Context selectHeapContext(CSMethod method, Obj obj) {
         var cxLen = method.getContext().getLength();
-        return cxLen > 0 ? ListContext.make(method.getContext().getElementAt(cxLen - 1)) : getEmptyContext();
+        return cxLen > 0 ? TrieContext.make(method.getContext().getElementAt(cxLen - 1)) : getEmptyContext();
     }
 }
@@ -22,19 +22,31 @@
 
 package pascal.taie.analysis.pta.cs;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import pascal.taie.analysis.ProgramAnalysis;
 import pascal.taie.analysis.pta.PointerAnalysisResult;
+import pascal.taie.analysis.pta.core.cs.selector.BudgetedSelector;
 import pascal.taie.analysis.pta.core.cs.selector.CISelector;
 import pascal.taie.analysis.pta.core.cs.selector.ContextSelector;
+import pascal.taie.analysis.pta.core.cs.selector.SelectiveSelector;
+import pascal.taie.analysis.pta.core.cs.selector._2ObjSelector;
 import pascal.taie.analysis.pta.core.heap.AllocationSiteBasedModel;
 import pascal.taie.analysis.pta.plugin.ResultProcessor;
+import pascal.taie.analysis.pta.toolkit.scaler.Scaler;
+import pascal.taie.analysis.pta.toolkit.zipper.Zipper;
 import pascal.taie.config.AnalysisConfig;
 import pascal.taie.config.AnalysisOptions;
 import pascal.taie.config.ConfigException;
+import pascal.taie.language.classes.JMethod;
 import pascal.taie.util.Strings;
+import pascal.taie.util.collection.Maps;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Context-sensitive pointer analysis.
@@ -43,6 +55,27 @@ public class CSPTA extends ProgramAnalysis {
 
     public static final String ID = "cspta";
 
+    private static final Logger logger = LogManager.getLogger(CSPTA.class);
+
+    /**
+     * Options which the pre-analysis of Scaler and Zipper shares with
+     * the main analysis, i.e., those of the heap model and the type
+     * filter, which decide the objects it reports, and the points-to
+     * set implementation. The other options, e.g., the metrics output,
+     * incremental updates and the solver configuration, only concern
+     * the main analysis, and are left to their defaults.
+     */
+    private static final List<String> PRE_ANALYSIS_OPTIONS = List.of(
+            "merge-string-constants", "merge-string-objects",
+            "merge-string-builders", "merge-exception-objects",
+            "type-filter", "pts-impl");
+
+    /**
+     * The solver kept for incremental updates, if option "incremental"
+     * is true.
+     */
+    private Solver solver;
+
     public CSPTA(AnalysisConfig config) {
         super(config);
     }
@@ -50,15 +83,142 @@ public class CSPTA extends ProgramAnalysis {
     @Override
     public PointerAnalysisResult analyze() {
         AnalysisOptions options = getOptions();
+        long start = System.nanoTime();
+        String cs = options.getString("cs");
+        ContextSelector selector = switch (cs) {
+            case "scaler" -> getScalerSelector(options);
+            case "zipper" -> getZipperSelector(options);
+            default -> getContextSelector(cs);
+        };
+        BudgetedSelector budgeted = getBudgetedSelector(
+                options, selector, start);
+        if (budgeted != null) {
+            selector = budgeted;
+        }
         Solver solver = new Solver(options,
-                new AllocationSiteBasedModel(options),
-                getContextSelector(options.getString("cs")));
+                new AllocationSiteBasedModel(options), selector);
         solver.solve();
+        if (budgeted != null && budgeted.isDegraded()) {
+            logger.info("Budget exceeded, contexts of {} methods were" +
+                    " selected by \"{}\"", budgeted.getDegradedMethods().size(),
+                    getDegradedVariant(options));
+            budgeted.getDegradedMethods().forEach(m ->
+                    logger.debug("Degraded method: {}", m));
+        }
+        if (Boolean.TRUE.equals(options.get("incremental"))) {
+            this.solver = solver;
+        }
         PointerAnalysisResult result = solver.getResult();
         ResultProcessor.process(options, result);
         return result;
     }
 
+    /**
+     * Updates the result of the last {@link #analyze()} after given methods
+     * are changed, by re-propagating only the points-to sets which may be
+     * affected by the changes. Requires option "incremental" to be true.
+     */
+    public PointerAnalysisResult update(Set<JMethod> changedMethods) {
+        if (solver == null) {
+            throw new IllegalStateException(
+                    "No solver state, analyze() with incremental:true first");
+        }
+        solver.update(changedMethods);
+        PointerAnalysisResult result = solver.getResult();
+        ResultProcessor.process(getOptions(), result);
+        return result;
+    }
+
+    /**
+     * Runs a context-insensitive pre-analysis, and lets Scaler select
+     * the context-sensitivity variant of each method within the total
+     * scalability threshold given by option "scaler-tst".
+     */
+    private static ContextSelector getScalerSelector(AnalysisOptions options) {
+        PointerAnalysisResult preResult = runPreAnalysis(options);
+        Object tst = options.get("scaler-tst");
+        Scaler scaler = tst != null ?
+                new Scaler(preResult, ((Number) tst).longValue()) :
+                new Scaler(preResult);
+        Map<String, ContextSelector> variants = Maps.newMap();
+        Map<JMethod, ContextSelector> selectors = Maps.newMap();
+        scaler.selectContext().forEach((method, variant) ->
+                selectors.put(method, variants.computeIfAbsent(
+                        variant, CSPTA::getContextSelector)));
+        return new SelectiveSelector(selectors, new CISelector());
+    }
+
+    /**
+     * Runs a context-insensitive pre-analysis, and lets Zipper select
+     * the precision-critical methods, which are analyzed with 2-object
+     * sensitivity, while the other methods are context-insensitive.
+     */
+    private static ContextSelector getZipperSelector(AnalysisOptions options) {
+        Zipper zipper = new Zipper(runPreAnalysis(options));
+        ContextSelector selector = new _2ObjSelector();
+        Map<JMethod, ContextSelector> selectors = Maps.newMap();
+        zipper.selectPrecisionCriticalMethods()
+                .forEach(method -> selectors.put(method, selector));
+        return new SelectiveSelector(selectors, new CISelector());
+    }
+
+    /**
+     * Wraps the selector with the budgets given by options "time-budget"
+     * (in seconds, counted from the start of the analysis including any
+     * pre-analysis) and "memory-budget" (in MB of used heap). Once a budget
+     * is exceeded, the remaining contexts are selected by the variant given
+     * by option "degrade-cs" (default "ci").
+     *
+     * @return the budgeted selector, or null if no budget is given.
+     */
+    private static BudgetedSelector getBudgetedSelector(
+            AnalysisOptions options, ContextSelector selector, long start) {
+        Object timeBudget = options.get("time-budget");
+        Object memoryBudget = options.get("memory-budget");
+        if (timeBudget == null && memoryBudget == null) {
+            return null;
+        }
+        long deadline = Long.MAX_VALUE;
+        if (timeBudget != null) {
+            long seconds = ((Number) timeBudget).longValue();
+            if (seconds < 0) {
+                throw new ConfigException("Invalid time-budget: " + seconds);
+            }
+            deadline = start + seconds * 1_000_000_000L;
+        }
+        long memory = Long.MAX_VALUE;
+        if (memoryBudget != null) {
+            long mb = ((Number) memoryBudget).longValue();
+            if (mb < 0) {
+                throw new ConfigException("Invalid memory-budget: " + mb);
+            }
+            memory = mb * 1024 * 1024;
+        }
+        return new BudgetedSelector(selector,
+                getContextSelector(getDegradedVariant(options)),
+                deadline, memory);
+    }
+
+    private static String getDegradedVariant(AnalysisOptions options) {
+        String variant = options.getString("degrade-cs");
+        return variant != null ? variant : "ci";
+    }
+
+    private static PointerAnalysisResult runPreAnalysis(AnalysisOptions options) {
+        Map<String, Object> preOptions = Maps.newMap();
+        for (String key : PRE_ANALYSIS_OPTIONS) {
+            Object value = options.get(key);
+            if (value != null) {
+                preOptions.put(key, value);
+            }
+        }
+        AnalysisOptions reduced = new AnalysisOptions(preOptions);
+        Solver preSolver = new Solver(reduced,
+                new AllocationSiteBasedModel(reduced), new CISelector());
+        preSolver.solve();
+        return preSolver.getResult();
+    }
+
     private static ContextSelector getContextSelector(String cs) {
         if (cs.equals("ci")) {
             return new CISelector();
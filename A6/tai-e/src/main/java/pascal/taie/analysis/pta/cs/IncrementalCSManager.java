@@ -0,0 +1,224 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.cs;
+
+import pascal.taie.analysis.pta.core.cs.context.Context;
+import pascal.taie.analysis.pta.core.cs.element.ArrayIndex;
+import pascal.taie.analysis.pta.core.cs.element.CSCallSite;
+import pascal.taie.analysis.pta.core.cs.element.CSManager;
+import pascal.taie.analysis.pta.core.cs.element.CSMethod;
+import pascal.taie.analysis.pta.core.cs.element.CSObj;
+import pascal.taie.analysis.pta.core.cs.element.CSVar;
+import pascal.taie.analysis.pta.core.cs.element.InstanceField;
+import pascal.taie.analysis.pta.core.cs.element.StaticField;
+import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.analysis.pta.pts.PointsToSetFactory;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.language.classes.JField;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.util.collection.Sets;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Context-sensitive element manager used by the incremental updates
+ * of {@link Solver}. It delegates the lookups to the manager of the
+ * solver, and
+ * <ul>
+ *     <li>records the pointers and objects looked up while the solver
+ *     is re-solving after changes of methods, and</li>
+ *     <li>hides the stale pointers and objects from the enumerations,
+ *     i.e., the ones which were created before an update, but which
+ *     solving the changed program from scratch would not create,
+ *     e.g., the variables of the methods which become unreachable.</li>
+ * </ul>
+ * As managers cannot remove elements, the stale elements are kept in
+ * the underlying manager, and become visible again if they are looked
+ * up by a later update.
+ */
+class IncrementalCSManager implements CSManager {
+
+    private final CSManager csManager;
+
+    /**
+     * Pointers and objects looked up since the last update began.
+     */
+    private final Set<Object> touched;
+
+    private final Set<Object> stale = Sets.newSet();
+
+    /**
+     * @param concurrent whether the elements can be looked up
+     *                   by multiple threads.
+     */
+    IncrementalCSManager(CSManager csManager, boolean concurrent) {
+        this.csManager = csManager;
+        this.touched = concurrent ? ConcurrentHashMap.newKeySet() : Sets.newSet();
+    }
+
+    /**
+     * Updates the stale elements after re-solving. Each candidate is
+     * stale unless it has been looked up while re-solving, or it is
+     * a pointer which is kept alive by the given predicate.
+     *
+     * @param candidates the elements which may have become stale,
+     *                   i.e., the ones which depend on the changes.
+     * @param isKept     whether a pointer is still part of the result
+     *                   without being looked up, e.g., it has PFG edges
+     *                   which are not removed by the update.
+     */
+    void updateStale(Collection<?> candidates, Predicate<Object> isKept) {
+        stale.removeAll(touched);
+        for (Object e : candidates) {
+            if (!touched.contains(e) && !isKept.test(e)) {
+                stale.add(e);
+            }
+        }
+        touched.clear();
+    }
+
+    private boolean isLive(Object e) {
+        if (stale.contains(e)) {
+            return false;
+        }
+        if (e instanceof InstanceField field) {
+            return !stale.contains(field.getBase());
+        }
+        if (e instanceof ArrayIndex arrayIndex) {
+            return !stale.contains(arrayIndex.getArray());
+        }
+        return true;
+    }
+
+    private <E> Collection<E> filter(Collection<E> elements) {
+        if (stale.isEmpty()) {
+            return elements;
+        }
+        return elements.stream().filter(this::isLive).toList();
+    }
+
+    @Override
+    public CSVar getCSVar(Context context, Var var) {
+        return touch(csManager.getCSVar(context, var));
+    }
+
+    @Override
+    public CSObj getCSObj(Context heapContext, Obj obj) {
+        return touch(csManager.getCSObj(heapContext, obj));
+    }
+
+    @Override
+    public CSObj getObject(int index) {
+        return csManager.getObject(index);
+    }
+
+    @Override
+    public CSCallSite getCSCallSite(Context context, Invoke callSite) {
+        return csManager.getCSCallSite(context, callSite);
+    }
+
+    @Override
+    public CSMethod getCSMethod(Context context, JMethod method) {
+        return csManager.getCSMethod(context, method);
+    }
+
+    @Override
+    public StaticField getStaticField(JField field) {
+        return touch(csManager.getStaticField(field));
+    }
+
+    @Override
+    public InstanceField getInstanceField(CSObj base, JField field) {
+        return touch(csManager.getInstanceField(base, field));
+    }
+
+    @Override
+    public int getFieldSlot(JField field) {
+        return csManager.getFieldSlot(field);
+    }
+
+    @Override
+    public InstanceField getInstanceField(CSObj base, JField field, int slot) {
+        return touch(csManager.getInstanceField(base, field, slot));
+    }
+
+    @Override
+    public ArrayIndex getArrayIndex(CSObj array) {
+        return touch(csManager.getArrayIndex(array));
+    }
+
+    private <E> E touch(E element) {
+        touched.add(element);
+        return element;
+    }
+
+    @Override
+    public Collection<Var> getVars() {
+        if (stale.isEmpty()) {
+            return csManager.getVars();
+        }
+        return csManager.getVars()
+                .stream()
+                .filter(var -> !getCSVarsOf(var).isEmpty())
+                .toList();
+    }
+
+    @Override
+    public Collection<CSVar> getCSVarsOf(Var var) {
+        return filter(csManager.getCSVarsOf(var));
+    }
+
+    @Override
+    public Collection<CSVar> getCSVars() {
+        return filter(csManager.getCSVars());
+    }
+
+    @Override
+    public Collection<CSObj> getObjects() {
+        return filter(csManager.getObjects());
+    }
+
+    @Override
+    public Collection<StaticField> getStaticFields() {
+        return filter(csManager.getStaticFields());
+    }
+
+    @Override
+    public Collection<InstanceField> getInstanceFields() {
+        return filter(csManager.getInstanceFields());
+    }
+
+    @Override
+    public Collection<ArrayIndex> getArrayIndexes() {
+        return filter(csManager.getArrayIndexes());
+    }
+
+    @Override
+    public PointsToSetFactory getPointsToSetFactory() {
+        return csManager.getPointsToSetFactory();
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.cs;
+
+import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.language.classes.JField;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.language.type.Type;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Context-independent summary of the statements which are processed
+ * when a method becomes reachable, i.e., the allocation sites, the PFG
+ * edges between local variables, the static field accesses and the
+ * static call sites of the method. The template of a method is built
+ * once, and instantiated for every context in which the method is
+ * reachable, so that the statements are not re-visited per context.
+ * <p>
+ * The template also keeps the instance field accesses of each variable
+ * with their resolved fields and slots (see
+ * {@link pascal.taie.analysis.pta.core.cs.element.CSManager#getFieldSlot}),
+ * which are processed when the variable points to new objects, so that
+ * the fields are not resolved per object.
+ */
+class MethodTemplate {
+
+    private static final InstanceFieldAccess[] NO_ACCESSES = {};
+
+    private final List<Allocation> allocations = new ArrayList<>();
+
+    private final List<VarEdge> varEdges = new ArrayList<>();
+
+    private final List<StaticFieldAccess> staticLoads = new ArrayList<>();
+
+    private final List<StaticFieldAccess> staticStores = new ArrayList<>();
+
+    private final List<StaticCall> staticCalls = new ArrayList<>();
+
+    /**
+     * Loads "x = base.f" of each base variable, indexed by
+     * {@link Var#getIndex()}, null for the variables without loads.
+     */
+    private final InstanceFieldAccess[][] instanceLoads;
+
+    /**
+     * Stores "base.f = x" of each base variable, indexed by
+     * {@link Var#getIndex()}, null for the variables without stores.
+     */
+    private final InstanceFieldAccess[][] instanceStores;
+
+    /**
+     * @param varCount number of variables in the method.
+     */
+    MethodTemplate(int varCount) {
+        instanceLoads = new InstanceFieldAccess[varCount][];
+        instanceStores = new InstanceFieldAccess[varCount][];
+    }
+
+    void addAllocation(Var var, Obj obj) {
+        allocations.add(new Allocation(var, obj));
+    }
+
+    void addVarEdge(Var source, Var target, @Nullable Type filter) {
+        varEdges.add(new VarEdge(source, target, filter));
+    }
+
+    void addStaticLoad(Var var, JField field) {
+        staticLoads.add(new StaticFieldAccess(var, field));
+    }
+
+    void addStaticStore(Var var, JField field) {
+        staticStores.add(new StaticFieldAccess(var, field));
+    }
+
+    void addStaticCall(Invoke callSite, JMethod callee) {
+        staticCalls.add(new StaticCall(callSite, callee));
+    }
+
+    void addInstanceLoad(Var base, Var var, JField field, int slot) {
+        add(instanceLoads, base, new InstanceFieldAccess(var, field, slot));
+    }
+
+    void addInstanceStore(Var base, Var var, JField field, int slot) {
+        add(instanceStores, base, new InstanceFieldAccess(var, field, slot));
+    }
+
+    private static void add(InstanceFieldAccess[][] accesses, Var base,
+                            InstanceFieldAccess access) {
+        InstanceFieldAccess[] old = accesses[base.getIndex()];
+        if (old == null) {
+            accesses[base.getIndex()] = new InstanceFieldAccess[]{access};
+        } else {
+            InstanceFieldAccess[] grown = Arrays.copyOf(old, old.length + 1);
+            grown[old.length] = access;
+            accesses[base.getIndex()] = grown;
+        }
+    }
+
+    List<Allocation> getAllocations() {
+        return allocations;
+    }
+
+    List<VarEdge> getVarEdges() {
+        return varEdges;
+    }
+
+    /**
+     * @return the loads "x = T.f", where var is x.
+     */
+    List<StaticFieldAccess> getStaticLoads() {
+        return staticLoads;
+    }
+
+    /**
+     * @return the stores "T.f = x", where var is x.
+     */
+    List<StaticFieldAccess> getStaticStores() {
+        return staticStores;
+    }
+
+    List<StaticCall> getStaticCalls() {
+        return staticCalls;
+    }
+
+    /**
+     * @return the loads "x = base.f", where var is x.
+     */
+    InstanceFieldAccess[] getInstanceLoads(Var base) {
+        InstanceFieldAccess[] loads = instanceLoads[base.getIndex()];
+        return loads != null ? loads : NO_ACCESSES;
+    }
+
+    /**
+     * @return the stores "base.f = x", where var is x.
+     */
+    InstanceFieldAccess[] getInstanceStores(Var base) {
+        InstanceFieldAccess[] stores = instanceStores[base.getIndex()];
+        return stores != null ? stores : NO_ACCESSES;
+    }
+
+    /**
+     * Allocation site "var = new T".
+     */
+    static class Allocation {
+
+        final Var var;
+
+        final Obj obj;
+
+        private Allocation(Var var, Obj obj) {
+            this.var = var;
+            this.obj = obj;
+        }
+    }
+
+    /**
+     * PFG edge "source -> target" with an optional type filter.
+     */
+    static class VarEdge {
+
+        final Var source;
+
+        final Var target;
+
+        @Nullable
+        final Type filter;
+
+        private VarEdge(Var source, Var target, @Nullable Type filter) {
+            this.source = source;
+            this.target = target;
+            this.filter = filter;
+        }
+    }
+
+    static class StaticFieldAccess {
+
+        final Var var;
+
+        final JField field;
+
+        private StaticFieldAccess(Var var, JField field) {
+            this.var = var;
+            this.field = field;
+        }
+    }
+
+    /**
+     * Instance field access "x = base.f" or "base.f = x" with the
+     * resolved field f and its slot, where var is x.
+     */
+    static class InstanceFieldAccess {
+
+        final Var var;
+
+        final JField field;
+
+        final int slot;
+
+        private InstanceFieldAccess(Var var, JField field, int slot) {
+            this.var = var;
+            this.field = field;
+            this.slot = slot;
+        }
+    }
+
+    /**
+     * Static call site with its resolved callee.
+     */
+    static class StaticCall {
+
+        final Invoke callSite;
+
+        final JMethod callee;
+
+        private StaticCall(Invoke callSite, JMethod callee) {
+            this.callSite = callSite;
+            this.callee = callee;
+        }
+    }
+}
@@ -23,20 +23,117 @@
 package pascal.taie.analysis.pta.cs;
 
 import pascal.taie.analysis.pta.core.cs.element.Pointer;
+import pascal.taie.language.type.Type;
+import pascal.taie.util.collection.MapMapTwoKeyMap;
+import pascal.taie.util.collection.MapSetMultiMap;
 import pascal.taie.util.collection.Maps;
 import pascal.taie.util.collection.MultiMap;
+import pascal.taie.util.collection.Sets;
+import pascal.taie.util.collection.TwoKeyMap;
+import pascal.taie.util.graph.Graph;
+import pascal.taie.util.graph.SCC;
 
+import javax.annotation.Nullable;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Represents pointer flow graph in context-sensitive pointer analysis.
+ * <p>
+ * The pointers in a cycle of PFG always have the same points-to set
+ * at fixpoint, so they can be merged into one node (see
+ * {@link #mergeNodes(List)}). The merged pointers are represented by
+ * their representative, and the edges added to or queried on a merged
+ * pointer are redirected to its representative.
+ * <p>
+ * An edge may have type filters, i.e., only the objects whose types
+ * are subtypes of (any of) the filters flow along the edge. As the
+ * pointers connected by filtered edges may point to different objects,
+ * such edges are ignored by cycle detection.
+ * <p>
+ * In concurrent mode, the edges can be added and queried by multiple
+ * threads: the adjacency sets and filter maps are concurrent, each edge
+ * is added under the lock of (the stripe of) its source, and the filters
+ * of an edge are replaced instead of updated in place. Merging nodes
+ * is not thread-safe in either mode.
  */
-class PointerFlowGraph {
+class PointerFlowGraph implements Graph<Pointer> {
+
+    /**
+     * Number of locks guarding the edges in concurrent mode.
+     */
+    private static final int LOCK_STRIPES = 64;
+
+    /**
+     * Set of nodes, i.e., the pointers which have edges and
+     * are not merged into other pointers.
+     */
+    private final Set<Pointer> nodes;
 
     /**
      * Map from a pointer (node) to its successors in PFG.
      */
-    private final MultiMap<Pointer, Pointer> successors = Maps.newMultiMap();
+    private final MultiMap<Pointer, Pointer> successors;
+
+    /**
+     * Map from a pointer (node) to its predecessors in PFG.
+     */
+    private final MultiMap<Pointer, Pointer> predecessors;
+
+    /**
+     * Map from a merged pointer to its representative.
+     */
+    private final Map<Pointer, Pointer> representatives = Maps.newMap();
+
+    /**
+     * Map from a representative to the pointers merged into it.
+     */
+    private final MultiMap<Pointer, Pointer> mergedPointers = Maps.newMultiMap();
+
+    /**
+     * Map from (source, target) to the type filters of the edge.
+     * The edges without type filters are absent in this map.
+     */
+    private final TwoKeyMap<Pointer, Pointer, Set<Type>> filters;
+
+    /**
+     * Locks of the edges, indexed by the hash codes of the sources,
+     * or null if this PFG is not in concurrent mode.
+     */
+    @Nullable
+    private final Object[] locks;
+
+    PointerFlowGraph() {
+        this(false);
+    }
+
+    /**
+     * @param concurrent whether the edges can be added by multiple threads.
+     */
+    PointerFlowGraph(boolean concurrent) {
+        if (concurrent) {
+            nodes = ConcurrentHashMap.newKeySet();
+            successors = new MapSetMultiMap<>(
+                    Maps.newConcurrentMap(), ConcurrentHashMap::newKeySet);
+            predecessors = new MapSetMultiMap<>(
+                    Maps.newConcurrentMap(), ConcurrentHashMap::newKeySet);
+            filters = new MapMapTwoKeyMap<>(
+                    Maps.newConcurrentMap(), Maps::newConcurrentMap);
+            locks = new Object[LOCK_STRIPES];
+            for (int i = 0; i < locks.length; ++i) {
+                locks[i] = new Object();
+            }
+        } else {
+            nodes = Sets.newSet();
+            successors = Maps.newMultiMap();
+            predecessors = Maps.newMultiMap();
+            filters = Maps.newTwoKeyMap();
+            locks = null;
+        }
+    }
 
     /**
      * Adds an edge (source -> target) to this PFG.
@@ -45,13 +142,237 @@ class PointerFlowGraph {
      * otherwise false.
      */
     boolean addEdge(Pointer source, Pointer target) {
-        return successors.put(source, target);
+        return addEdge(source, target, null);
+    }
+
+    /**
+     * Adds an edge (source -> target) with a type filter to this PFG.
+     * If filter is null, all objects flow along the edge.
+     *
+     * @return true if this PFG changed as a result of the call, i.e.,
+     * the edge is new or more objects can flow along it, otherwise false.
+     */
+    boolean addEdge(Pointer source, Pointer target, @Nullable Type filter) {
+        source = getRepresentative(source);
+        target = getRepresentative(target);
+        if (source == target) {
+            // the edge is inside a merged cycle
+            return false;
+        }
+        Set<Type> edgeFilters = filter == null ? null : Set.of(filter);
+        if (locks == null) {
+            return putEdge(source, target, edgeFilters);
+        }
+        synchronized (locks[(source.hashCode() & Integer.MAX_VALUE) % locks.length]) {
+            return putEdge(source, target, edgeFilters);
+        }
+    }
+
+    /**
+     * Adds an edge between two nodes, or merges given filters into
+     * the filters of the existing edge. The filters of an edge are
+     * never modified in place, so that they can be read without locks.
+     */
+    private boolean putEdge(Pointer source, Pointer target,
+                            @Nullable Set<Type> edgeFilters) {
+        if (!successors.contains(source, target)) {
+            // the filters are put before the edge, as the successors
+            // may be read concurrently in concurrent mode
+            if (edgeFilters != null) {
+                filters.put(source, target, Sets.newHybridSet(edgeFilters));
+            }
+            successors.put(source, target);
+            predecessors.put(target, source);
+            nodes.add(source);
+            nodes.add(target);
+            return true;
+        }
+        Set<Type> existing = filters.get(source, target);
+        if (existing == null) {
+            // the existing edge has no filters
+            return false;
+        }
+        if (edgeFilters == null) {
+            filters.remove(source, target);
+            return true;
+        }
+        if (existing.containsAll(edgeFilters)) {
+            return false;
+        }
+        Set<Type> relaxed = Sets.newHybridSet(existing);
+        relaxed.addAll(edgeFilters);
+        filters.put(source, target, relaxed);
+        return true;
+    }
+
+    /**
+     * Removes a node and its edges from this PFG. This method is not
+     * thread-safe, and the node should not have been merged.
+     */
+    void removeNode(Pointer pointer) {
+        Set<Pointer> adjacent = Sets.newHybridSet();
+        for (Pointer succ : successors.get(pointer)) {
+            predecessors.remove(succ, pointer);
+            filters.remove(pointer, succ);
+            adjacent.add(succ);
+        }
+        successors.removeAll(pointer);
+        for (Pointer pred : predecessors.get(pointer)) {
+            successors.remove(pred, pointer);
+            filters.remove(pred, pointer);
+            adjacent.add(pred);
+        }
+        predecessors.removeAll(pointer);
+        nodes.remove(pointer);
+        // the adjacent pointers without other edges are no longer nodes
+        for (Pointer p : adjacent) {
+            if (successors.get(p).isEmpty() && predecessors.get(p).isEmpty()) {
+                nodes.remove(p);
+            }
+        }
+    }
+
+    /**
+     * @return the type filters of edge (source -> target),
+     * or null if the edge has no filters.
+     */
+    @Nullable
+    Set<Type> getFilters(Pointer source, Pointer target) {
+        return filters.get(getRepresentative(source), getRepresentative(target));
     }
 
     /**
      * @return successors of given pointer in the PFG.
      */
-    Set<Pointer> getSuccsOf(Pointer pointer) {
-        return successors.get(pointer);
+    @Override
+    public Set<Pointer> getSuccsOf(Pointer pointer) {
+        return successors.get(getRepresentative(pointer));
+    }
+
+    @Override
+    public Set<Pointer> getPredsOf(Pointer pointer) {
+        return predecessors.get(getRepresentative(pointer));
+    }
+
+    @Override
+    public boolean hasNode(Pointer pointer) {
+        return nodes.contains(pointer);
+    }
+
+    @Override
+    public boolean hasEdge(Pointer source, Pointer target) {
+        return successors.contains(source, target);
+    }
+
+    @Override
+    public Set<Pointer> getNodes() {
+        return Collections.unmodifiableSet(nodes);
+    }
+
+    /**
+     * @return the representative of given pointer, or the pointer itself
+     * if it has not been merged into other pointers.
+     */
+    Pointer getRepresentative(Pointer pointer) {
+        Pointer rep = representatives.get(pointer);
+        return rep != null ? rep : pointer;
+    }
+
+    /**
+     * @return the pointers merged into given representative
+     * (excluding the representative itself).
+     */
+    Set<Pointer> getMergedPointers(Pointer rep) {
+        return mergedPointers.get(rep);
+    }
+
+    /**
+     * @return the cycles in this PFG. Each cycle is given as a list of
+     * nodes that are strongly connected to each other.
+     */
+    List<List<Pointer>> getCycles() {
+        return new SCC<>(new UnfilteredGraph()).getTrueComponents();
+    }
+
+    /**
+     * Merges the given nodes into the first one of them (the representative).
+     * The edges of the other nodes are moved to the representative.
+     */
+    void mergeNodes(List<Pointer> component) {
+        Pointer rep = component.get(0);
+        for (Pointer node : component.subList(1, component.size())) {
+            for (Pointer succ : List.copyOf(successors.get(node))) {
+                Set<Type> edgeFilters = filters.remove(node, succ);
+                predecessors.remove(succ, node);
+                if (succ != rep) {
+                    putEdge(rep, succ, edgeFilters);
+                }
+            }
+            successors.removeAll(node);
+            for (Pointer pred : List.copyOf(predecessors.get(node))) {
+                Set<Type> edgeFilters = filters.remove(pred, node);
+                successors.remove(pred, node);
+                if (pred != rep) {
+                    putEdge(pred, rep, edgeFilters);
+                }
+            }
+            predecessors.removeAll(node);
+            nodes.remove(node);
+            representatives.put(node, rep);
+            mergedPointers.put(rep, node);
+            for (Pointer merged : mergedPointers.get(node)) {
+                representatives.put(merged, rep);
+                mergedPointers.put(rep, merged);
+            }
+            mergedPointers.removeAll(node);
+        }
+    }
+
+    /**
+     * View of this PFG without the filtered edges.
+     */
+    private class UnfilteredGraph implements Graph<Pointer> {
+
+        @Override
+        public boolean hasNode(Pointer pointer) {
+            return nodes.contains(pointer);
+        }
+
+        @Override
+        public boolean hasEdge(Pointer source, Pointer target) {
+            return successors.contains(source, target)
+                    && !filters.containsKey(source, target);
+        }
+
+        @Override
+        public Set<Pointer> getPredsOf(Pointer pointer) {
+            Set<Pointer> preds = Sets.newHybridSet();
+            for (Pointer pred : predecessors.get(pointer)) {
+                if (!filters.containsKey(pred, pointer)) {
+                    preds.add(pred);
+                }
+            }
+            return preds;
+        }
+
+        @Override
+        public Set<Pointer> getSuccsOf(Pointer pointer) {
+            Map<Pointer, Set<Type>> filtered = filters.get(pointer);
+            if (filtered == null || filtered.isEmpty()) {
+                return successors.get(pointer);
+            }
+            Set<Pointer> succs = Sets.newHybridSet();
+            for (Pointer succ : successors.get(pointer)) {
+                if (!filtered.containsKey(succ)) {
+                    succs.add(succ);
+                }
+            }
+            return succs;
+        }
+
+        @Override
+        public Set<Pointer> getNodes() {
+            return Collections.unmodifiableSet(nodes);
+        }
     }
 }
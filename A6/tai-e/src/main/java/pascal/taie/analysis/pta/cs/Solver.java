@@ -25,11 +25,11 @@ package pascal.taie.analysis.pta.cs;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import pascal.taie.World;
-import pascal.taie.analysis.graph.callgraph.CallGraphs;
 import pascal.taie.analysis.graph.callgraph.CallKind;
+import pascal.taie.analysis.graph.callgraph.DispatchCache;
 import pascal.taie.analysis.graph.callgraph.Edge;
+import pascal.taie.analysis.pta.CachedPointerAnalysisResult;
 import pascal.taie.analysis.pta.PointerAnalysisResult;
-import pascal.taie.analysis.pta.PointerAnalysisResultImpl;
 import pascal.taie.analysis.pta.core.cs.CSCallGraph;
 import pascal.taie.analysis.pta.core.cs.context.Context;
 import pascal.taie.analysis.pta.core.cs.element.*;
@@ -39,8 +39,11 @@ import pascal.taie.analysis.pta.core.heap.Obj;
 import pascal.taie.analysis.pta.pts.PointsToSet;
 import pascal.taie.analysis.pta.pts.PointsToSetFactory;
 import pascal.taie.config.AnalysisOptions;
+import pascal.taie.config.ConfigException;
+import pascal.taie.ir.exp.InstanceFieldAccess;
 import pascal.taie.ir.exp.InvokeExp;
 import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.Cast;
 import pascal.taie.ir.stmt.Copy;
 import pascal.taie.ir.stmt.Invoke;
 import pascal.taie.ir.stmt.LoadArray;
@@ -49,14 +52,46 @@ import pascal.taie.ir.stmt.New;
 import pascal.taie.ir.stmt.StmtVisitor;
 import pascal.taie.ir.stmt.StoreArray;
 import pascal.taie.ir.stmt.StoreField;
+import pascal.taie.language.classes.ClassNames;
 import pascal.taie.language.classes.JField;
 import pascal.taie.language.classes.JMethod;
 import pascal.taie.language.type.Type;
+import pascal.taie.language.type.TypeSystem;
+import pascal.taie.util.collection.MapMapTwoKeyMap;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.Pair;
+import pascal.taie.util.collection.Sets;
+import pascal.taie.util.collection.TwoKeyMap;
+import pascal.taie.util.graph.MergedNode;
+import pascal.taie.util.graph.MergedSCCGraph;
+import pascal.taie.util.graph.TopoSorter;
+
+import javax.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
 
 class Solver {
 
     private static final Logger logger = LogManager.getLogger(Solver.class);
 
+    /**
+     * Minimum number of new PFG edges before re-ranking the pointers.
+     * The pointers are re-ranked when the new edges exceed both this
+     * number and half of the pointers ranked last time, so the cost of
+     * ranking is amortized over the growth of PFG.
+     */
+    private static final int MIN_RERANK_EDGES = 32;
+
     private final AnalysisOptions options;
 
     private final HeapModel heapModel;
@@ -65,14 +100,102 @@ class Solver {
 
     private CSManager csManager;
 
+    /**
+     * Makes the points-to sets of this solver, which is owned by
+     * {@link #csManager} and kept across incremental updates.
+     */
+    private PointsToSetFactory ptsFactory;
+
     private CSCallGraph callGraph;
 
     private PointerFlowGraph pointerFlowGraph;
 
     private WorkList workList;
 
+    /**
+     * Whether the work list is ordered by the topological order of
+     * the condensation of PFG.
+     */
+    private boolean topological;
+
+    /**
+     * Number of new PFG edges since the pointers were last ranked.
+     */
+    private int edgesSinceRanking;
+
+    /**
+     * Number of pointers ranked last time.
+     */
+    private int rankedCount;
+
+    /**
+     * Number of new PFG edges between two cycle detections,
+     * 0 means cycle detection is disabled.
+     */
+    private int cycleDetectionInterval;
+
+    /**
+     * Number of new PFG edges since last cycle detection.
+     */
+    private final AtomicInteger newEdgeCount = new AtomicInteger();
+
+    /**
+     * Number of pointers merged by cycle collapse.
+     */
+    private int collapsedCount;
+
+    /**
+     * Number of threads which process the work list in parallel,
+     * 1 means the work list is processed sequentially.
+     */
+    private int parallelism;
+
+    /**
+     * Work-list entries added by the parallel phase of a round, or null
+     * if the solver is not in the parallel phase. The entries are moved
+     * to the work list after the phase, as the work list is not
+     * thread-safe. See {@link #analyzeInParallel()}.
+     */
+    private Queue<Pair<Pointer, PointsToSet>> pendingEntries;
+
+    /**
+     * Methods which become reachable in the parallel phase of a round.
+     * They are processed after the phase, as instantiating methods
+     * is not thread-safe.
+     */
+    private Queue<CSMethod> pendingReachable;
+
+    /**
+     * Whether the PFG edges to typed variables filter the objects
+     * by the declared types of the variables.
+     */
+    private boolean typeFilter;
+
+    private TypeSystem typeSystem;
+
+    /**
+     * Cache of subtype checks, map from (object type, filter type)
+     * to whether the object type is a subtype of the filter type.
+     * It is concurrent, as it is used in the parallel phase.
+     */
+    private final TwoKeyMap<Type, Type, Boolean> subtypes =
+            new MapMapTwoKeyMap<>(Maps.newConcurrentMap(), Maps::newConcurrentMap);
+
+    /**
+     * Map from each reachable method to its template.
+     */
+    private final Map<JMethod, MethodTemplate> templates = Maps.newMap();
+
+    /**
+     * Tracks the elements which are derived again by {@link #update(Set)},
+     * and hides the others from the result.
+     */
+    private IncrementalCSManager incremental;
+
     private PointerAnalysisResult result;
 
+    private SolverMetrics metrics;
+
     Solver(AnalysisOptions options, HeapModel heapModel,
            ContextSelector contextSelector) {
         this.options = options;
@@ -83,14 +206,53 @@ class Solver {
     void solve() {
         initialize();
         analyze();
+        logStatistics();
+        metrics.finish();
+    }
+
+    private void logStatistics() {
+        if (workList.getCoalescedCount() > 0) {
+            logger.info("{} work-list entries were coalesced",
+                    workList.getCoalescedCount());
+        }
+        metrics.logWorkListPops();
+        if (collapsedCount > 0) {
+            logger.info("{} pointers were merged by cycle collapse",
+                    collapsedCount);
+        }
+        logger.info("Dispatch cache: {}", DispatchCache.get());
     }
 
     private void initialize() {
-        csManager = new MapBasedCSManager();
+        Object threads = options.get("parallelism");
+        parallelism = threads != null ? (Integer) threads : 1;
+        if (parallelism < 1) {
+            throw new ConfigException("Invalid parallelism: " + parallelism);
+        }
+        csManager = makeCSManager(options.getString("cs-manager"),
+                options.getString("pts-impl"), parallelism > 1);
+        ptsFactory = csManager.getPointsToSetFactory();
         callGraph = new CSCallGraph(csManager);
-        pointerFlowGraph = new PointerFlowGraph();
-        workList = new WorkList();
-        // process program entry, i.e., main method
+        metrics = new SolverMetrics(CSPTA.ID, options,
+                () -> callGraph.getNumberOfMethods(), parallelism > 1);
+        pointerFlowGraph = new PointerFlowGraph(parallelism > 1);
+        workList = makeWorkList(options.getString("worklist"), ptsFactory);
+        topological = "topo".equals(options.getString("worklist"));
+        if (topological && parallelism > 1) {
+            throw new ConfigException(
+                    "Work list \"topo\" does not support parallelism > 1");
+        }
+        Object interval = options.get("cycle-detection-interval");
+        cycleDetectionInterval = interval != null ? (Integer) interval : 0;
+        typeFilter = Boolean.TRUE.equals(options.get("type-filter"));
+        typeSystem = World.get().getTypeSystem();
+        addEntry();
+    }
+
+    /**
+     * Processes program entry, i.e., main method.
+     */
+    private void addEntry() {
         Context defContext = contextSelector.getEmptyContext();
         JMethod main = World.get().getMainMethod();
         CSMethod csMethod = csManager.getCSMethod(defContext, main);
@@ -98,55 +260,294 @@ class Solver {
         addReachable(csMethod);
     }
 
+    /**
+     * Updates the result after the IR of given methods is changed.
+     * <p>
+     * The pointers whose points-to sets may depend on the changed methods,
+     * and the context-sensitive methods whose reachability may change, are
+     * computed on the previous PFG and call graph. Their points-to sets,
+     * PFG edges and call edges are removed, while the rest of the PFG and
+     * call graph is kept, as it is part of the new result. The unaffected
+     * methods which may derive the removed edges are then processed again,
+     * together with the entry, and the affected pointers are re-propagated.
+     * Finally, the elements which are not derived again are hidden from
+     * the result, which thus equals that of solving from scratch.
+     */
+    void update(Set<JMethod> changedMethods) {
+        if (cycleDetectionInterval > 0) {
+            throw new ConfigException(
+                    "Incremental update does not support cycle collapse");
+        }
+        var affected = new AffectedPointers(changedMethods);
+        affected.compute();
+        logger.info("{} pointers and {} methods are affected by {} changed methods",
+                affected.pointers.size(), affected.methods.size(),
+                changedMethods.size());
+        // the unaffected methods which may derive the removed edges,
+        // and the elements which may be no longer derived
+        Set<CSMethod> replayed = Sets.newSet();
+        Set<Object> candidates = Sets.newSet();
+        candidates.addAll(affected.pointers);
+        for (var pointer : affected.pointers) {
+            addReplayed(replayed, affected.methods, pointer);
+            for (var succ : pointerFlowGraph.getSuccsOf(pointer)) {
+                candidates.add(succ);
+                addReplayed(replayed, affected.methods, succ);
+            }
+            for (var pred : pointerFlowGraph.getPredsOf(pointer)) {
+                candidates.add(pred);
+                addReplayed(replayed, affected.methods, pred);
+            }
+        }
+        for (var csMethod : affected.methods) {
+            for (var csCallSite : callGraph.getCallersOf(csMethod)) {
+                var container = csCallSite.getContainer();
+                if (!affected.methods.contains(container)) {
+                    replayed.add(container);
+                }
+            }
+        }
+        csManager.getObjects().stream()
+                .filter(o -> affected.objects.contains(o.getObject()))
+                .forEach(candidates::add);
+        for (var pointer : affected.pointers) {
+            pointerFlowGraph.removeNode(pointer);
+            pointer.setPointsToSet(ptsFactory.make());
+        }
+        affected.methods.forEach(callGraph::removeReachableMethod);
+        replayed.forEach(callGraph::removeEdgesOutOf);
+        changedMethods.forEach(templates::remove);
+        // re-solve on the kept PFG and call graph, recording the
+        // elements derived again
+        if (incremental == null) {
+            incremental = new IncrementalCSManager(csManager, parallelism > 1);
+        }
+        CSManager base = csManager;
+        csManager = incremental;
+        workList = makeWorkList(options.getString("worklist"), ptsFactory);
+        newEdgeCount.set(0);
+        edgesSinceRanking = 0;
+        rankedCount = 0;
+        result = null;
+        addEntry();
+        for (var csMethod : replayed) {
+            replay(csMethod);
+        }
+        analyze();
+        csManager = base;
+        // an element is still derived if it is looked up again, or if it
+        // keeps PFG edges or a non-empty points-to set
+        incremental.updateStale(candidates, e -> e instanceof Pointer p &&
+                (pointerFlowGraph.hasNode(p) || !p.getPointsToSet().isEmpty()));
+        logStatistics();
+        metrics.finish();
+    }
+
+    /**
+     * Adds the method of pointer to replayed, if the pointer is
+     * a variable of a method which remains reachable.
+     */
+    private void addReplayed(Set<CSMethod> replayed,
+                             Set<CSMethod> affectedMethods, Pointer pointer) {
+        if (pointer instanceof CSVar csVar) {
+            var csMethod = csManager.getCSMethod(
+                    csVar.getContext(), csVar.getVar().getMethod());
+            if (!affectedMethods.contains(csMethod)
+                    && callGraph.contains(csMethod)) {
+                replayed.add(csMethod);
+            }
+        }
+    }
+
+    /**
+     * Processes the statements of a reachable method again, including
+     * those depending on the kept points-to sets of its variables.
+     */
+    private void replay(CSMethod csMethod) {
+        instantiate(templates.get(csMethod.getMethod()), csMethod);
+        for (var csVar : getCSVarsIn(csMethod)) {
+            if (!csVar.getPointsToSet().isEmpty()) {
+                processNewPointsTo(csVar, csVar.getPointsToSet());
+            }
+        }
+    }
+
+    /**
+     * @return the context-sensitive element manager of given kind,
+     * i.e., "map" (default), "array" or "slot". Only "map" supports
+     * concurrent use, for which a {@link ConcurrentCSManager} is returned.
+     * The pointers have points-to sets of implementation ptsImpl.
+     */
+    private static CSManager makeCSManager(
+            String kind, String ptsImpl, boolean concurrent) {
+        if (kind == null || kind.equals("map")) {
+            return concurrent ? new ConcurrentCSManager(ptsImpl)
+                    : new MapBasedCSManager(ptsImpl);
+        } else if (concurrent) {
+            throw new ConfigException("CS manager \"" + kind +
+                    "\" does not support parallelism > 1");
+        } else if (kind.equals("array")) {
+            return new ArrayBasedCSManager(false, ptsImpl);
+        } else if (kind.equals("slot")) {
+            return new ArrayBasedCSManager(true, ptsImpl);
+        } else {
+            throw new ConfigException("Unexpected CS manager: " + kind);
+        }
+    }
+
+    /**
+     * @return the work list of given kind, i.e., "fifo" (default),
+     * "coalescing" or "topo".
+     */
+    private static WorkList makeWorkList(
+            String kind, PointsToSetFactory ptsFactory) {
+        if (kind == null || kind.equals("fifo")) {
+            return new WorkList(ptsFactory, false);
+        } else if (kind.equals("coalescing")) {
+            return new WorkList(ptsFactory, true);
+        } else if (kind.equals("topo")) {
+            return new WorkList(ptsFactory, true, true);
+        } else {
+            throw new ConfigException("Unexpected work list: " + kind);
+        }
+    }
+
     /**
      * Processes new reachable context-sensitive method.
      */
     private void addReachable(CSMethod csMethod) {
         if (callGraph.addReachableMethod(csMethod)) {
-            for (var stmt : csMethod.getMethod().getIR().getStmts()) {
-                stmt.accept(new StmtProcessor(csMethod));
+            metrics.onReachable(csMethod::toString);
+            var template = templates.computeIfAbsent(
+                    csMethod.getMethod(), this::buildTemplate);
+            instantiate(template, csMethod);
+        }
+    }
+
+    /**
+     * @return the existing context-sensitive variables of csMethod.
+     */
+    private List<CSVar> getCSVarsIn(CSMethod csMethod) {
+        List<CSVar> csVars = new ArrayList<>();
+        for (var var : csMethod.getMethod().getIR().getVars()) {
+            for (var csVar : csManager.getCSVarsOf(var)) {
+                if (csVar.getContext().equals(csMethod.getContext())) {
+                    csVars.add(csVar);
+                }
             }
         }
+        return csVars;
+    }
+
+    private MethodTemplate buildTemplate(JMethod method) {
+        var builder = new TemplateBuilder(method.getIR().getVars().size());
+        for (var stmt : method.getIR().getStmts()) {
+            stmt.accept(builder);
+        }
+        return builder.template;
     }
 
     /**
-     * Processes the statements in context-sensitive new reachable methods.
+     * Instantiates the template of a method in the context of csMethod.
      */
-    private class StmtProcessor implements StmtVisitor<Void> {
+    private void instantiate(MethodTemplate template, CSMethod csMethod) {
+        var context = csMethod.getContext();
+        long start = metrics.startTimer();
+        for (var alloc : template.getAllocations()) {
+            var csVar = csManager.getCSVar(context, alloc.var);
+            var objCx = contextSelector.selectHeapContext(csMethod, alloc.obj);
+            var csObj = csManager.getCSObj(objCx, alloc.obj);
+            addWorkListEntry(csVar, ptsFactory.make(csObj));
+        }
+        metrics.stopTimer(New.class, template.getAllocations().size(), start);
+        start = metrics.startTimer();
+        for (var edge : template.getVarEdges()) {
+            addPFGEdge(csManager.getCSVar(context, edge.source),
+                    csManager.getCSVar(context, edge.target), edge.filter);
+        }
+        // the casts are counted as copies, as both are variable edges
+        metrics.stopTimer(Copy.class, template.getVarEdges().size(), start);
+        start = metrics.startTimer();
+        for (var store : template.getStaticStores()) {
+            addPFGEdge(csManager.getCSVar(context, store.var),
+                    csManager.getStaticField(store.field));
+        }
+        metrics.stopTimer(StoreField.class, template.getStaticStores().size(), start);
+        start = metrics.startTimer();
+        for (var load : template.getStaticLoads()) {
+            addPFGEdge(csManager.getStaticField(load.field),
+                    csManager.getCSVar(context, load.var));
+        }
+        metrics.stopTimer(LoadField.class, template.getStaticLoads().size(), start);
+        start = metrics.startTimer();
+        for (var call : template.getStaticCalls()) {
+            var stmt = call.callSite;
+            var m = call.callee;
+            var csCallSite = csManager.getCSCallSite(context, stmt);
+            var ctx = contextSelector.selectContext(csCallSite, m); // c_t
+            var targetMethod = csManager.getCSMethod(ctx, m);
+            var edge = new Edge<>(CallKind.STATIC, csCallSite, targetMethod);
+            if (callGraph.addEdge(edge)) {
+                addReachable(targetMethod);
+                for (int i = 0; i < m.getParamCount(); i++) {
+                    var arg = csManager.getCSVar(context, stmt.getRValue().getArg(i));
+                    var paramVar = m.getIR().getParam(i);
+                    var param = csManager.getCSVar(ctx, paramVar);
+                    addPFGEdge(arg, param, getFilter(paramVar));
+                }
+                var lVar = stmt.getLValue();
+                if (lVar != null) {
+                    var lv = csManager.getCSVar(context, lVar);
+                    for (Var ret: m.getIR().getReturnVars()) {
+                        var csRet = csManager.getCSVar(ctx, ret);
+                        addPFGEdge(csRet, lv, getFilter(lVar));
+                    }
+                }
+            }
+        }
+        metrics.stopTimer(Invoke.class, template.getStaticCalls().size(), start);
+    }
 
-        private final CSMethod csMethod;
+    /**
+     * Builds the templates of new reachable methods.
+     */
+    private class TemplateBuilder implements StmtVisitor<Void> {
 
-        private final Context context;
+        private final MethodTemplate template;
 
-        private StmtProcessor(CSMethod csMethod) {
-            this.csMethod = csMethod;
-            this.context = csMethod.getContext();
+        private TemplateBuilder(int varCount) {
+            template = new MethodTemplate(varCount);
         }
 
         @Override
         public Void visit(New stmt) {
-            var csVar = csManager.getCSVar(context, stmt.getLValue());
-            var obj = heapModel.getObj(stmt);
-            var objCx = contextSelector.selectHeapContext(csMethod, obj);
-            var csObj = csManager.getCSObj(objCx, obj);
-            workList.addEntry(csVar, PointsToSetFactory.make(csObj));
+            template.addAllocation(stmt.getLValue(), heapModel.getObj(stmt));
             return null;
         }
 
         @Override
         public Void visit(Copy stmt) {
-            var l = csManager.getCSVar(context, stmt.getLValue());
-            var r = csManager.getCSVar(context, stmt.getRValue());
-            addPFGEdge(r, l);
+            template.addVarEdge(stmt.getRValue(), stmt.getLValue(), null);
+            return null;
+        }
+
+        @Override
+        public Void visit(Cast stmt) {
+            if (typeFilter) {
+                template.addVarEdge(stmt.getRValue().getValue(),
+                        stmt.getLValue(), stmt.getRValue().getCastType());
+            }
             return null;
         }
 
         public Void visit(StoreField stmt) {
             var field = stmt.getFieldRef().resolve();
             if (field.isStatic()) {
-                var from = csManager.getCSVar(context, stmt.getRValue());
-                var to = csManager.getStaticField(field);
-                addPFGEdge(from, to);
+                template.addStaticStore(stmt.getRValue(), field);
+            } else {
+                var base = ((InstanceFieldAccess) stmt.getLValue()).getBase();
+                template.addInstanceStore(base, stmt.getRValue(), field,
+                        csManager.getFieldSlot(field));
             }
             return null;
         }
@@ -154,9 +555,11 @@ class Solver {
         public Void visit(LoadField stmt) {
             var field = stmt.getFieldRef().resolve();
             if (field.isStatic()) {
-                var to = csManager.getCSVar(context, stmt.getLValue());
-                var from = csManager.getStaticField(field);
-                addPFGEdge(from, to);
+                template.addStaticLoad(stmt.getLValue(), field);
+            } else {
+                var base = ((InstanceFieldAccess) stmt.getRValue()).getBase();
+                template.addInstanceLoad(base, stmt.getLValue(), field,
+                        csManager.getFieldSlot(field));
             }
             return null;
         }
@@ -164,27 +567,7 @@ class Solver {
         @Override
         public Void visit(Invoke stmt) {
             if (stmt.isStatic()) {
-                var m = resolveCallee(null, stmt);
-                var csCallSite = csManager.getCSCallSite(context, stmt);
-                var ctx = contextSelector.selectContext(csCallSite, m); // c_t
-                var targetMethod = csManager.getCSMethod(ctx, m);
-                var edge = new Edge<>(CallKind.STATIC, csCallSite, targetMethod);
-                if (callGraph.addEdge(edge)) {
-                    addReachable(targetMethod);
-                    for (int i = 0; i < m.getParamCount(); i++) {
-                        var arg = csManager.getCSVar(context, stmt.getRValue().getArg(i));
-                        var param = csManager.getCSVar(ctx, m.getIR().getParam(i));
-                        addPFGEdge(arg, param);
-                    }
-                    var lVar = stmt.getLValue();
-                    if (lVar != null) {
-                        var lv = csManager.getCSVar(context, lVar);
-                        for (Var ret: m.getIR().getReturnVars()) {
-                            var csRet = csManager.getCSVar(ctx, ret);
-                            addPFGEdge(csRet, lv);
-                        }
-                    }
-                }
+                template.addStaticCall(stmt, resolveCallee(null, stmt));
             }
             return null;
         }
@@ -194,44 +577,309 @@ class Solver {
      * Adds an edge "source -> target" to the PFG.
      */
     private void addPFGEdge(Pointer source, Pointer target) {
-        if (pointerFlowGraph.addEdge(source, target)) {
+        addPFGEdge(source, target, null);
+    }
+
+    /**
+     * Adds an edge "source -> target" with a type filter to the PFG.
+     */
+    private void addPFGEdge(Pointer source, Pointer target, @Nullable Type filter) {
+        if (pointerFlowGraph.addEdge(source, target, filter)) {
+            metrics.onNewPFGEdge();
+            newEdgeCount.incrementAndGet();
+            if (topological) {
+                ++edgesSinceRanking;
+            }
             if (!source.getPointsToSet().isEmpty()) {
-                workList.addEntry(target, source.getPointsToSet());
+                propagateAlong(source, target, source.getPointsToSet());
             }
         }
     }
 
+    /**
+     * Adds the objects in pointsToSet which can flow along PFG edge
+     * "source -> target" to the work list.
+     */
+    private void propagateAlong(Pointer source, Pointer target, PointsToSet pointsToSet) {
+        var filters = pointerFlowGraph.getFilters(source, target);
+        if (filters != null) {
+            var filtered = ptsFactory.make();
+            for (var obj : pointsToSet) {
+                if (isAssignable(obj.getObject().getType(), filters)) {
+                    filtered.addObject(obj);
+                }
+            }
+            pointsToSet = filtered;
+        }
+        if (!pointsToSet.isEmpty()) {
+            addWorkListEntry(target, pointsToSet);
+        }
+    }
+
+    /**
+     * Adds an entry to the work list, or to {@link #pendingEntries}
+     * in the parallel phase.
+     */
+    private void addWorkListEntry(Pointer pointer, PointsToSet pointsToSet) {
+        if (pendingEntries != null) {
+            pendingEntries.add(new Pair<>(pointer, pointsToSet));
+        } else {
+            workList.addEntry(pointer, pointsToSet);
+        }
+    }
+
+    /**
+     * @return true if type is a subtype of any of given filters.
+     */
+    private boolean isAssignable(Type type, Set<Type> filters) {
+        for (Type filter : filters) {
+            if (type.equals(filter) || subtypes.computeIfAbsent(type, filter,
+                    (t, f) -> isSubtype(t, f))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if type is a subtype of filter. The type system is
+     * locked, as it may lazily load classes which is not thread-safe.
+     */
+    private boolean isSubtype(Type type, Type filter) {
+        synchronized (typeSystem) {
+            return typeSystem.isSubtype(filter, type);
+        }
+    }
+
+    /**
+     * @return the type filter of the PFG edges to given variable, or null
+     * if type filter is disabled or the variable accepts all objects.
+     */
+    @Nullable
+    private Type getFilter(Var var) {
+        if (!typeFilter || var.getType().getName().equals(ClassNames.OBJECT)) {
+            return null;
+        }
+        return var.getType();
+    }
+
     /**
      * Processes work-list entries until the work-list is empty.
      */
     private void analyze() {
+        if (parallelism > 1) {
+            analyzeInParallel();
+            return;
+        }
         while (!workList.isEmpty()) {
+            if (cycleDetectionInterval > 0 &&
+                    newEdgeCount.get() >= cycleDetectionInterval) {
+                collapseCycles();
+            }
+            if (topological && edgesSinceRanking >
+                    Math.max(MIN_RERANK_EDGES, rankedCount / 2)) {
+                rankPointers();
+            }
             var entry = workList.pollEntry();
-            var diff = propagate(entry.pointer(), entry.pointsToSet());
-            if (entry.pointer() instanceof CSVar entryVar) {
-                for (var obj : diff) {
-                    var var = entryVar.getVar();
-                    for (var storeField : var.getStoreFields()) {
-                        var rValue = csManager.getCSVar(entryVar.getContext(), storeField.getRValue());
-                        var lValue = csManager.getInstanceField(obj, storeField.getLValue().getFieldRef().resolve());
-                        addPFGEdge(rValue, lValue);
-                    }
-                    for (var loadField : var.getLoadFields()) {
-                        var lValue = csManager.getCSVar(entryVar.getContext(), loadField.getLValue());
-                        var rValue = csManager.getInstanceField(obj, loadField.getRValue().getFieldRef().resolve());
-                        addPFGEdge(rValue, lValue);
-                    }
-                    for (StoreArray storeArray : var.getStoreArrays()) {
-                        var rValue = csManager.getCSVar(entryVar.getContext(), storeArray.getRValue());
-                        var arrayIndex = csManager.getArrayIndex(obj);
-                        addPFGEdge(rValue, arrayIndex);
-                    }
-                    for (LoadArray loadArray : var.getLoadArrays()) {
-                        var lValue = csManager.getCSVar(entryVar.getContext(), loadArray.getLValue());
-                        var arrayIndex = csManager.getArrayIndex(obj);
-                        addPFGEdge(arrayIndex, lValue);
+            metrics.onWorkListPop(entry.pointer());
+            var pointer = pointerFlowGraph.getRepresentative(entry.pointer());
+            var diff = propagate(pointer, entry.pointsToSet());
+            if (!diff.isEmpty()) {
+                metrics.onPropagate(diff.size());
+                processNewPointsTo(pointer, diff);
+                for (var merged : pointerFlowGraph.getMergedPointers(pointer)) {
+                    processNewPointsTo(merged, diff);
+                }
+            }
+        }
+    }
+
+    /**
+     * Processes the work list in rounds. In each round, the pending
+     * entries are grouped by their pointers, and then:
+     * <ol>
+     *     <li>the points-to sets of these (distinct) pointers are updated
+     *     in parallel;</li>
+     *     <li>the new objects of the pointers are propagated to their PFG
+     *     successors and processed in parallel, which add PFG and call
+     *     graph edges concurrently. The points-to sets are not updated
+     *     in this phase, thus they can be read by all threads. The new
+     *     work-list entries and reachable methods are collected in
+     *     concurrent queues;</li>
+     *     <li>the collected entries are added to the work list, and the
+     *     collected methods are processed sequentially.</li>
+     * </ol>
+     */
+    private void analyzeInParallel() {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            while (!workList.isEmpty()) {
+                if (cycleDetectionInterval > 0 &&
+                        newEdgeCount.get() >= cycleDetectionInterval) {
+                    collapseCycles();
+                }
+                // the entries of a pointer are merged into a fresh set,
+                // so that no thread reads the points-to set of a pointer
+                // which is being updated by another thread
+                Map<Pointer, PointsToSet> round = new LinkedHashMap<>();
+                while (!workList.isEmpty()) {
+                    var entry = workList.pollEntry();
+                    metrics.onWorkListPop(entry.pointer());
+                    var pointer = pointerFlowGraph.getRepresentative(entry.pointer());
+                    round.computeIfAbsent(pointer, p -> ptsFactory.make())
+                            .addAll(entry.pointsToSet());
+                }
+                List<Pointer> pointers = new ArrayList<>(round.keySet());
+                List<PointsToSet> pointsToSets = new ArrayList<>(round.values());
+                PointsToSet[] diffs = new PointsToSet[pointers.size()];
+                pool.submit(() -> IntStream.range(0, diffs.length)
+                        .parallel()
+                        .forEach(i -> diffs[i] = pointers.get(i)
+                                .getPointsToSet()
+                                .addAllDiff(pointsToSets.get(i))))
+                        .join();
+                for (var diff : diffs) {
+                    if (!diff.isEmpty()) {
+                        metrics.onPropagate(diff.size());
                     }
-                    processCall(entryVar, obj);
+                }
+                Queue<Pair<Pointer, PointsToSet>> entries = new ConcurrentLinkedQueue<>();
+                Queue<CSMethod> reachable = new ConcurrentLinkedQueue<>();
+                pendingEntries = entries;
+                pendingReachable = reachable;
+                pool.submit(() -> IntStream.range(0, diffs.length)
+                        .parallel()
+                        .forEach(i -> processDiff(pointers.get(i), diffs[i])))
+                        .join();
+                pendingEntries = null;
+                pendingReachable = null;
+                entries.forEach(e -> workList.addEntry(e.first(), e.second()));
+                reachable.forEach(this::addReachable);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Propagates the new objects of a pointer to its PFG successors and
+     * processes them, in the parallel phase of {@link #analyzeInParallel()}.
+     */
+    private void processDiff(Pointer pointer, PointsToSet diff) {
+        if (!diff.isEmpty()) {
+            for (var succ : pointerFlowGraph.getSuccsOf(pointer)) {
+                propagateAlong(pointer, succ, diff);
+            }
+            processNewPointsTo(pointer, diff);
+            for (var merged : pointerFlowGraph.getMergedPointers(pointer)) {
+                processNewPointsTo(merged, diff);
+            }
+        }
+    }
+
+    /**
+     * Processes the statements that are affected by the new objects
+     * pointed to by given pointer.
+     */
+    private void processNewPointsTo(Pointer pointer, PointsToSet diff) {
+        if (pointer instanceof CSVar entryVar) {
+            var var = entryVar.getVar();
+            // the method of var is reachable, thus its template exists
+            var template = templates.get(var.getMethod());
+            var stores = template.getInstanceStores(var);
+            var loads = template.getInstanceLoads(var);
+            for (var obj : diff) {
+                long start = metrics.startTimer();
+                for (var store : stores) {
+                    var rValue = csManager.getCSVar(entryVar.getContext(), store.var);
+                    var lValue = csManager.getInstanceField(obj, store.field, store.slot);
+                    addPFGEdge(rValue, lValue);
+                }
+                metrics.stopTimer(StoreField.class, stores.length, start);
+                start = metrics.startTimer();
+                for (var load : loads) {
+                    var lValue = csManager.getCSVar(entryVar.getContext(), load.var);
+                    var rValue = csManager.getInstanceField(obj, load.field, load.slot);
+                    addPFGEdge(rValue, lValue);
+                }
+                metrics.stopTimer(LoadField.class, loads.length, start);
+                start = metrics.startTimer();
+                for (StoreArray storeArray : var.getStoreArrays()) {
+                    var rValue = csManager.getCSVar(entryVar.getContext(), storeArray.getRValue());
+                    var arrayIndex = csManager.getArrayIndex(obj);
+                    addPFGEdge(rValue, arrayIndex);
+                }
+                metrics.stopTimer(StoreArray.class, var.getStoreArrays().size(), start);
+                start = metrics.startTimer();
+                for (LoadArray loadArray : var.getLoadArrays()) {
+                    var lValue = csManager.getCSVar(entryVar.getContext(), loadArray.getLValue());
+                    var arrayIndex = csManager.getArrayIndex(obj);
+                    addPFGEdge(arrayIndex, lValue);
+                }
+                metrics.stopTimer(LoadArray.class, var.getLoadArrays().size(), start);
+                start = metrics.startTimer();
+                processCall(entryVar, obj);
+                metrics.stopTimer(Invoke.class, var.getInvokes().size(), start);
+            }
+        }
+    }
+
+    /**
+     * Ranks the pointers by the topological order of the condensation
+     * of PFG, so that the work list processes the pointers in a cycle
+     * (or a single pointer) after the pointers flowing into them.
+     */
+    private void rankPointers() {
+        edgesSinceRanking = 0;
+        Map<Pointer, Integer> ranks = Maps.newMap();
+        List<MergedNode<Pointer>> order = new TopoSorter<>(
+                new MergedSCCGraph<>(pointerFlowGraph)).get();
+        for (int i = 0; i < order.size(); ++i) {
+            for (Pointer pointer : order.get(i).getNodes()) {
+                ranks.put(pointer, i);
+                for (Pointer merged : pointerFlowGraph.getMergedPointers(pointer)) {
+                    ranks.put(merged, i);
+                }
+            }
+        }
+        rankedCount = ranks.size();
+        workList.setRanks(ranks);
+    }
+
+    /**
+     * Detects the cycles in PFG and merges the pointers in each cycle,
+     * so that they share one points-to set and are propagated as one node.
+     */
+    private void collapseCycles() {
+        newEdgeCount.set(0);
+        for (var cycle : pointerFlowGraph.getCycles()) {
+            var union = ptsFactory.make();
+            cycle.forEach(p -> union.addAll(p.getPointsToSet()));
+            var rep = cycle.get(0);
+            var sharedPts = rep.getPointsToSet();
+            for (var node : cycle) {
+                // the objects that are new to node (and the pointers
+                // merged into it) must be processed for them
+                var diff = node.getPointsToSet().addAllDiff(union);
+                node.setPointsToSet(sharedPts);
+                var merged = pointerFlowGraph.getMergedPointers(node);
+                merged.forEach(p -> p.setPointsToSet(sharedPts));
+                if (!diff.isEmpty()) {
+                    processNewPointsTo(node, diff);
+                    merged.forEach(p -> processNewPointsTo(p, diff));
+                }
+            }
+            pointerFlowGraph.mergeNodes(cycle);
+            collapsedCount += cycle.size() - 1;
+            if (!sharedPts.isEmpty()) {
+                for (var succ : pointerFlowGraph.getSuccsOf(rep)) {
+                    propagateAlong(rep, succ, sharedPts);
+                }
+            }
+            if (typeFilter) {
+                // merging may relax the filters of the edges to rep
+                for (var pred : pointerFlowGraph.getPredsOf(rep)) {
+                    propagateAlong(pred, rep, pred.getPointsToSet());
                 }
             }
         }
@@ -242,19 +890,12 @@ class Solver {
      * returns the difference set of pointsToSet and pt(pointer).
      */
     private PointsToSet propagate(Pointer pointer, PointsToSet pointsToSet) {
-        var diff = PointsToSetFactory.make();
-        for (var obj : pointsToSet) {
-            if (pointer.getPointsToSet().addObject(obj)) {
-                diff.addObject(obj);
-                pointer.getPointsToSet().addObject(obj);
+        var diff = pointer.getPointsToSet().addAllDiff(pointsToSet);
+        if (!diff.isEmpty()) {
+            for (var s : pointerFlowGraph.getSuccsOf(pointer)) {
+                propagateAlong(pointer, s, diff);
             }
         }
-        if (diff.isEmpty()) {
-            return diff;
-        }
-        for (var s : pointerFlowGraph.getSuccsOf(pointer)) {
-            workList.addEntry(s, pointsToSet);
-        }
         return diff;
     }
 
@@ -266,30 +907,37 @@ class Solver {
      */
     private void processCall(CSVar recv, CSObj recvObj) {
         for (var invoke : recv.getVar().getInvokes()) {
+            metrics.onDispatch();
             var method = resolveCallee(recvObj, invoke);
             var csCallSite = csManager.getCSCallSite(recv.getContext(), invoke);
             var cx = contextSelector.selectContext(csCallSite, recvObj, method);
             var thisVar = method.getIR().getThis();
             var thisPointer = csManager.getCSVar(cx, thisVar);
 
-            workList.addEntry(thisPointer, PointsToSetFactory.make(recvObj));
+            addWorkListEntry(thisPointer, ptsFactory.make(recvObj));
 
             var csMethod = csManager.getCSMethod(cx, method);
             var edge = getInvokeJMethodEdge(csCallSite, csMethod);
             if (callGraph.addEdge(edge)) {
-                addReachable(csMethod);
+                if (pendingReachable != null) {
+                    pendingReachable.add(csMethod);
+                } else {
+                    addReachable(csMethod);
+                }
                 for (int i = 0; i < csMethod.getMethod().getParamCount(); i++) {
                     var param = csMethod.getMethod().getIR().getParam(i);
                     var argument = csCallSite.getCallSite().getInvokeExp().getArg(i);
 
-                    addPFGEdge(csManager.getCSVar(recv.getContext(), argument), csManager.getCSVar(cx, param));
+                    addPFGEdge(csManager.getCSVar(recv.getContext(), argument), csManager.getCSVar(cx, param),
+                            getFilter(param));
                 }
 
                 var callSiteReturnVal = csCallSite.getCallSite().getLValue();
                 if (callSiteReturnVal != null) {
                     for (var r : csMethod.getMethod().getIR().getReturnVars()) {
                         var methodReturnVal = csManager.getCSVar(cx, r);
-                        addPFGEdge(methodReturnVal, csManager.getCSVar(recv.getContext(), callSiteReturnVal));
+                        addPFGEdge(methodReturnVal, csManager.getCSVar(recv.getContext(), callSiteReturnVal),
+                                getFilter(callSiteReturnVal));
                     }
                 }
             }
@@ -323,12 +971,144 @@ class Solver {
      */
     private JMethod resolveCallee(CSObj recv, Invoke callSite) {
         Type type = recv != null ? recv.getObject().getType() : null;
-        return CallGraphs.resolveCallee(type, callSite);
+        return DispatchCache.get().resolveCallee(type, callSite);
+    }
+
+    /**
+     * Computes the pointers whose points-to sets may change after the
+     * changes of given methods, on the current PFG and call graph.
+     * The points-to set of a pointer may change if:
+     * <ul>
+     *     <li>it is a variable of a changed method, in its previous IR;</li>
+     *     <li>it is a variable of a method whose reachability or calling
+     *     contexts may change, i.e., a callee of an affected call site;</li>
+     *     <li>it is a successor of an affected pointer in the PFG;</li>
+     *     <li>it is defined by a load, or updated by a store or call,
+     *     whose base variable is affected;</li>
+     *     <li>it points to an object allocated in an affected method.</li>
+     * </ul>
+     */
+    private class AffectedPointers {
+
+        private final Set<Pointer> pointers = Sets.newSet();
+
+        private final Set<CSMethod> methods = Sets.newSet();
+
+        private final Set<Obj> objects = Sets.newSet();
+
+        private final Deque<Pointer> pointerWorkList = new ArrayDeque<>();
+
+        private final Deque<CSMethod> methodWorkList = new ArrayDeque<>();
+
+        private AffectedPointers(Set<JMethod> changedMethods) {
+            callGraph.reachableMethods()
+                    .filter(m -> changedMethods.contains(m.getMethod()))
+                    .forEach(this::addMethod);
+            // the IR of changed methods is already replaced, thus their
+            // variables and objects are found in the manager instead
+            csManager.getCSVars().stream()
+                    .filter(v -> changedMethods.contains(v.getVar().getMethod()))
+                    .forEach(this::addPointer);
+            csManager.getObjects().stream()
+                    .map(CSObj::getObject)
+                    .filter(o -> o.getContainerMethod()
+                            .filter(changedMethods::contains).isPresent())
+                    .forEach(objects::add);
+        }
+
+        private void compute() {
+            do {
+                while (!pointerWorkList.isEmpty() || !methodWorkList.isEmpty()) {
+                    while (!methodWorkList.isEmpty()) {
+                        processMethod(methodWorkList.poll());
+                    }
+                    while (!pointerWorkList.isEmpty()) {
+                        processPointer(pointerWorkList.poll());
+                    }
+                }
+                // the pointers pointing to the objects allocated in
+                // affected methods, which may affect more methods
+                Set<Obj> affectedObjects = Set.copyOf(objects);
+                csManager.getCSVars().forEach(p -> addIfPointsTo(p, affectedObjects));
+                csManager.getStaticFields().forEach(p -> addIfPointsTo(p, affectedObjects));
+                csManager.getInstanceFields().forEach(p -> addIfPointsTo(p, affectedObjects));
+                csManager.getArrayIndexes().forEach(p -> addIfPointsTo(p, affectedObjects));
+            } while (!pointerWorkList.isEmpty());
+        }
+
+        private void addMethod(CSMethod csMethod) {
+            if (methods.add(csMethod)) {
+                methodWorkList.add(csMethod);
+            }
+        }
+
+        private void addPointer(Pointer pointer) {
+            if (pointers.add(pointer)) {
+                pointerWorkList.add(pointer);
+            }
+        }
+
+        private void addIfPointsTo(Pointer pointer, Set<Obj> objs) {
+            if (!pointers.contains(pointer)) {
+                for (var csObj : pointer.getPointsToSet()) {
+                    if (objs.contains(csObj.getObject())) {
+                        addPointer(pointer);
+                        return;
+                    }
+                }
+            }
+        }
+
+        private void processMethod(CSMethod csMethod) {
+            getCSVarsIn(csMethod).forEach(this::addPointer);
+            callGraph.getCalleesOfM(csMethod).forEach(this::addMethod);
+            for (var stmt : csMethod.getMethod().getIR().getStmts()) {
+                if (stmt instanceof New newStmt) {
+                    objects.add(heapModel.getObj(newStmt));
+                }
+            }
+        }
+
+        private void processPointer(Pointer pointer) {
+            pointerFlowGraph.getSuccsOf(pointer).forEach(this::addPointer);
+            if (pointer instanceof CSVar csVar) {
+                var context = csVar.getContext();
+                var var = csVar.getVar();
+                for (var load : var.getLoadFields()) {
+                    addCSVar(context, load.getLValue());
+                }
+                for (var load : var.getLoadArrays()) {
+                    addCSVar(context, load.getLValue());
+                }
+                for (var obj : pointer.getPointsToSet()) {
+                    for (var store : var.getStoreFields()) {
+                        addPointer(csManager.getInstanceField(
+                                obj, store.getFieldRef().resolve()));
+                    }
+                    if (!var.getStoreArrays().isEmpty()) {
+                        addPointer(csManager.getArrayIndex(obj));
+                    }
+                }
+                for (var invoke : var.getInvokes()) {
+                    var csCallSite = csManager.getCSCallSite(context, invoke);
+                    callGraph.getCalleesOf(csCallSite).forEach(this::addMethod);
+                }
+            }
+        }
+
+        private void addCSVar(Context context, Var var) {
+            for (var csVar : csManager.getCSVarsOf(var)) {
+                if (csVar.getContext().equals(context)) {
+                    addPointer(csVar);
+                }
+            }
+        }
     }
 
     PointerAnalysisResult getResult() {
         if (result == null) {
-            result = new PointerAnalysisResultImpl(csManager, callGraph);
+            result = new CachedPointerAnalysisResult(
+                    incremental != null ? incremental : csManager, callGraph);
         }
         return result;
     }
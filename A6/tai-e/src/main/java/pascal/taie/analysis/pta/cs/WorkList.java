@@ -24,22 +24,99 @@ package pascal.taie.analysis.pta.cs;
 
 import pascal.taie.analysis.pta.core.cs.element.Pointer;
 import pascal.taie.analysis.pta.pts.PointsToSet;
+import pascal.taie.analysis.pta.pts.PointsToSetFactory;
+import pascal.taie.util.collection.Maps;
 
 import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Queue;
 
 /**
  * Represents work list in pointer analysis.
+ * <p>
+ * In coalescing mode, each pointer has at most one pending entry,
+ * and the points-to sets added for a pointer which is already in
+ * the work list are merged into its pending entry.
+ * <p>
+ * In prioritized mode, the entries are polled in ascending order of
+ * the ranks of their pointers (see {@link #setRanks(Map)}), and
+ * the entries with equal ranks are polled in FIFO order. Pointers
+ * without ranks are ranked before all ranked pointers.
  */
 class WorkList {
 
-    private final Queue<Entry> entries = new ArrayDeque<>();
+    /**
+     * Rank of the pointers which are not given in the rank map.
+     */
+    private static final int UNRANKED = -1;
+
+    private static final Comparator<Entry> ORDER =
+            Comparator.<Entry>comparingInt(e -> e.rank)
+                    .thenComparingLong(e -> e.sequence);
+
+    private Queue<Entry> entries;
+
+    private final boolean coalescing;
+
+    private final boolean prioritized;
+
+    private Map<Pointer, Integer> ranks = Map.of();
+
+    /**
+     * Number of entries added to this work list, used to order the
+     * entries of equal ranks.
+     */
+    private long sequence;
+
+    /**
+     * Map from a pointer to its pending entry, only used in coalescing mode.
+     */
+    private final Map<Pointer, Entry> pendingEntries = Maps.newMap();
+
+    /**
+     * Number of entries which were merged into pending entries.
+     */
+    private int coalescedCount;
+
+    /**
+     * Makes the copies of the shared points-to sets of coalesced entries.
+     */
+    private final PointsToSetFactory ptsFactory;
+
+    WorkList(PointsToSetFactory ptsFactory, boolean coalescing) {
+        this(ptsFactory, coalescing, false);
+    }
+
+    WorkList(PointsToSetFactory ptsFactory, boolean coalescing, boolean prioritized) {
+        this.ptsFactory = ptsFactory;
+        this.coalescing = coalescing;
+        this.prioritized = prioritized;
+        this.entries = prioritized ? new PriorityQueue<>(ORDER) : new ArrayDeque<>();
+    }
 
     /**
      * Adds an entry to the work list.
      */
     void addEntry(Pointer pointer, PointsToSet pointsToSet) {
-        entries.add(new Entry(pointer, pointsToSet));
+        if (coalescing) {
+            Entry pending = pendingEntries.get(pointer);
+            if (pending != null) {
+                pending.merge(pointsToSet, ptsFactory);
+                ++coalescedCount;
+                return;
+            }
+        }
+        Entry entry = new Entry(pointer, pointsToSet);
+        if (prioritized) {
+            entry.rank = ranks.getOrDefault(pointer, UNRANKED);
+            entry.sequence = sequence++;
+        }
+        if (coalescing) {
+            pendingEntries.put(pointer, entry);
+        }
+        entries.add(entry);
     }
 
     /**
@@ -47,7 +124,30 @@ class WorkList {
      * if this work list is empty.
      */
     Entry pollEntry() {
-        return entries.poll();
+        Entry entry = entries.poll();
+        if (entry != null) {
+            if (coalescing) {
+                pendingEntries.remove(entry.pointer());
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Sets the ranks of pointers, and re-orders the pending entries
+     * by the new ranks. Only takes effect in prioritized mode.
+     */
+    void setRanks(Map<Pointer, Integer> ranks) {
+        if (prioritized) {
+            this.ranks = ranks;
+            Queue<Entry> reordered = new PriorityQueue<>(
+                    Math.max(1, entries.size()), ORDER);
+            for (Entry entry : entries) {
+                entry.rank = ranks.getOrDefault(entry.pointer(), UNRANKED);
+                reordered.add(entry);
+            }
+            entries = reordered;
+        }
     }
 
     /**
@@ -57,10 +157,64 @@ class WorkList {
         return entries.isEmpty();
     }
 
+    /**
+     * @return the number of entries which were merged into pending entries
+     * instead of being added to the work list.
+     */
+    int getCoalescedCount() {
+        return coalescedCount;
+    }
+
     /**
      * Represents entries in the work list.
      * Each entry consists of a pointer and a points-to set.
      */
-    record Entry(Pointer pointer, PointsToSet pointsToSet) {
+    static class Entry {
+
+        private final Pointer pointer;
+
+        private PointsToSet pointsToSet;
+
+        /**
+         * Whether pointsToSet is created by the work list itself.
+         * The points-to sets given by the solver may be shared with
+         * pointers or other entries, thus we copy such a set
+         * before merging other objects into it.
+         */
+        private boolean owned = false;
+
+        /**
+         * Rank of the pointer, only used in prioritized mode.
+         */
+        private int rank;
+
+        /**
+         * Order of this entry among the entries added to the work list,
+         * only used in prioritized mode.
+         */
+        private long sequence;
+
+        private Entry(Pointer pointer, PointsToSet pointsToSet) {
+            this.pointer = pointer;
+            this.pointsToSet = pointsToSet;
+        }
+
+        Pointer pointer() {
+            return pointer;
+        }
+
+        PointsToSet pointsToSet() {
+            return pointsToSet;
+        }
+
+        private void merge(PointsToSet pts, PointsToSetFactory ptsFactory) {
+            if (!owned) {
+                PointsToSet copy = ptsFactory.make();
+                copy.addAll(pointsToSet);
+                pointsToSet = copy;
+                owned = true;
+            }
+            pointsToSet.addAll(pts);
+        }
     }
 }
@@ -28,33 +28,45 @@ import pascal.taie.analysis.pta.PointerAnalysisResult;
 import pascal.taie.analysis.pta.core.cs.element.Pointer;
 import pascal.taie.analysis.pta.pts.PointsToSet;
 import pascal.taie.config.AnalysisOptions;
+import pascal.taie.config.ConfigException;
 import pascal.taie.util.AnalysisException;
 import pascal.taie.util.collection.Streams;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.PrintStream;
-import java.nio.file.Files;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Comparator;
-import java.util.LinkedHashMap;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
-import java.util.function.Predicate;
+import java.util.function.BiConsumer;
 import java.util.function.ToIntFunction;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import static pascal.taie.util.collection.CollectionUtils.sum;
 
 /**
  * Dump points-to set to file or compare the analysis result with
- * the ones read from input file.
- * Currently, the compare functionality is mainly for testing purpose.
- * It is not efficient and not recommended applying on large program.
+ * the ones read from input file, or write a binary snapshot of the result
+ * (see {@link ResultSnapshot}).
+ * <p>
+ * The dumped points-to sets are sorted by pointers in chunks, which are
+ * merged into the output file, thus the dump of large program does not
+ * need to keep the whole text in memory. If the file name ends with
+ * {@code .gz}, the file is compressed by gzip. The compare functionality
+ * relies on the sorted dump to walk the input file and the result side
+ * by side, and reports the first max-mismatches differences.
  */
 public class ResultProcessor {
 
@@ -67,6 +79,18 @@ public class ResultProcessor {
      */
     private static final String SEP = " -> ";
 
+    /**
+     * Dumped files with this suffix are compressed by gzip.
+     */
+    private static final String GZIP_SUFFIX = ".gz";
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Default number of mismatches reported by compare.
+     */
+    private static final int DEFAULT_MAX_MISMATCHES = 100;
+
     private static final DecimalFormat formatter = new DecimalFormat("#,####");
 
     public static void process(AnalysisOptions options,
@@ -79,10 +103,21 @@ public class ResultProcessor {
         String file = options.getString("file");
         switch (action) {
             case "dump" -> dumpPointsToSet(result, file);
-            case "compare" -> comparePointsToSet(result, file);
+            case "compare" -> comparePointsToSet(result, file,
+                    getMaxMismatches(options));
+            case "snapshot" -> writeSnapshot(result, file);
         }
     }
 
+    private static int getMaxMismatches(AnalysisOptions options) {
+        Object max = options.get("max-mismatches");
+        int maxMismatches = max != null ? ((Number) max).intValue() : DEFAULT_MAX_MISMATCHES;
+        if (maxMismatches < 1) {
+            throw new ConfigException("Invalid max-mismatches: " + max);
+        }
+        return maxMismatches;
+    }
+
     private static void printStatistics(PointerAnalysisResult result) {
         int varInsens = result.getVars().size();
         int varSens = result.getCSVars().size();
@@ -94,8 +129,8 @@ public class ResultProcessor {
         int aptSizeSens = sum(result.getArrayIndexes(), getSize);
         int reachableInsens = result.getCallGraph().getNumberOfMethods();
         int reachableSens = result.getCSCallGraph().getNumberOfMethods();
-        int callEdgeInsens = (int) result.getCallGraph().edges().count();
-        int callEdgeSens = (int) result.getCSCallGraph().edges().count();
+        int callEdgeInsens = result.getCallGraph().getNumberOfEdges();
+        int callEdgeSens = result.getCSCallGraph().getNumberOfEdges();
         System.out.println("-------------- Pointer analysis statistics: --------------");
         System.out.printf("%-30s%s (insens) / %s (sens)%n", "#var pointers:",
                 format(varInsens), format(varSens));
@@ -118,14 +153,27 @@ public class ResultProcessor {
         return formatter.format(i);
     }
 
+    private static void writeSnapshot(PointerAnalysisResult result, String output) {
+        if (output == null) {
+            throw new ConfigException("Option file is required by action snapshot");
+        }
+        Path outFile = Path.of(output);
+        logger.info("Writing points-to snapshot to {} ...", outFile);
+        try {
+            ResultSnapshot.write(result, outFile);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write snapshot", e);
+        }
+    }
+
     private static void dumpPointsToSet(PointerAnalysisResult result, String output) {
         PrintStream out;
         if (output != null) {  // if output file is given, then dump to the file
             File outFile = new File(output);
             try {
-                out = new PrintStream(new FileOutputStream(outFile));
+                out = new PrintStream(openOutput(outFile), false, StandardCharsets.UTF_8);
                 logger.info("Dumping points-to set to {} ...", outFile);
-            } catch (FileNotFoundException e) {
+            } catch (IOException e) {
                 throw new RuntimeException("Failed to open output file", e);
             }
         } else {  // otherwise, dump to System.out
@@ -140,64 +188,217 @@ public class ResultProcessor {
         }
     }
 
+    /**
+     * Opens output stream of given file, which is compressed by gzip
+     * if the file name ends with {@link #GZIP_SUFFIX}.
+     */
+    private static OutputStream openOutput(File file) throws IOException {
+        OutputStream out = new FileOutputStream(file);
+        if (file.getName().endsWith(GZIP_SUFFIX)) {
+            out = new GZIPOutputStream(out, BUFFER_SIZE);
+        }
+        return new BufferedOutputStream(out, BUFFER_SIZE);
+    }
+
     private static void dumpPointers(PrintStream out, Collection<? extends Pointer> pointers, String desc) {
         out.println(HEADER + desc);
-        pointers.stream()
-                .sorted(Comparator.comparing(Pointer::toString))
-                .forEach(p -> out.println(p + SEP + toString(p.getPointsToSet())));
+        try (SortedLines lines = sortPointers(pointers)) {
+            lines.forEach(out::println);
+        }
         out.println();
     }
 
-    private static void comparePointsToSet(PointerAnalysisResult result, String input) {
+    /**
+     * @return lines of given pointers and their points-to sets,
+     * sorted by the pointers.
+     */
+    private static SortedLines sortPointers(Collection<? extends Pointer> pointers) {
+        SortedLines lines = new SortedLines(ResultProcessor::comparePointers);
+        pointers.forEach(p -> lines.add(p + SEP + toString(p.getPointsToSet())));
+        return lines;
+    }
+
+    /**
+     * Compares two lines of points-to sets by their pointers, which
+     * is consistent with comparing the strings of the pointers.
+     * The pointers are not extracted as strings to avoid allocations
+     * in sorting.
+     */
+    private static int comparePointers(String line1, String line2) {
+        int end1 = line1.indexOf(SEP);
+        int end2 = line2.indexOf(SEP);
+        int end = Math.min(end1, end2);
+        for (int i = 0; i < end; ++i) {
+            char c1 = line1.charAt(i);
+            char c2 = line2.charAt(i);
+            if (c1 != c2) {
+                return c1 - c2;
+            }
+        }
+        return end1 - end2;
+    }
+
+    /**
+     * Compares the points-to sets with the ones in input file, which is
+     * dumped by {@link #dumpPointsToSet}. As the pointers of each part
+     * of the file are sorted, this method walks the input file and the
+     * sorted pointers of the result side by side, without loading
+     * either side in memory.
+     */
+    private static void comparePointsToSet(PointerAnalysisResult result,
+                                           String input, int maxMismatches) {
         logger.info("Comparing points-to set with {} ...", input);
-        var inputs = readPointsToSets(input);
-        Map<String, Pointer> pointers = new LinkedHashMap<>();
-        addPointers(pointers, result.getCSVars());
-        addPointers(pointers, result.getStaticFields());
-        addPointers(pointers, result.getInstanceFields());
-        addPointers(pointers, result.getArrayIndexes());
         List<String> mismatches = new ArrayList<>();
-        pointers.forEach((pointerStr, pointer) -> {
-            String given = toString(pointer.getPointsToSet());
-            String expected = inputs.get(pointerStr);
-            if (!given.equals(expected)) {
+        int[] count = { 0 };
+        BiConsumer<String, String> mismatch = (expected, given) -> {
+            if (count[0]++ < maxMismatches) {
+                String line = expected != null ? expected : given;
                 mismatches.add(String.format("%s, expected: %s, given: %s",
-                        pointerStr, expected, given));
+                        line.substring(0, line.indexOf(SEP)),
+                        getPointsToSet(expected), getPointsToSet(given)));
+            }
+        };
+        List<Collection<? extends Pointer>> parts = List.of(
+                result.getCSVars(), result.getStaticFields(),
+                result.getInstanceFields(), result.getArrayIndexes());
+        try (PointsToSetReader reader = new PointsToSetReader(input)) {
+            for (int part = 0; part < parts.size(); ++part) {
+                try (SortedLines lines = sortPointers(parts.get(part))) {
+                    Iterator<String> givenIter = lines.iterator();
+                    String given = givenIter.hasNext() ? givenIter.next() : null;
+                    String expected = reader.peek(part);
+                    while (given != null || expected != null) {
+                        int cmp = given == null ? -1 : expected == null ? 1
+                                : comparePointers(expected, given);
+                        if (cmp <= 0) {
+                            if (cmp < 0) {
+                                mismatch.accept(expected, null);
+                            } else if (!expected.equals(given)) {
+                                mismatch.accept(expected, given);
+                            }
+                            reader.next();
+                            expected = reader.peek(part);
+                        }
+                        if (cmp >= 0) {
+                            if (cmp > 0) {
+                                mismatch.accept(null, given);
+                            }
+                            given = givenIter.hasNext() ? givenIter.next() : null;
+                        }
+                    }
+                }
             }
-        });
-        inputs.keySet()
-                .stream()
-                .filter(Predicate.not(pointers::containsKey))
-                .forEach(pointerStr -> {
-                    String expected = inputs.get(pointerStr);
-                    mismatches.add(String.format("%s, expected: %s, given: null",
-                            pointerStr, expected));
-                });
-        if (!mismatches.isEmpty()) {
+            // the pointers in the remaining parts of input file are
+            // absent in the result
+            for (String expected; (expected = reader.peek(-1)) != null; reader.next()) {
+                mismatch.accept(expected, null);
+            }
+        }
+        if (count[0] > 0) {
+            String more = count[0] > maxMismatches
+                    ? "\n... and " + (count[0] - maxMismatches) + " more"
+                    : "";
             throw new AnalysisException("Mismatches of points-to set\n" +
-                    String.join("\n", mismatches));
+                    String.join("\n", mismatches) + more);
         }
     }
 
-    private static Map<String, String> readPointsToSets(String input) {
-        try {
-            Map<String, String> result = new LinkedHashMap<>();
-            Files.lines(Path.of(input))
-                    .filter(line -> line.contains(SEP))
-                    .map(line -> line.split(SEP))
-                    .forEach(s -> result.put(s[0], s[1]));
-            return result;
-        } catch (IOException e) {
-            throw new AnalysisException(
-                    "Failed to read points-to set from " + input, e);
-        }
+    /**
+     * @return the points-to set in given line, or null if line is null.
+     */
+    private static String getPointsToSet(String line) {
+        return line != null ? line.substring(line.indexOf(SEP) + SEP.length()) : null;
     }
 
-    private static void addPointers(Map<String, Pointer> map,
-                                    Collection<? extends Pointer> pointers) {
-        pointers.stream()
-                .sorted(Comparator.comparing(Pointer::toString))
-                .forEach(p -> map.put(p.toString(), p));
+    /**
+     * Reads the lines of points-to sets from a dumped file (which can be
+     * compressed by gzip), and tracks the part of the file that
+     * each line belongs to.
+     */
+    private static final class PointsToSetReader implements AutoCloseable {
+
+        private final String input;
+
+        private final BufferedReader reader;
+
+        private int lineNumber = 0;
+
+        private int headers = 0;
+
+        /**
+         * Next line of points-to set, or null if reaching the end.
+         */
+        private String next;
+
+        /**
+         * Part of {@link #next}.
+         */
+        private int part;
+
+        private String previous;
+
+        private PointsToSetReader(String input) {
+            this.input = input;
+            try {
+                InputStream in = new FileInputStream(input);
+                if (input.endsWith(GZIP_SUFFIX)) {
+                    in = new GZIPInputStream(in, BUFFER_SIZE);
+                }
+                reader = new BufferedReader(
+                        new InputStreamReader(in, StandardCharsets.UTF_8), BUFFER_SIZE);
+            } catch (IOException e) {
+                throw new AnalysisException(
+                        "Failed to read points-to set from " + input, e);
+            }
+            next();
+        }
+
+        /**
+         * @return next line of points-to set if it belongs to given part
+         * (or any part if given part is -1), otherwise null.
+         */
+        private String peek(int part) {
+            return part == -1 || part == this.part ? next : null;
+        }
+
+        private void next() {
+            previous = next;
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    ++lineNumber;
+                    if (line.startsWith(HEADER)) {
+                        ++headers;
+                        previous = null;
+                    } else if (line.contains(SEP)) {
+                        next = line;
+                        // the lines before the first header are regarded
+                        // as the first part
+                        part = Math.max(0, headers - 1);
+                        if (previous != null && comparePointers(previous, next) >= 0) {
+                            throw new AnalysisException(String.format(
+                                    "Points-to sets in %s are not sorted at line %d",
+                                    input, lineNumber));
+                        }
+                        return;
+                    }
+                }
+            } catch (IOException e) {
+                throw new AnalysisException(
+                        "Failed to read points-to set from " + input, e);
+            }
+            next = null;
+            part = -1;
+        }
+
+        @Override
+        public void close() {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                throw new AnalysisException("Failed to close " + input, e);
+            }
+        }
     }
 
     private static String toString(PointsToSet pts) {
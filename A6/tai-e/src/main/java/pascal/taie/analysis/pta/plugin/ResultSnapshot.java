@@ -0,0 +1,644 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.plugin;
+
+import pascal.taie.analysis.graph.callgraph.CallGraph;
+import pascal.taie.analysis.pta.PointerAnalysisResult;
+import pascal.taie.analysis.pta.core.cs.element.ArrayIndex;
+import pascal.taie.analysis.pta.core.cs.element.CSObj;
+import pascal.taie.analysis.pta.core.cs.element.CSVar;
+import pascal.taie.analysis.pta.core.cs.element.InstanceField;
+import pascal.taie.analysis.pta.core.cs.element.Pointer;
+import pascal.taie.analysis.pta.core.cs.element.StaticField;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.util.AnalysisException;
+import pascal.taie.util.collection.Maps;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Binary snapshot of pointer analysis result, which can be reloaded
+ * by downstream tools without re-solving.
+ * <p>
+ * The reader memory-maps the snapshot and answers the queries lazily,
+ * i.e., it only decodes the strings and points-to sets being queried.
+ * As the reader does not need the World, program elements are identified
+ * by the same strings as in the dumped results, e.g., a variable is
+ * identified by "&lt;method&gt;/name", and a call site by the string
+ * of its {@link Invoke}. The lists returned by the queries are views
+ * of the snapshot.
+ * <p>
+ * The snapshot consists of big-endian ints, and thus is limited to 2GB:
+ * <pre>
+ * header:  magic, version, offset of each section
+ * strings: sorted string tables of variables, objects, contexts,
+ *          fields, methods and call sites
+ * CS objects: (object, context) of each CS object, sorted
+ * CSRs:    points-to sets of CS variables, variables (context-insensitive),
+ *          static fields, instance fields and array indexes, the call
+ *          sites in each method, and the callees of each call site
+ * </pre>
+ * A string table consists of the number of strings, their byte offsets
+ * and the UTF-8 bytes. A CSR (compressed sparse row) consists of the
+ * number of rows, the number of key columns, the sorted keys of the rows
+ * (omitted if the rows are dense ids), the offsets of the rows and the data.
+ */
+public final class ResultSnapshot {
+
+    private static final int MAGIC = 0x54414945; // "TAIE"
+
+    private static final int VERSION = 1;
+
+    // sections
+    private static final int VARS = 0;
+    private static final int OBJS = 1;
+    private static final int CONTEXTS = 2;
+    private static final int FIELDS = 3;
+    private static final int METHODS = 4;
+    private static final int CALL_SITES = 5;
+    private static final int CS_OBJS = 6;
+    private static final int CS_VAR_PTS = 7;
+    private static final int VAR_PTS = 8;
+    private static final int STATIC_FIELD_PTS = 9;
+    private static final int INSTANCE_FIELD_PTS = 10;
+    private static final int ARRAY_INDEX_PTS = 11;
+    private static final int METHOD_CALL_SITES = 12;
+    private static final int CALLEES = 13;
+    private static final int SECTION_COUNT = 14;
+
+    private final ByteBuffer buffer;
+
+    private final StringTable vars;
+
+    private final StringTable objs;
+
+    private final StringTable contexts;
+
+    private final StringTable fields;
+
+    private final StringTable methods;
+
+    private final StringTable callSites;
+
+    private final int csObjs;
+
+    private final Csr csVarPts;
+
+    private final Csr varPts;
+
+    private final Csr staticFieldPts;
+
+    private final Csr instanceFieldPts;
+
+    private final Csr arrayIndexPts;
+
+    private final Csr methodCallSites;
+
+    private final Csr callees;
+
+    private ResultSnapshot(ByteBuffer buffer) {
+        this.buffer = buffer;
+        if (buffer.limit() < 8 + 4 * SECTION_COUNT
+                || buffer.getInt(0) != MAGIC) {
+            throw new AnalysisException("Not a pointer analysis snapshot");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new AnalysisException("Unsupported snapshot version: "
+                    + buffer.getInt(4));
+        }
+        IntFunction<Integer> section = i -> buffer.getInt(8 + 4 * i);
+        vars = new StringTable(section.apply(VARS));
+        objs = new StringTable(section.apply(OBJS));
+        contexts = new StringTable(section.apply(CONTEXTS));
+        fields = new StringTable(section.apply(FIELDS));
+        methods = new StringTable(section.apply(METHODS));
+        callSites = new StringTable(section.apply(CALL_SITES));
+        csObjs = section.apply(CS_OBJS);
+        csVarPts = new Csr(section.apply(CS_VAR_PTS));
+        varPts = new Csr(section.apply(VAR_PTS));
+        staticFieldPts = new Csr(section.apply(STATIC_FIELD_PTS));
+        instanceFieldPts = new Csr(section.apply(INSTANCE_FIELD_PTS));
+        arrayIndexPts = new Csr(section.apply(ARRAY_INDEX_PTS));
+        methodCallSites = new Csr(section.apply(METHOD_CALL_SITES));
+        callees = new Csr(section.apply(CALLEES));
+    }
+
+    /**
+     * Memory-maps the snapshot in given file.
+     */
+    public static ResultSnapshot open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new ResultSnapshot(channel.map(
+                    FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * @return all variables in the snapshot.
+     */
+    public List<String> getVars() {
+        return vars.asList();
+    }
+
+    /**
+     * @return all reachable methods in the snapshot.
+     */
+    public List<String> getReachableMethods() {
+        return methods.asList();
+    }
+
+    /**
+     * @return objects pointed to by given variable (context-insensitive).
+     */
+    public List<String> getPointsToSet(String var) {
+        int id = vars.indexOf(var);
+        return id < 0 ? List.of() : varPts.getRow(id, objs::get);
+    }
+
+    /**
+     * @return CS objects pointed to by given variable in given context.
+     */
+    public List<String> getPointsToSet(String context, String var) {
+        return getCSObjs(csVarPts, vars.indexOf(var), contexts.indexOf(context));
+    }
+
+    /**
+     * @return CS objects pointed to by given static field.
+     */
+    public List<String> getStaticFieldPointsToSet(String field) {
+        return getCSObjs(staticFieldPts, fields.indexOf(field));
+    }
+
+    /**
+     * @return CS objects pointed to by given field of given CS object.
+     */
+    public List<String> getInstanceFieldPointsToSet(
+            String context, String obj, String field) {
+        return getCSObjs(instanceFieldPts,
+                getCSObj(context, obj), fields.indexOf(field));
+    }
+
+    /**
+     * @return CS objects pointed to by the elements of given CS array object.
+     */
+    public List<String> getArrayIndexPointsToSet(String context, String obj) {
+        return getCSObjs(arrayIndexPts, getCSObj(context, obj));
+    }
+
+    /**
+     * @return the call sites in given method.
+     */
+    public List<String> getCallSitesIn(String method) {
+        int id = methods.indexOf(method);
+        return id < 0 ? List.of() : methodCallSites.getRow(id, callSites::get);
+    }
+
+    /**
+     * @return the callees of given call site.
+     */
+    public List<String> getCalleesOf(String callSite) {
+        int id = callSites.indexOf(callSite);
+        return id < 0 ? List.of() : callees.getRow(id, methods::get);
+    }
+
+    private List<String> getCSObjs(Csr csr, int... key) {
+        for (int k : key) {
+            if (k < 0) {
+                return List.of();
+            }
+        }
+        int row = csr.findRow(key);
+        return row < 0 ? List.of() : csr.getRow(row, this::getCSObj);
+    }
+
+    /**
+     * @return string of the CS object of given id, i.e., "context:object".
+     */
+    private String getCSObj(int id) {
+        int pos = csObjs + 4 + 8 * id;
+        return contexts.get(buffer.getInt(pos + 4)) + ":"
+                + objs.get(buffer.getInt(pos));
+    }
+
+    /**
+     * @return id of the CS object, or -1 if it is absent.
+     */
+    private int getCSObj(String context, String obj) {
+        int objId = objs.indexOf(obj);
+        int ctxId = contexts.indexOf(context);
+        if (objId < 0 || ctxId < 0) {
+            return -1;
+        }
+        int low = 0, high = buffer.getInt(csObjs) - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int pos = csObjs + 4 + 8 * mid;
+            int cmp = Integer.compare(buffer.getInt(pos), objId);
+            if (cmp == 0) {
+                cmp = Integer.compare(buffer.getInt(pos + 4), ctxId);
+            }
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Sorted string table in the snapshot.
+     */
+    private class StringTable {
+
+        private final int size;
+
+        private final int offsets;
+
+        private final int bytes;
+
+        private StringTable(int pos) {
+            size = buffer.getInt(pos);
+            offsets = pos + 4;
+            bytes = offsets + 4 * (size + 1);
+        }
+
+        private String get(int id) {
+            int start = buffer.getInt(offsets + 4 * id);
+            int end = buffer.getInt(offsets + 4 * (id + 1));
+            byte[] b = new byte[end - start];
+            buffer.get(bytes + start, b);
+            return new String(b, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * @return id of given string, or -1 if it is absent.
+         */
+        private int indexOf(String s) {
+            int low = 0, high = size - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int cmp = get(mid).compareTo(s);
+                if (cmp < 0) {
+                    low = mid + 1;
+                } else if (cmp > 0) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -1;
+        }
+
+        private List<String> asList() {
+            return new AbstractList<>() {
+                @Override
+                public String get(int index) {
+                    return StringTable.this.get(index);
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+        }
+    }
+
+    /**
+     * Compressed sparse rows in the snapshot.
+     */
+    private class Csr {
+
+        private final int rows;
+
+        private final int columns;
+
+        private final int keys;
+
+        private final int offsets;
+
+        private final int data;
+
+        private Csr(int pos) {
+            rows = buffer.getInt(pos);
+            columns = buffer.getInt(pos + 4);
+            keys = pos + 8;
+            offsets = keys + 4 * rows * columns;
+            data = offsets + 4 * (rows + 1);
+        }
+
+        /**
+         * @return the row of given key, or -1 if it is absent.
+         */
+        private int findRow(int... key) {
+            int low = 0, high = rows - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int cmp = 0;
+                for (int i = 0; i < columns && cmp == 0; ++i) {
+                    cmp = Integer.compare(
+                            buffer.getInt(keys + 4 * (mid * columns + i)), key[i]);
+                }
+                if (cmp < 0) {
+                    low = mid + 1;
+                } else if (cmp > 0) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -1;
+        }
+
+        private List<String> getRow(int row, IntFunction<String> toString) {
+            int start = buffer.getInt(offsets + 4 * row);
+            int size = buffer.getInt(offsets + 4 * (row + 1)) - start;
+            return new AbstractList<>() {
+                @Override
+                public String get(int index) {
+                    return toString.apply(buffer.getInt(data + 4 * (start + index)));
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+        }
+    }
+
+    /**
+     * @return the string which identifies given variable in snapshots.
+     */
+    public static String toString(Var var) {
+        return var.getMethod() + "/" + var.getName();
+    }
+
+    /**
+     * Writes the snapshot of given result to given file.
+     */
+    public static void write(PointerAnalysisResult result, Path file)
+            throws IOException {
+        new Writer(result).write(file);
+    }
+
+    private static class Writer {
+
+        private final PointerAnalysisResult result;
+
+        private final CallGraph<Invoke, JMethod> callGraph;
+
+        private final Map<String, Integer> varIds;
+
+        private final Map<String, Integer> objIds;
+
+        private final Map<String, Integer> contextIds;
+
+        private final Map<String, Integer> fieldIds;
+
+        private final Map<String, Integer> methodIds;
+
+        private final Map<String, Integer> callSiteIds;
+
+        private final Map<CSObj, Integer> csObjIds = Maps.newMap();
+
+        private final List<CSObj> csObjList;
+
+        private Writer(PointerAnalysisResult result) {
+            this.result = result;
+            callGraph = result.getCallGraph();
+            varIds = makeIds(result.getVars(), ResultSnapshot::toString);
+            objIds = makeIds(result.getCSObjects(), o -> o.getObject().toString());
+            List<Object> contextHolders = new ArrayList<>(result.getCSVars());
+            contextHolders.addAll(result.getCSObjects());
+            contextIds = makeIds(contextHolders, e -> e instanceof CSVar v ?
+                    v.getContext().toString() :
+                    ((CSObj) e).getContext().toString());
+            List<Object> fieldHolders = new ArrayList<>(result.getStaticFields());
+            fieldHolders.addAll(result.getInstanceFields());
+            fieldIds = makeIds(fieldHolders, e -> e instanceof StaticField f ?
+                    f.getField().toString() :
+                    ((InstanceField) e).getField().toString());
+            methodIds = makeIds(callGraph.reachableMethods().toList(),
+                    JMethod::toString);
+            callSiteIds = makeIds(callGraph.reachableMethods()
+                    .flatMap(callGraph::callSitesIn)
+                    .toList(), Invoke::toString);
+            csObjList = new ArrayList<>(result.getCSObjects());
+            csObjList.sort(Comparator
+                    .comparingInt((CSObj o) -> objIds.get(o.getObject().toString()))
+                    .thenComparingInt(o -> contextIds.get(o.getContext().toString())));
+            for (int i = 0; i < csObjList.size(); ++i) {
+                csObjIds.put(csObjList.get(i), i);
+            }
+        }
+
+        private static <T> Map<String, Integer> makeIds(
+                Collection<T> elems, Function<T, String> toString) {
+            TreeSet<String> sorted = new TreeSet<>();
+            elems.forEach(e -> sorted.add(toString.apply(e)));
+            Map<String, Integer> ids = new LinkedHashMap<>();
+            sorted.forEach(s -> ids.put(s, ids.size()));
+            return ids;
+        }
+
+        private void write(Path file) throws IOException {
+            int[] sections = new int[SECTION_COUNT];
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(file)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                for (int i = 0; i < SECTION_COUNT; ++i) {
+                    out.writeInt(0); // patched below
+                }
+                sections[VARS] = writeStrings(out, varIds);
+                sections[OBJS] = writeStrings(out, objIds);
+                sections[CONTEXTS] = writeStrings(out, contextIds);
+                sections[FIELDS] = writeStrings(out, fieldIds);
+                sections[METHODS] = writeStrings(out, methodIds);
+                sections[CALL_SITES] = writeStrings(out, callSiteIds);
+                sections[CS_OBJS] = out.size();
+                out.writeInt(csObjList.size());
+                for (CSObj csObj : csObjList) {
+                    out.writeInt(objIds.get(csObj.getObject().toString()));
+                    out.writeInt(contextIds.get(csObj.getContext().toString()));
+                }
+                sections[CS_VAR_PTS] = writePointers(out, result.getCSVars(),
+                        v -> new int[]{ varIds.get(ResultSnapshot.toString(v.getVar())),
+                                contextIds.get(v.getContext().toString()) });
+                sections[VAR_PTS] = writeVarPts(out);
+                sections[STATIC_FIELD_PTS] = writePointers(out, result.getStaticFields(),
+                        f -> new int[]{ fieldIds.get(f.getField().toString()) });
+                sections[INSTANCE_FIELD_PTS] = writePointers(out, result.getInstanceFields(),
+                        f -> new int[]{ csObjIds.get(f.getBase()),
+                                fieldIds.get(f.getField().toString()) });
+                sections[ARRAY_INDEX_PTS] = writePointers(out, result.getArrayIndexes(),
+                        a -> new int[]{ csObjIds.get(a.getArray()) });
+                sections[METHOD_CALL_SITES] = writeCallSites(out);
+                sections[CALLEES] = writeCallees(out);
+            }
+            try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+                raf.seek(8);
+                for (int section : sections) {
+                    raf.writeInt(section);
+                }
+            }
+        }
+
+        private static int writeStrings(DataOutputStream out, Map<String, Integer> ids)
+                throws IOException {
+            int pos = out.size();
+            List<byte[]> bytes = new ArrayList<>(ids.size());
+            ids.keySet().forEach(s -> bytes.add(s.getBytes(StandardCharsets.UTF_8)));
+            out.writeInt(bytes.size());
+            int offset = 0;
+            out.writeInt(offset);
+            for (byte[] b : bytes) {
+                offset += b.length;
+                out.writeInt(offset);
+            }
+            for (byte[] b : bytes) {
+                out.write(b);
+            }
+            return pos;
+        }
+
+        /**
+         * Writes points-to sets of given pointers as a CSR with sorted keys.
+         */
+        private <P extends Pointer> int writePointers(
+                DataOutputStream out, Collection<P> pointers,
+                Function<P, int[]> toKey) throws IOException {
+            List<int[]> keys = new ArrayList<>(pointers.size());
+            Map<int[], P> keyToPointer = Maps.newMap(); // identity of arrays
+            for (P pointer : pointers) {
+                int[] key = toKey.apply(pointer);
+                keys.add(key);
+                keyToPointer.put(key, pointer);
+            }
+            keys.sort(Arrays::compare);
+            int columns = keys.isEmpty() ? 0 : keys.get(0).length;
+            List<int[]> rows = new ArrayList<>(keys.size());
+            for (int[] key : keys) {
+                rows.add(keyToPointer.get(key).getPointsToSet()
+                        .objects()
+                        .mapToInt(csObjIds::get)
+                        .sorted()
+                        .toArray());
+            }
+            return writeCsr(out, keys, columns, rows);
+        }
+
+        private int writeVarPts(DataOutputStream out) throws IOException {
+            List<int[]> rows = new ArrayList<>(varIds.size());
+            Map<String, Var> vars = Maps.newMap();
+            result.getVars().forEach(v -> vars.put(ResultSnapshot.toString(v), v));
+            for (String var : varIds.keySet()) {
+                rows.add(result.getPointsToSet(vars.get(var))
+                        .stream()
+                        .mapToInt(o -> objIds.get(o.toString()))
+                        .sorted()
+                        .toArray());
+            }
+            return writeCsr(out, List.of(), 0, rows);
+        }
+
+        private int writeCallSites(DataOutputStream out) throws IOException {
+            Map<String, JMethod> methods = Maps.newMap();
+            callGraph.reachableMethods().forEach(m -> methods.put(m.toString(), m));
+            List<int[]> rows = new ArrayList<>(methodIds.size());
+            for (String method : methodIds.keySet()) {
+                rows.add(callGraph.callSitesIn(methods.get(method))
+                        .mapToInt(cs -> callSiteIds.get(cs.toString()))
+                        .sorted()
+                        .toArray());
+            }
+            return writeCsr(out, List.of(), 0, rows);
+        }
+
+        private int writeCallees(DataOutputStream out) throws IOException {
+            Map<String, Invoke> invokes = Maps.newMap();
+            callGraph.reachableMethods()
+                    .flatMap(callGraph::callSitesIn)
+                    .forEach(cs -> invokes.put(cs.toString(), cs));
+            List<int[]> rows = new ArrayList<>(callSiteIds.size());
+            for (String callSite : callSiteIds.keySet()) {
+                rows.add(callGraph.getCalleesOf(invokes.get(callSite))
+                        .stream()
+                        .mapToInt(m -> methodIds.get(m.toString()))
+                        .sorted()
+                        .toArray());
+            }
+            return writeCsr(out, List.of(), 0, rows);
+        }
+
+        private static int writeCsr(DataOutputStream out, List<int[]> keys,
+                                    int columns, List<int[]> rows) throws IOException {
+            int pos = out.size();
+            out.writeInt(rows.size());
+            out.writeInt(columns);
+            for (int[] key : keys) {
+                for (int k : key) {
+                    out.writeInt(k);
+                }
+            }
+            int offset = 0;
+            out.writeInt(offset);
+            for (int[] row : rows) {
+                offset += row.length;
+                out.writeInt(offset);
+            }
+            for (int[] row : rows) {
+                for (int id : row) {
+                    out.writeInt(id);
+                }
+            }
+            return pos;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.plugin;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * Sorts lines which may not fit in memory. The lines are buffered, and
+ * when the buffer is full, they are sorted and spilled to a temporary
+ * file as a chunk. The chunks are merged lazily when the lines are
+ * iterated, thus at most one buffer of lines is kept in memory.
+ */
+final class SortedLines implements Iterable<String>, AutoCloseable {
+
+    /**
+     * Default number of characters buffered before spilling a chunk.
+     */
+    static final long DEFAULT_BUFFER_SIZE = 1L << 24;
+
+    private final Comparator<String> order;
+
+    private final long bufferSize;
+
+    private final List<String> buffer = new ArrayList<>();
+
+    private long bufferedChars = 0;
+
+    private final List<Path> chunks = new ArrayList<>();
+
+    private final List<BufferedReader> readers = new ArrayList<>();
+
+    SortedLines(Comparator<String> order) {
+        this(order, DEFAULT_BUFFER_SIZE);
+    }
+
+    SortedLines(Comparator<String> order, long bufferSize) {
+        this.order = order;
+        this.bufferSize = bufferSize;
+    }
+
+    void add(String line) {
+        buffer.add(line);
+        bufferedChars += line.length();
+        if (bufferedChars >= bufferSize) {
+            spill();
+        }
+    }
+
+    private void spill() {
+        buffer.sort(order);
+        try {
+            Path chunk = Files.createTempFile("tai-e-sorted-", ".txt");
+            chunks.add(chunk);
+            try (BufferedWriter writer = Files.newBufferedWriter(chunk)) {
+                for (String line : buffer) {
+                    writer.write(line);
+                    writer.newLine();
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to spill sorted lines", e);
+        }
+        buffer.clear();
+        bufferedChars = 0;
+    }
+
+    /**
+     * @return iterator of the lines in order. As the chunks are read
+     * by the iterator, this method should be called only once.
+     */
+    @Override
+    public Iterator<String> iterator() {
+        buffer.sort(order);
+        if (chunks.isEmpty()) {
+            return buffer.iterator();
+        }
+        PriorityQueue<Head> heads = new PriorityQueue<>(
+                Comparator.comparing(h -> h.line, order));
+        new Head(buffer.iterator()).offerTo(heads);
+        for (Path chunk : chunks) {
+            try {
+                BufferedReader reader = Files.newBufferedReader(chunk);
+                readers.add(reader);
+                new Head(reader.lines().iterator()).offerTo(heads);
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to read sorted lines", e);
+            }
+        }
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return !heads.isEmpty();
+            }
+
+            @Override
+            public String next() {
+                Head head = heads.poll();
+                if (head == null) {
+                    throw new NoSuchElementException();
+                }
+                String line = head.line;
+                head.offerTo(heads);
+                return line;
+            }
+        };
+    }
+
+    /**
+     * Deletes the temporary files of the chunks.
+     */
+    @Override
+    public void close() {
+        try {
+            for (BufferedReader reader : readers) {
+                reader.close();
+            }
+            for (Path chunk : chunks) {
+                Files.deleteIfExists(chunk);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to delete sorted lines", e);
+        }
+        readers.clear();
+        chunks.clear();
+    }
+
+    /**
+     * The next line of a sorted chunk.
+     */
+    private static final class Head {
+
+        private final Iterator<String> lines;
+
+        private String line;
+
+        private Head(Iterator<String> lines) {
+            this.lines = lines;
+        }
+
+        /**
+         * Moves to the next line of the chunk, and adds this head to
+         * given queue if the chunk is not exhausted.
+         */
+        private void offerTo(PriorityQueue<Head> heads) {
+            if (lines.hasNext()) {
+                line = lines.next();
+                heads.add(this);
+            }
+        }
+    }
+}
@@ -0,0 +1,304 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.pts;
+
+import pascal.taie.analysis.pta.core.cs.element.CSManager;
+import pascal.taie.analysis.pta.core.cs.element.CSObj;
+import pascal.taie.util.collection.SparseBitSet;
+
+import java.lang.ref.WeakReference;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.PrimitiveIterator;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Points-to set whose content is a hash-consed, immutable bit vector.
+ * <p>
+ * When a set is updated by unioning another set (i.e., propagation
+ * along PFG edges), its new content is interned in a {@link Table},
+ * so the pointers which point to the same objects share one bit vector.
+ * The table refers to the contents weakly, thus the contents which are
+ * replaced by later updates are reclaimed once no set refers to them.
+ * <p>
+ * The contents which are unlikely to be shared are not interned:
+ * a set grown by {@link #addObject(CSObj)} updates its private copy of
+ * the content in place, and the differences returned by
+ * {@link #addAllDiff(PointsToSet)} are private to the returned sets.
+ * A private content is interned at the next union which changes it.
+ */
+class SharedPointsToSet implements PointsToSet {
+
+    private final Table table;
+
+    /**
+     * Bit vector of the object indexes, which is never modified
+     * if it is interned.
+     */
+    private SparseBitSet bits;
+
+    /**
+     * Whether {@link #bits} is interned.
+     */
+    private boolean interned;
+
+    SharedPointsToSet(Table table) {
+        this(table, table.empty, true);
+    }
+
+    private SharedPointsToSet(Table table, SparseBitSet bits, boolean interned) {
+        this.table = table;
+        this.bits = bits;
+        this.interned = interned;
+    }
+
+    @Override
+    public boolean addObject(CSObj obj) {
+        if (bits.contains(obj.getIndex())) {
+            return false;
+        }
+        makePrivate();
+        bits.add(obj.getIndex());
+        return true;
+    }
+
+    /**
+     * Copies the content of this set if it is interned, so that
+     * it can be modified in place.
+     */
+    private void makePrivate() {
+        if (interned) {
+            bits = bits.copy();
+            interned = false;
+        }
+    }
+
+    @Override
+    public boolean addAll(PointsToSet pts) {
+        if (pts instanceof SharedPointsToSet other) {
+            if (interned && other.interned) {
+                SparseBitSet result = table.union(bits, other.bits);
+                boolean changed = result != bits;
+                bits = result;
+                return changed;
+            }
+            SparseBitSet result = interned ? bits.copy() : bits;
+            if (!result.addAll(other.bits)) {
+                return false;
+            }
+            bits = table.intern(result);
+            interned = true;
+            return true;
+        }
+        boolean changed = false;
+        for (CSObj obj : pts) {
+            changed |= addObject(obj);
+        }
+        return changed;
+    }
+
+    @Override
+    public PointsToSet addAllDiff(PointsToSet pts) {
+        if (pts instanceof SharedPointsToSet other) {
+            SparseBitSet result = interned ? bits.copy() : bits;
+            SparseBitSet diff = result.addAllDiff(other.bits);
+            if (diff.isEmpty()) {
+                return new SharedPointsToSet(table);
+            }
+            bits = table.intern(result);
+            interned = true;
+            return new SharedPointsToSet(table, diff, false);
+        }
+        SparseBitSet diff = new SparseBitSet();
+        for (CSObj obj : pts) {
+            if (addObject(obj)) {
+                diff.add(obj.getIndex());
+            }
+        }
+        return new SharedPointsToSet(table, diff, false);
+    }
+
+    @Override
+    public boolean contains(CSObj obj) {
+        return bits.contains(obj.getIndex());
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return bits.isEmpty();
+    }
+
+    @Override
+    public int size() {
+        return bits.cardinality();
+    }
+
+    @Override
+    public Set<CSObj> getObjects() {
+        return new AbstractSet<>() {
+
+            @Override
+            public boolean contains(Object o) {
+                return o instanceof CSObj obj
+                        && SharedPointsToSet.this.contains(obj);
+            }
+
+            @Override
+            public Iterator<CSObj> iterator() {
+                return SharedPointsToSet.this.iterator();
+            }
+
+            @Override
+            public int size() {
+                return bits.cardinality();
+            }
+        };
+    }
+
+    @Override
+    public Stream<CSObj> objects() {
+        return getObjects().stream();
+    }
+
+    @Override
+    public Iterator<CSObj> iterator() {
+        PrimitiveIterator.OfInt it = bits.iterator();
+        return new Iterator<>() {
+
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public CSObj next() {
+                return table.csManager.getObject(it.nextInt());
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return getObjects().toString();
+    }
+
+    /**
+     * Table of the interned bit vectors and cached unions.
+     * The table is thread-safe, as the points-to sets of different
+     * pointers may be updated in parallel.
+     */
+    static class Table {
+
+        /**
+         * Number of entries of the union cache, must be a power of 2.
+         */
+        private static final int UNION_CACHE_SIZE = 1 << 12;
+
+        private final CSManager csManager;
+
+        /**
+         * Interned bit vectors. Both the keys and the values refer to
+         * the bit vectors weakly, so that the ones which are not used
+         * by any sets are reclaimed.
+         */
+        private final Map<SparseBitSet, WeakReference<SparseBitSet>> sets = new WeakHashMap<>();
+
+        /**
+         * Direct-mapped cache of the unions of interned bit vectors,
+         * which keeps at most {@link #UNION_CACHE_SIZE} unions alive.
+         * The entries are immutable, so the cache can be read and
+         * written without locking.
+         */
+        private final UnionEntry[] unions = new UnionEntry[UNION_CACHE_SIZE];
+
+        /**
+         * The empty bit vector, which is strongly referred here so that
+         * all empty sets share it.
+         */
+        private final SparseBitSet empty;
+
+        Table(CSManager csManager) {
+            this.csManager = csManager;
+            this.empty = intern(new SparseBitSet());
+        }
+
+        /**
+         * @return the interned bit vector which equals to given one.
+         */
+        private SparseBitSet intern(SparseBitSet bits) {
+            synchronized (sets) {
+                WeakReference<SparseBitSet> ref = sets.get(bits);
+                SparseBitSet interned = ref != null ? ref.get() : null;
+                if (interned == null) {
+                    sets.put(bits, new WeakReference<>(bits));
+                    interned = bits;
+                }
+                return interned;
+            }
+        }
+
+        /**
+         * @return the interned union of two interned bit vectors.
+         */
+        private SparseBitSet union(SparseBitSet bits1, SparseBitSet bits2) {
+            if (bits1 == bits2 || bits2.isEmpty()) {
+                return bits1;
+            }
+            if (bits1.isEmpty()) {
+                return bits2;
+            }
+            int slot = (31 * System.identityHashCode(bits1)
+                    + System.identityHashCode(bits2)) & (UNION_CACHE_SIZE - 1);
+            UnionEntry entry = unions[slot];
+            if (entry != null && entry.bits1 == bits1 && entry.bits2 == bits2) {
+                return entry.result;
+            }
+            SparseBitSet result = bits1.copy();
+            result.addAll(bits2);
+            result = intern(result);
+            unions[slot] = new UnionEntry(bits1, bits2, result);
+            return result;
+        }
+
+        /**
+         * @return the number of interned bit vectors which are not
+         * reclaimed yet.
+         */
+        int size() {
+            synchronized (sets) {
+                return sets.size();
+            }
+        }
+    }
+
+    /**
+     * Cached union of two interned bit vectors, which are compared
+     * by their identities.
+     */
+    private record UnionEntry(SparseBitSet bits1, SparseBitSet bits2,
+                              SparseBitSet result) {
+    }
+}
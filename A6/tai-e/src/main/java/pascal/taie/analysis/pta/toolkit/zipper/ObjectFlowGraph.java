@@ -0,0 +1,270 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.toolkit.zipper;
+
+import pascal.taie.analysis.graph.callgraph.CallGraph;
+import pascal.taie.analysis.pta.PointerAnalysisResult;
+import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.ir.exp.InstanceFieldAccess;
+import pascal.taie.ir.exp.InvokeInstanceExp;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.Cast;
+import pascal.taie.ir.stmt.Copy;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.ir.stmt.LoadArray;
+import pascal.taie.ir.stmt.LoadField;
+import pascal.taie.ir.stmt.New;
+import pascal.taie.ir.stmt.StmtVisitor;
+import pascal.taie.ir.stmt.StoreArray;
+import pascal.taie.ir.stmt.StoreField;
+import pascal.taie.language.classes.JField;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.MultiMap;
+import pascal.taie.util.collection.TwoKeyMap;
+
+import javax.annotation.Nullable;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Object flow graph built on the result of a context-insensitive
+ * pointer analysis. The nodes are variables and instance fields
+ * (including array indexes) of abstract objects, and an edge
+ * (source -> target) means that the objects pointed to by source
+ * may flow to target.
+ * <p>
+ * Besides the flow edges, the graph also records the wrapping and
+ * unwrapping relations between variables, so that the flows of the
+ * objects stored in other objects can be traced. For a store "x.f = y",
+ * y is wrapped by the objects pointed to by x, which are represented
+ * by the variables holding them at their allocation sites. For a load
+ * "y = x.f", x is unwrapped to y.
+ */
+class ObjectFlowGraph {
+
+    private final PointerAnalysisResult pta;
+
+    private final Map<Var, Node> varNodes = Maps.newMap();
+
+    private final TwoKeyMap<Obj, JField, Node> fieldNodes = Maps.newTwoKeyMap();
+
+    private final Map<Obj, Node> arrayNodes = Maps.newMap();
+
+    private final MultiMap<Node, Node> successors = Maps.newMultiMap();
+
+    /**
+     * Map from variable y to the allocation variables of the objects
+     * that wrap y by "x.f = y".
+     */
+    private final MultiMap<Node, Node> wrappers = Maps.newMultiMap();
+
+    /**
+     * Map from variable x to the variables y that unwrap x by "y = x.f".
+     */
+    private final MultiMap<Node, Node> unwrappers = Maps.newMultiMap();
+
+    ObjectFlowGraph(PointerAnalysisResult pta) {
+        this.pta = pta;
+        CallGraph<Invoke, JMethod> callGraph = pta.getCallGraph();
+        EdgeBuilder builder = new EdgeBuilder(callGraph);
+        callGraph.reachableMethods().forEach(method ->
+                method.getIR().forEach(stmt -> stmt.accept(builder)));
+    }
+
+    /**
+     * @return the node of given variable, or null if no objects
+     * flow in or out of the variable.
+     */
+    @Nullable
+    Node getVarNode(Var var) {
+        return varNodes.get(var);
+    }
+
+    Set<Node> getSuccsOf(Node node) {
+        return successors.get(node);
+    }
+
+    Set<Node> getWrappersOf(Node node) {
+        return wrappers.get(node);
+    }
+
+    Set<Node> getUnwrappersOf(Node node) {
+        return unwrappers.get(node);
+    }
+
+    private Node varNode(Var var) {
+        return varNodes.computeIfAbsent(var, Node::new);
+    }
+
+    private Node fieldNode(Obj base, JField field) {
+        return fieldNodes.computeIfAbsent(base, field, (b, f) -> new Node(null));
+    }
+
+    private Node arrayNode(Obj array) {
+        return arrayNodes.computeIfAbsent(array, a -> new Node(null));
+    }
+
+    private void addWrappers(Var value, Var base) {
+        for (Obj obj : pta.getPointsToSet(base)) {
+            if (obj.getAllocation() instanceof New alloc) {
+                wrappers.put(varNode(value), varNode(alloc.getLValue()));
+            }
+        }
+    }
+
+    private void addVarEdge(Var source, Var target) {
+        if (!pta.getPointsToSet(source).isEmpty()) {
+            successors.put(varNode(source), varNode(target));
+        }
+    }
+
+    private class EdgeBuilder implements StmtVisitor<Void> {
+
+        private final CallGraph<Invoke, JMethod> callGraph;
+
+        private EdgeBuilder(CallGraph<Invoke, JMethod> callGraph) {
+            this.callGraph = callGraph;
+        }
+
+        @Override
+        public Void visit(Copy stmt) {
+            addVarEdge(stmt.getRValue(), stmt.getLValue());
+            return null;
+        }
+
+        @Override
+        public Void visit(Cast stmt) {
+            addVarEdge(stmt.getRValue().getValue(), stmt.getLValue());
+            return null;
+        }
+
+        @Override
+        public Void visit(LoadField stmt) {
+            if (stmt.getFieldAccess() instanceof InstanceFieldAccess access) {
+                Var base = access.getBase();
+                Var lhs = stmt.getLValue();
+                JField field = stmt.getFieldRef().resolve();
+                for (Obj obj : pta.getPointsToSet(base)) {
+                    successors.put(fieldNode(obj, field), varNode(lhs));
+                }
+                if (!pta.getPointsToSet(lhs).isEmpty()) {
+                    unwrappers.put(varNode(base), varNode(lhs));
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public Void visit(StoreField stmt) {
+            if (stmt.getFieldAccess() instanceof InstanceFieldAccess access) {
+                Var base = access.getBase();
+                Var rhs = stmt.getRValue();
+                if (!pta.getPointsToSet(rhs).isEmpty()) {
+                    JField field = stmt.getFieldRef().resolve();
+                    for (Obj obj : pta.getPointsToSet(base)) {
+                        successors.put(varNode(rhs), fieldNode(obj, field));
+                    }
+                    addWrappers(rhs, base);
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public Void visit(LoadArray stmt) {
+            Var base = stmt.getArrayAccess().getBase();
+            Var lhs = stmt.getLValue();
+            for (Obj array : pta.getPointsToSet(base)) {
+                successors.put(arrayNode(array), varNode(lhs));
+            }
+            if (!pta.getPointsToSet(lhs).isEmpty()) {
+                unwrappers.put(varNode(base), varNode(lhs));
+            }
+            return null;
+        }
+
+        @Override
+        public Void visit(StoreArray stmt) {
+            Var base = stmt.getArrayAccess().getBase();
+            Var rhs = stmt.getRValue();
+            if (!pta.getPointsToSet(rhs).isEmpty()) {
+                for (Obj array : pta.getPointsToSet(base)) {
+                    successors.put(varNode(rhs), arrayNode(array));
+                }
+                addWrappers(rhs, base);
+            }
+            return null;
+        }
+
+        @Override
+        public Void visit(Invoke stmt) {
+            var invokeExp = stmt.getInvokeExp();
+            Var lhs = stmt.getLValue();
+            for (JMethod callee : callGraph.getCalleesOf(stmt)) {
+                var ir = callee.getIR();
+                if (invokeExp instanceof InvokeInstanceExp instanceExp
+                        && !callee.isStatic()) {
+                    addVarEdge(instanceExp.getBase(), ir.getThis());
+                }
+                for (int i = 0; i < invokeExp.getArgCount(); ++i) {
+                    addVarEdge(invokeExp.getArg(i), ir.getParam(i));
+                }
+                if (lhs != null) {
+                    for (Var ret : ir.getReturnVars()) {
+                        addVarEdge(ret, lhs);
+                    }
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Node of object flow graph. The nodes of instance fields
+     * have no variables.
+     */
+    static class Node {
+
+        @Nullable
+        private final Var var;
+
+        private Node(@Nullable Var var) {
+            this.var = var;
+        }
+
+        /**
+         * @return the variable represented by this node, or null if
+         * this node represents an instance field.
+         */
+        @Nullable
+        Var getVar() {
+            return var;
+        }
+
+        @Override
+        public String toString() {
+            return var != null ? var.toString() : "field-node";
+        }
+    }
+}
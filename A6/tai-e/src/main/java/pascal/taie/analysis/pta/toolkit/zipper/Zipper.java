@@ -0,0 +1,171 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.toolkit.zipper;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pascal.taie.analysis.pta.PointerAnalysisResult;
+import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.analysis.pta.toolkit.PointerAnalysisResultEx;
+import pascal.taie.analysis.pta.toolkit.PointerAnalysisResultExImpl;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.language.type.Type;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.MultiMap;
+import pascal.taie.util.collection.Sets;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Set;
+
+/**
+ * Selects precision-critical methods following the idea of Zipper,
+ * i.e., the methods that lie on the object flows which enter the
+ * methods of a class through the parameters and leave them through
+ * the return values. A context-insensitive analysis merges such flows
+ * of different receiver objects, so only these methods need to be
+ * analyzed context-sensitively.
+ * <p>
+ * For each type of receiver objects, the flows are traced in the
+ * object flow graph from the parameters of the methods invoked on
+ * the objects (IN methods) to the return variables of these methods
+ * (OUT methods). Besides the direct flows, the traversal also follows
+ * the wrapping flows ("x.f = y") into the objects that store the flowing
+ * objects, and the unwrapping flows ("y = x.f") inside these methods.
+ */
+public class Zipper {
+
+    private static final Logger logger = LogManager.getLogger(Zipper.class);
+
+    private final PointerAnalysisResultEx pta;
+
+    private final ObjectFlowGraph ofg;
+
+    /**
+     * @param pta result of context-insensitive pointer analysis.
+     */
+    public Zipper(PointerAnalysisResult pta) {
+        this.pta = new PointerAnalysisResultExImpl(pta);
+        this.ofg = new ObjectFlowGraph(pta);
+    }
+
+    /**
+     * @return the precision-critical methods.
+     */
+    public Set<JMethod> selectPrecisionCriticalMethods() {
+        MultiMap<Type, JMethod> type2Methods = Maps.newMultiMap();
+        for (Obj obj : pta.getBase().getObjects()) {
+            type2Methods.putAll(obj.getType(), pta.getMethodsInvokedOn(obj));
+        }
+        Set<JMethod> pcms = Sets.newSet();
+        for (Type type : type2Methods.keySet()) {
+            pcms.addAll(getPrecisionCriticalMethods(type2Methods.get(type)));
+        }
+        logger.info("{} of {} reachable methods are precision-critical",
+                pcms.size(), pta.getBase().getCallGraph().getNumberOfMethods());
+        return pcms;
+    }
+
+    /**
+     * @param methods the methods invoked on the objects of a type.
+     * @return the methods on the flows from the parameters of given
+     * methods to their return variables.
+     */
+    private Set<JMethod> getPrecisionCriticalMethods(Set<JMethod> methods) {
+        Set<ObjectFlowGraph.Node> outs = Sets.newSet();
+        for (JMethod method : methods) {
+            for (Var ret : method.getIR().getReturnVars()) {
+                addNode(outs, ret);
+            }
+        }
+        if (outs.isEmpty()) {
+            return Set.of();
+        }
+        // forward traversal from the parameters of IN methods
+        Set<ObjectFlowGraph.Node> reached = Sets.newSet();
+        for (JMethod method : methods) {
+            for (Var param : method.getIR().getParams()) {
+                addNode(reached, param);
+            }
+        }
+        MultiMap<ObjectFlowGraph.Node, ObjectFlowGraph.Node> preds = Maps.newMultiMap();
+        Deque<ObjectFlowGraph.Node> workList = new ArrayDeque<>(reached);
+        while (!workList.isEmpty()) {
+            ObjectFlowGraph.Node node = workList.poll();
+            if (outs.contains(node)) {
+                // the flow leaves the methods of the type
+                continue;
+            }
+            for (ObjectFlowGraph.Node succ : getSuccsOf(node, methods)) {
+                preds.put(succ, node);
+                if (reached.add(succ)) {
+                    workList.add(succ);
+                }
+            }
+        }
+        // backward traversal from the return variables of OUT methods
+        Set<ObjectFlowGraph.Node> flows = Sets.newSet();
+        for (ObjectFlowGraph.Node out : outs) {
+            if (reached.contains(out) && flows.add(out)) {
+                workList.add(out);
+            }
+        }
+        while (!workList.isEmpty()) {
+            for (ObjectFlowGraph.Node pred : preds.get(workList.poll())) {
+                if (flows.add(pred)) {
+                    workList.add(pred);
+                }
+            }
+        }
+        Set<JMethod> result = Sets.newSet();
+        for (ObjectFlowGraph.Node node : flows) {
+            Var var = node.getVar();
+            if (var != null) {
+                result.add(var.getMethod());
+            }
+        }
+        return result;
+    }
+
+    private void addNode(Set<ObjectFlowGraph.Node> nodes, Var var) {
+        ObjectFlowGraph.Node node = ofg.getVarNode(var);
+        if (node != null) {
+            nodes.add(node);
+        }
+    }
+
+    private Set<ObjectFlowGraph.Node> getSuccsOf(
+            ObjectFlowGraph.Node node, Set<JMethod> methods) {
+        Var var = node.getVar();
+        if (var == null) {
+            return ofg.getSuccsOf(node);
+        }
+        Set<ObjectFlowGraph.Node> result = Sets.newHybridSet(ofg.getSuccsOf(node));
+        result.addAll(ofg.getWrappersOf(node));
+        if (methods.contains(var.getMethod())) {
+            result.addAll(ofg.getUnwrappersOf(node));
+        }
+        return result;
+    }
+}
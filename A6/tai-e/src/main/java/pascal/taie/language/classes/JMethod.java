@@ -60,7 +60,12 @@ public class JMethod extends ClassMember {
      */
     private final Object methodSource;
 
-    private IR ir;
+    /**
+     * IR of this method, built on demand. It is volatile as the IR
+     * may be requested by multiple threads, e.g., by the parallel
+     * pointer analysis solver.
+     */
+    private volatile IR ir;
 
     public JMethod(JClass declaringClass, String name, Set<Modifier> modifiers,
                    List<Type> paramTypes, Type returnType, List<ClassType> exceptions,
@@ -149,18 +154,25 @@ public class JMethod extends ClassMember {
     }
 
     public IR getIR() {
-        if (ir == null) {
-            if (isAbstract()) {
-                throw new AnalysisException("Abstract method " + this +
-                        " has no method body");
-            }
-            if (isNative()) {
-                ir = World.get().getNativeModel().buildNativeIR(this);
-            } else {
-                ir = World.get().getIRBuilder().buildIR(this);
+        IR result = ir;
+        if (result == null) {
+            synchronized (this) {
+                result = ir;
+                if (result == null) {
+                    if (isAbstract()) {
+                        throw new AnalysisException("Abstract method " + this +
+                                " has no method body");
+                    }
+                    if (isNative()) {
+                        result = World.get().getNativeModel().buildNativeIR(this);
+                    } else {
+                        result = World.get().getIRBuilder().buildIR(this);
+                    }
+                    ir = result;
+                }
             }
         }
-        return ir;
+        return result;
     }
 
     /**
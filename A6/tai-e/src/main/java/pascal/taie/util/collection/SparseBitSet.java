@@ -0,0 +1,366 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.util.collection;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.IntConsumer;
+
+/**
+ * Sparse bit set of non-negative integers.
+ * <p>
+ * The bits are grouped into 64-bit words, and only the non-zero words
+ * are stored, sorted by their word indexes. Bulk operations, e.g.,
+ * {@link #addAll(SparseBitSet)} and {@link #addAllDiff(SparseBitSet)},
+ * merge two sets word by word instead of bit by bit.
+ */
+public class SparseBitSet {
+
+    private static final int ADDRESS_BITS_PER_WORD = 6;
+
+    private static final int DEFAULT_CAPACITY = 2;
+
+    private static final int[] EMPTY_INDEXES = {};
+
+    private static final long[] EMPTY_WORDS = {};
+
+    /**
+     * Sorted indexes of the non-zero words.
+     */
+    private int[] indexes;
+
+    /**
+     * The non-zero words, words[i] is the word at indexes[i].
+     */
+    private long[] words;
+
+    /**
+     * Number of words in use.
+     */
+    private int wordCount;
+
+    /**
+     * Number of bits set to true.
+     */
+    private int cardinality;
+
+    public SparseBitSet() {
+        indexes = EMPTY_INDEXES;
+        words = EMPTY_WORDS;
+    }
+
+    private SparseBitSet(int capacity) {
+        indexes = new int[capacity];
+        words = new long[capacity];
+    }
+
+    /**
+     * Sets the given bit to true.
+     *
+     * @return true if this set changed as a result of the call,
+     * otherwise false.
+     */
+    public boolean add(int bit) {
+        checkBit(bit);
+        int wordIndex = bit >>> ADDRESS_BITS_PER_WORD;
+        long mask = 1L << bit;
+        int pos = Arrays.binarySearch(indexes, 0, wordCount, wordIndex);
+        if (pos >= 0) {
+            long old = words[pos];
+            if ((old & mask) != 0) {
+                return false;
+            }
+            words[pos] = old | mask;
+        } else {
+            insertWord(-(pos + 1), wordIndex, mask);
+        }
+        ++cardinality;
+        return true;
+    }
+
+    /**
+     * @return true if the given bit is set, otherwise false.
+     */
+    public boolean contains(int bit) {
+        if (bit < 0) {
+            return false;
+        }
+        int pos = Arrays.binarySearch(indexes, 0, wordCount,
+                bit >>> ADDRESS_BITS_PER_WORD);
+        return pos >= 0 && (words[pos] & (1L << bit)) != 0;
+    }
+
+    /**
+     * Adds all bits of other set to this set.
+     *
+     * @return true if this set changed as a result of the call,
+     * otherwise false.
+     */
+    public boolean addAll(SparseBitSet other) {
+        int oldCardinality = cardinality;
+        union(other, null);
+        return cardinality != oldCardinality;
+    }
+
+    /**
+     * Adds all bits of other set to this set, and computes the difference
+     * between other set and this set (before the union) at the same time.
+     *
+     * @return a new set containing the bits that are set in other set
+     * but were not set in this set.
+     */
+    public SparseBitSet addAllDiff(SparseBitSet other) {
+        SparseBitSet diff = new SparseBitSet(other.wordCount);
+        union(other, diff);
+        diff.reverseWords();
+        return diff;
+    }
+
+    /**
+     * @return true if this set contains no bits, otherwise false.
+     */
+    public boolean isEmpty() {
+        return cardinality == 0;
+    }
+
+    /**
+     * @return the number of bits set to true in this set.
+     */
+    public int cardinality() {
+        return cardinality;
+    }
+
+    /**
+     * @return a copy of this set.
+     */
+    public SparseBitSet copy() {
+        SparseBitSet copy = new SparseBitSet(wordCount);
+        System.arraycopy(indexes, 0, copy.indexes, 0, wordCount);
+        System.arraycopy(words, 0, copy.words, 0, wordCount);
+        copy.wordCount = wordCount;
+        copy.cardinality = cardinality;
+        return copy;
+    }
+
+    /**
+     * Performs the given action for each set bit, in ascending order.
+     */
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < wordCount; ++i) {
+            int base = indexes[i] << ADDRESS_BITS_PER_WORD;
+            long word = words[i];
+            while (word != 0) {
+                action.accept(base + Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+    }
+
+    /**
+     * @return an iterator over the set bits, in ascending order.
+     */
+    public PrimitiveIterator.OfInt iterator() {
+        return new PrimitiveIterator.OfInt() {
+
+            private int pos = -1;
+
+            private long word;
+
+            @Override
+            public boolean hasNext() {
+                while (word == 0) {
+                    if (++pos >= wordCount) {
+                        return false;
+                    }
+                    word = words[pos];
+                }
+                return true;
+            }
+
+            @Override
+            public int nextInt() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                int bit = (indexes[pos] << ADDRESS_BITS_PER_WORD)
+                        + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+                return bit;
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        SparseBitSet that = (SparseBitSet) o;
+        return cardinality == that.cardinality
+                && Arrays.equals(indexes, 0, wordCount,
+                that.indexes, 0, that.wordCount)
+                && Arrays.equals(words, 0, wordCount,
+                that.words, 0, that.wordCount);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 1;
+        for (int i = 0; i < wordCount; ++i) {
+            result = 31 * result + indexes[i];
+            result = 31 * result + Long.hashCode(words[i]);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        forEach(bit -> {
+            if (sb.length() > 1) {
+                sb.append(", ");
+            }
+            sb.append(bit);
+        });
+        return sb.append('}').toString();
+    }
+
+    /**
+     * Merges the words of other set into this set. The merge runs from
+     * the highest word to the lowest one, so that it can be done in place
+     * after the arrays are grown to hold the words that are only in other.
+     *
+     * @param diff if not null, the newly-set bits are appended to it
+     *             in descending word order.
+     */
+    private void union(SparseBitSet other, SparseBitSet diff) {
+        int m = other.wordCount;
+        if (m == 0 || other == this) {
+            return;
+        }
+        int n = wordCount;
+        int missing = countMissingWords(other);
+        ensureCapacity(n + missing);
+        int[] otherIndexes = other.indexes;
+        long[] otherWords = other.words;
+        int i = n - 1, j = m - 1, k = n + missing - 1;
+        while (j >= 0) {
+            int otherIndex = otherIndexes[j];
+            if (i >= 0 && indexes[i] > otherIndex) {
+                indexes[k] = indexes[i];
+                words[k] = words[i];
+                --i;
+            } else {
+                long old = 0;
+                if (i >= 0 && indexes[i] == otherIndex) {
+                    old = words[i];
+                    --i;
+                }
+                long added = otherWords[j] & ~old;
+                indexes[k] = otherIndex;
+                words[k] = old | added;
+                if (added != 0) {
+                    cardinality += Long.bitCount(added);
+                    if (diff != null) {
+                        diff.appendWord(otherIndex, added);
+                    }
+                }
+                --j;
+            }
+            --k;
+        }
+        wordCount = n + missing;
+    }
+
+    /**
+     * @return the number of words that are in other set but not in this set.
+     */
+    private int countMissingWords(SparseBitSet other) {
+        int missing = 0;
+        int i = 0, j = 0;
+        while (j < other.wordCount) {
+            if (i < wordCount && indexes[i] < other.indexes[j]) {
+                ++i;
+            } else {
+                if (i < wordCount && indexes[i] == other.indexes[j]) {
+                    ++i;
+                } else {
+                    ++missing;
+                }
+                ++j;
+            }
+        }
+        return missing;
+    }
+
+    private void insertWord(int pos, int wordIndex, long word) {
+        ensureCapacity(wordCount + 1);
+        System.arraycopy(indexes, pos, indexes, pos + 1, wordCount - pos);
+        System.arraycopy(words, pos, words, pos + 1, wordCount - pos);
+        indexes[pos] = wordIndex;
+        words[pos] = word;
+        ++wordCount;
+    }
+
+    /**
+     * Appends a word without keeping the indexes sorted.
+     * Only used to collect the difference in {@link #union}.
+     */
+    private void appendWord(int wordIndex, long word) {
+        ensureCapacity(wordCount + 1);
+        indexes[wordCount] = wordIndex;
+        words[wordCount] = word;
+        ++wordCount;
+        cardinality += Long.bitCount(word);
+    }
+
+    private void reverseWords() {
+        for (int i = 0, j = wordCount - 1; i < j; ++i, --j) {
+            int index = indexes[i];
+            indexes[i] = indexes[j];
+            indexes[j] = index;
+            long word = words[i];
+            words[i] = words[j];
+            words[j] = word;
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > indexes.length) {
+            int newCapacity = Math.max(capacity,
+                    Math.max(DEFAULT_CAPACITY, indexes.length + (indexes.length >> 1)));
+            indexes = Arrays.copyOf(indexes, newCapacity);
+            words = Arrays.copyOf(words, newCapacity);
+        }
+    }
+
+    private static void checkBit(int bit) {
+        if (bit < 0) {
+            throw new IndexOutOfBoundsException("bit < 0: " + bit);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package pascal.taie.analysis.graph.callgraph;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import pascal.taie.Main;
+import pascal.taie.World;
+import pascal.taie.language.classes.JClass;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.language.classes.Subsignature;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class DispatchCacheTest {
+
+    private static final Subsignature SORT =
+            Subsignature.get("void sort(java.util.Comparator)");
+
+    private static final Subsignature BAR = Subsignature.get("void bar()");
+
+    @BeforeClass
+    public static void buildWorld() {
+        Main.main(new String[]{
+                "-pp", "-cp", "src/test/resources/callgraph/", "-m", "Dispatch",
+                "-a", "class-dumper"});
+    }
+
+    @Test
+    public void testAbstractMethodSkipped() {
+        DispatchCache cache = new DispatchCache(16);
+        JMethod bar = getClass("B").getDeclaredMethod(BAR);
+        assertEquals(bar, cache.dispatch(getClass("C"), BAR));
+        assertEquals(bar, cache.dispatch(getClass("B"), BAR));
+        // A only declares an abstract bar()
+        assertNull(cache.dispatch(getClass("A"), BAR));
+    }
+
+    @Test
+    public void testDefaultMethod() {
+        DispatchCache cache = new DispatchCache(16);
+        JMethod sort = getClass("java.util.List").getDeclaredMethod(SORT);
+        assertEquals(sort, cache.dispatch(getClass("java.util.LinkedList"), SORT));
+        // no superclass or superinterface of C declares sort()
+        assertNull(cache.dispatch(getClass("C"), SORT));
+    }
+
+    @Test
+    public void testHitsAndMisses() {
+        DispatchCache cache = new DispatchCache(16);
+        JClass c = getClass("C");
+        cache.dispatch(c, BAR);
+        cache.dispatch(c, BAR);
+        // failed dispatch is cached as well
+        cache.dispatch(c, SORT);
+        cache.dispatch(c, SORT);
+        assertEquals(2, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(0, cache.getEvictionCount());
+    }
+
+    @Test
+    public void testEviction() {
+        DispatchCache cache = new DispatchCache(2);
+        JMethod bar = getClass("B").getDeclaredMethod(BAR);
+        assertEquals(bar, cache.dispatch(getClass("B"), BAR));
+        assertEquals(bar, cache.dispatch(getClass("C"), BAR));
+        // the cache is full, so the third entry evicts all entries
+        assertNull(cache.dispatch(getClass("A"), BAR));
+        assertEquals(1, cache.getEvictionCount());
+        // the evicted entry is looked up again
+        assertEquals(bar, cache.dispatch(getClass("B"), BAR));
+        assertEquals(0, cache.getHitCount());
+        assertEquals(4, cache.getMissCount());
+        assertEquals(bar, cache.dispatch(getClass("B"), BAR));
+        assertEquals(1, cache.getHitCount());
+    }
+
+    private static JClass getClass(String name) {
+        return World.get().getClassHierarchy().getClass(name);
+    }
+}
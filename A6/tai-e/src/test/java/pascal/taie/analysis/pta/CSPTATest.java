@@ -84,6 +84,43 @@ public class CSPTATest {
         Tests.testCSPTA(DIR, "TwoType", "cs:2-type");
     }
 
+    @Test
+    public void testTemplateTwoContexts() {
+        // the template of make() is instantiated in two contexts
+        Tests.testCSPTA(DIR, "Template", "cs:2-call");
+    }
+
+    @Test
+    public void testTwoObjectBitVector() {
+        Tests.testCSPTA(DIR, "TwoObject", "cs:2-obj", "pts-impl:bit");
+    }
+
+    @Test
+    public void testTwoObjectShared() {
+        Tests.testCSPTA(DIR, "TwoObject", "cs:2-obj", "pts-impl:shared");
+    }
+
+    @Test
+    public void testTwoTypeArrayCSManager() {
+        Tests.testCSPTA(DIR, "TwoType", "cs:2-type", "cs-manager:array");
+    }
+
+    @Test
+    public void testTwoCallCoalescing() {
+        Tests.testCSPTA(DIR, "TwoCall", "cs:2-call", "worklist:coalescing");
+    }
+
+    @Test
+    public void testTwoObjectParallel() {
+        Tests.testCSPTA(DIR, "TwoObject", "cs:2-obj", "parallelism:4");
+    }
+
+    @Test
+    public void testTwoCallParallelTypeFilter() {
+        Tests.testCSPTA(DIR, "TwoCall", "cs:2-call", "parallelism:4",
+                "type-filter:true", "pts-impl:shared");
+    }
+
     @Test
     public void testStaticField() {
         Tests.testCSPTA(DIR, "StaticField");
@@ -93,4 +130,90 @@ public class CSPTATest {
     public void testArray() {
         Tests.testCSPTA(DIR, "Array");
     }
+
+    @Test
+    public void testCycle() {
+        Tests.testCSPTA(DIR, "Cycle");
+    }
+
+    @Test
+    public void testCycleCollapse() {
+        Tests.testCSPTA(DIR, "Cycle", "cycle-detection-interval:1");
+    }
+
+    @Test
+    public void testOneObjectTopological() {
+        Tests.testCSPTA(DIR, "OneObject", "cs:1-obj", "worklist:topo");
+    }
+
+    @Test
+    public void testTypeFilter() {
+        Tests.testCSPTA(DIR, "TypeFilter", "type-filter:true");
+    }
+
+    @Test
+    public void testTwoObjectScaler() {
+        Tests.testCSPTA(DIR, "TwoObject", "cs:scaler");
+    }
+
+    @Test
+    public void testSelectiveZipper() {
+        Tests.testCSPTA(DIR, "Selective", "cs:zipper");
+    }
+
+    @Test
+    public void testInstanceFieldSlotCSManager() {
+        Tests.testCSPTA(DIR, "InstanceField", "cs-manager:slot");
+    }
+
+    @Test
+    public void testInstanceFieldTimeBudget() {
+        // time budget is exceeded at once, so 2-obj degrades to ci
+        Tests.testCSPTA(DIR, "InstanceField", "cs:2-obj", "time-budget:0");
+    }
+
+    @Test
+    public void testTwoObjectTimeBudget() {
+        Tests.testDegradedCSPTA(DIR, "TwoObject", "cs:2-obj");
+    }
+
+    @Test
+    public void testTwoObjectIncremental() {
+        Tests.testIncrementalCSPTA(DIR, "TwoObject", "List", "cs:2-obj");
+    }
+
+    @Test
+    public void testIncrementalRemovingCall() {
+        Tests.testIncrementalCSPTARemovingCalls(DIR, "Incremental", "change", "cs:2-obj");
+    }
+
+    @Test
+    public void testTwoObjectSnapshot() {
+        Tests.testSnapshotCSPTA(DIR, "TwoObject", "cs:2-obj");
+    }
+
+    @Test
+    public void testTwoObjectCIProjection() {
+        Tests.testCIProjectionCSPTA(DIR, "TwoObject", "cs:2-obj");
+    }
+
+    @Test
+    public void testTwoObjectDump() {
+        Tests.testDumpCSPTA(DIR, "TwoObject", "cs:2-obj");
+    }
+
+    @Test
+    public void testTwoObjectProgress() {
+        Tests.testCSPTA(DIR, "TwoObject", "cs:2-obj", "progress-interval:0.001");
+    }
+
+    @Test
+    public void testTwoObjectCorruptedDump() {
+        Tests.testCorruptedDumpCSPTA(DIR, "TwoObject", 2, "cs:2-obj");
+    }
+
+    @Test
+    public void testTwoObjectMetrics() {
+        Tests.testMetricsCSPTA(DIR, "TwoObject", "cs:2-obj");
+    }
 }
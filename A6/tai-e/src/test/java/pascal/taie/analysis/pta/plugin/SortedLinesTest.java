@@ -0,0 +1,102 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.plugin;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SortedLinesTest {
+
+    private static final int LINES = 1000;
+
+    private static List<String> randomLines() {
+        Random random = new Random(0);
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < LINES; ++i) {
+            // few distinct lines, so that there are duplicates
+            lines.add("line" + random.nextInt(LINES / 4));
+        }
+        return lines;
+    }
+
+    private static List<String> sort(List<String> lines,
+                                     Comparator<String> order, long bufferSize) {
+        List<String> sorted = new ArrayList<>();
+        try (SortedLines sortedLines = new SortedLines(order, bufferSize)) {
+            lines.forEach(sortedLines::add);
+            sortedLines.forEach(sorted::add);
+        }
+        return sorted;
+    }
+
+    private static long countChunks() throws IOException {
+        try (Stream<Path> files = Files.list(Path.of(System.getProperty("java.io.tmpdir")))) {
+            return files.filter(f -> f.getFileName().toString().startsWith("tai-e-sorted-"))
+                    .count();
+        }
+    }
+
+    @Test
+    public void testInMemory() {
+        List<String> lines = randomLines();
+        List<String> expected = lines.stream().sorted().toList();
+        assertEquals(expected, sort(lines, Comparator.naturalOrder(),
+                SortedLines.DEFAULT_BUFFER_SIZE));
+    }
+
+    @Test
+    public void testTinyBuffer() throws IOException {
+        List<String> lines = randomLines();
+        List<String> expected = lines.stream().sorted().toList();
+        long chunks = countChunks();
+        // each chunk holds at most two lines
+        SortedLines sortedLines = new SortedLines(Comparator.naturalOrder(), 8);
+        lines.forEach(sortedLines::add);
+        assertTrue(countChunks() >= chunks + LINES / 2);
+        List<String> sorted = new ArrayList<>();
+        sortedLines.forEach(sorted::add);
+        sortedLines.close();
+        assertEquals(expected, sorted);
+        assertEquals(chunks, countChunks());
+    }
+
+    @Test
+    public void testTinyBufferCustomOrder() {
+        List<String> lines = randomLines();
+        Comparator<String> order = Comparator.comparing(String::length)
+                .thenComparing(Comparator.reverseOrder());
+        List<String> expected = lines.stream().sorted(order).toList();
+        assertEquals(expected, sort(lines, order, 1));
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.pts;
+
+import org.junit.Before;
+import org.junit.Test;
+import pascal.taie.analysis.pta.core.cs.context.ListContext;
+import pascal.taie.analysis.pta.core.cs.element.CSManager;
+import pascal.taie.analysis.pta.core.cs.element.CSObj;
+import pascal.taie.analysis.pta.core.cs.element.MapBasedCSManager;
+import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.language.type.Type;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SharedPointsToSetTest {
+
+    private static final int OBJECTS = 1000;
+
+    private SharedPointsToSet.Table table;
+
+    private CSObj[] objs;
+
+    @Before
+    public void setUp() {
+        CSManager csManager = new MapBasedCSManager();
+        objs = new CSObj[OBJECTS];
+        for (int i = 0; i < OBJECTS; ++i) {
+            objs[i] = csManager.getCSObj(ListContext.make(), new MockObj(i));
+        }
+        table = new SharedPointsToSet.Table(csManager);
+    }
+
+    @Test
+    public void testAddObjectNotInterned() {
+        SharedPointsToSet set = new SharedPointsToSet(table);
+        for (CSObj obj : objs) {
+            set.addObject(obj);
+        }
+        assertEquals(OBJECTS, set.size());
+        // only the empty bit vector is interned
+        assertEquals(1, table.size());
+    }
+
+    @Test
+    public void testReplacedContentsReclaimed() {
+        SharedPointsToSet set = new SharedPointsToSet(table);
+        for (CSObj obj : objs) {
+            SharedPointsToSet single = new SharedPointsToSet(table);
+            single.addObject(obj);
+            assertEquals(1, set.addAllDiff(single).size());
+        }
+        assertEquals(OBJECTS, set.size());
+        // the live interned contents are the empty one and the one of set
+        assertTableSize(2);
+    }
+
+    @Test
+    public void testEqualContentsShared() {
+        List<SharedPointsToSet> sets = new ArrayList<>();
+        SharedPointsToSet source = new SharedPointsToSet(table);
+        for (int i = 0; i < 10; ++i) {
+            source.addObject(objs[i]);
+        }
+        for (int i = 0; i < 100; ++i) {
+            SharedPointsToSet set = new SharedPointsToSet(table);
+            set.addAll(source);
+            set.addAllDiff(source);
+            sets.add(set);
+        }
+        sets.forEach(set -> assertEquals(10, set.size()));
+        assertTableSize(2);
+        // unions with the shared contents do not intern new contents
+        SharedPointsToSet set = new SharedPointsToSet(table);
+        sets.forEach(set::addAll);
+        assertTableSize(2);
+    }
+
+    @Test
+    public void testAddAllDiffOfOtherImplementation() {
+        PointsToSet hybrid = PointsToSetFactory.makeHybrid();
+        hybrid.addObject(objs[0]);
+        hybrid.addObject(objs[1]);
+        SharedPointsToSet set = new SharedPointsToSet(table);
+        set.addObject(objs[0]);
+        PointsToSet diff = set.addAllDiff(hybrid);
+        // the difference keeps the representation of set
+        assertTrue(diff instanceof SharedPointsToSet);
+        assertEquals(1, diff.size());
+        assertTrue(diff.contains(objs[1]));
+        assertEquals(2, set.size());
+    }
+
+    /**
+     * Collects garbage until the size of the table is at most given size.
+     */
+    private void assertTableSize(int expected) {
+        for (int i = 0; i < 50 && table.size() > expected; ++i) {
+            System.gc();
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        assertTrue("table size " + table.size() + " > " + expected,
+                table.size() <= expected);
+    }
+
+    private record MockObj(int id) implements Obj {
+
+        @Override
+        public Type getType() {
+            return null;
+        }
+
+        @Override
+        public Object getAllocation() {
+            return id;
+        }
+
+        @Override
+        public Optional<JMethod> getContainerMethod() {
+            return Optional.empty();
+        }
+
+        @Override
+        public Type getContainerType() {
+            return null;
+        }
+    }
+}
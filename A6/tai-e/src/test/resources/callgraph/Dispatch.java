@@ -0,0 +1,25 @@
+import java.util.LinkedList;
+import java.util.List;
+
+public class Dispatch {
+
+    public static void main(String[] args) {
+        A a = new C();
+        a.bar();
+        // LinkedList inherits default method sort() from List
+        List list = new LinkedList();
+        list.add(a);
+    }
+}
+
+abstract class A {
+    abstract void bar();
+}
+
+class B extends A {
+    void bar() {
+    }
+}
+
+class C extends B {
+}
@@ -0,0 +1,35 @@
+class Incremental {
+
+    public static void main(String[] args) {
+        A a = new A();
+        a.f = new B();
+        use(a);
+        change(a);
+    }
+
+    static void use(A a) {
+        B b = a.f;
+        b.m();
+    }
+
+    static void change(A a) {
+        A a2 = new A();
+        a2.f = new C();
+        a.f = a2.f;
+    }
+}
+
+class A {
+    B f;
+}
+
+class B {
+    void m() {
+    }
+}
+
+class C extends B {
+    void m() {
+        B b = new B();
+    }
+}
@@ -0,0 +1,38 @@
+class Selective {
+
+    public static void main(String[] args) {
+        Box b1 = new Box();
+        b1.set(new Object());
+        Box b2 = new Box();
+        b2.set(new Object());
+        Object o1 = b1.get();
+        Object o2 = b2.get();
+
+        Counter c1 = new Counter();
+        Counter c2 = new Counter();
+        c1.inc();
+        c2.inc();
+    }
+}
+
+class Box {
+
+    Object item;
+
+    void set(Object item) {
+        this.item = item;
+    }
+
+    Object get() {
+        return item;
+    }
+}
+
+class Counter {
+
+    int count;
+
+    void inc() {
+        count = count + 1;
+    }
+}
@@ -0,0 +1,39 @@
+class Template {
+
+    static Object last;
+
+    public static void main(String[] args) {
+        Box b1 = make(new Item());
+        Box b2 = make(new Thing());
+        Object x = b1.content; // x -> Item
+        Object y = b2.content; // y -> Thing
+        Object z = last; // z -> Item, Thing
+    }
+
+    /**
+     * Reached in two contexts, each of which instantiates the allocation,
+     * the local assignment, the field accesses and the static call.
+     */
+    static Box make(Object o) {
+        Box box = new Box();
+        Object p = o;
+        box.content = p;
+        last = p;
+        Object q = last;
+        return wrap(box);
+    }
+
+    static Box wrap(Box box) {
+        return box;
+    }
+}
+
+class Box {
+    Object content;
+}
+
+class Item {
+}
+
+class Thing {
+}
@@ -0,0 +1,32 @@
+class TypeFilter {
+
+    public static void main(String[] args) {
+        Object o1 = id(new A());
+        Object o2 = id(new B());
+        A a = (A) o1;
+        B b = (B) o2;
+        a.f = new C();
+        C c = use(a);
+        Object o3 = c;
+        A a2 = (A) o3;
+    }
+
+    static Object id(Object o) {
+        return o;
+    }
+
+    static C use(A a) {
+        Object o = a.f;
+        return (C) o;
+    }
+}
+
+class A {
+    Object f;
+}
+
+class B {
+}
+
+class C extends A {
+}
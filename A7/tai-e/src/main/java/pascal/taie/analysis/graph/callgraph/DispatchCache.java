@@ -0,0 +1,249 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.graph.callgraph;
+
+import pascal.taie.World;
+import pascal.taie.ir.proginfo.MethodRef;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.language.classes.ClassNames;
+import pascal.taie.language.classes.JClass;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.language.classes.Subsignature;
+import pascal.taie.language.type.ArrayType;
+import pascal.taie.language.type.ClassType;
+import pascal.taie.language.type.Type;
+import pascal.taie.util.AnalysisException;
+import pascal.taie.util.collection.Sets;
+
+import javax.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache of method dispatch, which maps (receiver class, subsignature)
+ * to the dispatched method, shared by the call graph builders.
+ * <p>
+ * The cache is safe for concurrent use. It is bounded by its capacity:
+ * when the number of entries reaches the capacity, all entries are
+ * evicted, so that the memory of the cache never grows beyond the
+ * capacity while the hot entries are quickly re-cached.
+ * <p>
+ * The entries are kept in one map per receiver class, so that a lookup
+ * allocates no key objects. The number of entries is tracked separately
+ * and may be slightly off when the cache is evicted concurrently with
+ * insertions, which only affects when the next eviction happens.
+ */
+public class DispatchCache {
+
+    /**
+     * Default maximum number of cached entries.
+     */
+    private static final int DEFAULT_CAPACITY = 1 << 16;
+
+    private static final DispatchCache cache = new DispatchCache(DEFAULT_CAPACITY);
+
+    static {
+        World.registerResetCallback(cache::clear);
+    }
+
+    private final int capacity;
+
+    /**
+     * Map from receiver class to subsignature to the dispatched method,
+     * or empty if the dispatch fails, as ConcurrentHashMap cannot
+     * contain null values.
+     */
+    private final ConcurrentMap<JClass, ConcurrentMap<Subsignature, Optional<JMethod>>> table =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Number of entries in {@link #table}.
+     */
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    public DispatchCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException(
+                    "Capacity of dispatch cache must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * @return the dispatch cache shared by the call graph builders.
+     */
+    public static DispatchCache get() {
+        return cache;
+    }
+
+    /**
+     * Resolves callee of a call site with the type of receiver object.
+     * This method is the cached counterpart of
+     * {@link CallGraphs#resolveCallee(Type, Invoke)}.
+     *
+     * @param type     type of the receiver object, ignored by the calls
+     *                 to static methods and by special calls.
+     * @param callSite the call site.
+     * @return the callee, or null if no callee can be found.
+     */
+    @Nullable
+    public JMethod resolveCallee(@Nullable Type type, Invoke callSite) {
+        MethodRef methodRef = callSite.getMethodRef();
+        if (callSite.isInterface() || callSite.isVirtual()) {
+            JClass jclass;
+            if (type instanceof ClassType classType) {
+                jclass = classType.getJClass();
+            } else if (type instanceof ArrayType) {
+                jclass = World.get().getClassHierarchy()
+                        .getJREClass(ClassNames.OBJECT);
+            } else {
+                throw new AnalysisException("Cannot dispatch " +
+                        methodRef + " on " + type);
+            }
+            return dispatch(jclass, methodRef.getSubsignature());
+        } else if (callSite.isSpecial() || callSite.isStatic()) {
+            return methodRef.resolveNullable();
+        } else {
+            throw new AnalysisException("Cannot resolve Invoke: " + callSite);
+        }
+    }
+
+    /**
+     * Looks up the non-abstract method of given subsignature in given
+     * class and its superclasses, and then in its superinterfaces.
+     *
+     * @return the dispatched method, or null if no such method is found.
+     */
+    @Nullable
+    public JMethod dispatch(JClass jclass, Subsignature subsignature) {
+        ConcurrentMap<Subsignature, Optional<JMethod>> methods = table.get(jclass);
+        Optional<JMethod> method = methods != null ? methods.get(subsignature) : null;
+        if (method != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+            method = Optional.ofNullable(lookup(jclass, subsignature));
+            if (size.get() >= capacity) {
+                evict();
+                methods = null;
+            }
+            if (methods == null) {
+                methods = table.computeIfAbsent(jclass, c -> new ConcurrentHashMap<>());
+            }
+            if (methods.put(subsignature, method) == null) {
+                size.incrementAndGet();
+            }
+        }
+        return method.orElse(null);
+    }
+
+    @Nullable
+    private static JMethod lookup(JClass jclass, Subsignature subsignature) {
+        for (JClass c = jclass; c != null; c = c.getSuperClass()) {
+            JMethod method = c.getDeclaredMethod(subsignature);
+            if (method != null && !method.isAbstract()) {
+                return method;
+            }
+        }
+        // look up default methods in superinterfaces
+        Set<JClass> visited = Sets.newHybridSet();
+        Deque<JClass> workList = new ArrayDeque<>();
+        for (JClass c = jclass; c != null; c = c.getSuperClass()) {
+            workList.addAll(c.getInterfaces());
+        }
+        while (!workList.isEmpty()) {
+            JClass itf = workList.poll();
+            if (visited.add(itf)) {
+                JMethod method = itf.getDeclaredMethod(subsignature);
+                if (method != null && !method.isAbstract()) {
+                    return method;
+                }
+                workList.addAll(itf.getInterfaces());
+            }
+        }
+        return null;
+    }
+
+    private synchronized void evict() {
+        if (size.get() >= capacity) {
+            table.clear();
+            size.set(0);
+            evictions.increment();
+        }
+    }
+
+    /**
+     * Clears the cache and its statistics.
+     */
+    public void clear() {
+        table.clear();
+        size.set(0);
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the number of times the cache was evicted as it was full.
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return the ratio of lookups served by the cache, or 0 if no
+     * lookups have been made.
+     */
+    public double getHitRate() {
+        long hitCount = getHitCount();
+        long total = hitCount + getMissCount();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d hits, %d misses (hit rate %.1f%%), %d evictions",
+                getHitCount(), getMissCount(), getHitRate() * 100,
+                getEvictionCount());
+    }
+}
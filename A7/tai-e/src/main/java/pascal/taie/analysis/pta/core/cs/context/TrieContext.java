@@ -0,0 +1,158 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.core.cs.context;
+
+import pascal.taie.World;
+import pascal.taie.util.AnalysisException;
+import pascal.taie.util.collection.Maps;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hash-consed contexts. Each context is a node of a trie, i.e., it is
+ * given by its parent context (without the last element) and its last
+ * element, and each (parent, element) pair has at most one node.
+ * <p>
+ * As equal contexts are always the same object, comparing contexts is
+ * a reference check, and each context has a dense integer id which can
+ * be used to index the context-sensitive elements. The trie is cleared
+ * when {@link World} is reset, so that it does not hold the context
+ * elements of previous analyses.
+ * <p>
+ * The contexts can be created by multiple threads, e.g., by the parallel
+ * pointer analysis solver.
+ */
+public class TrieContext implements Context {
+
+    /**
+     * Number of contexts created so far, used to give the ids.
+     */
+    private static final AtomicInteger count = new AtomicInteger();
+
+    /**
+     * The empty context, i.e., the root of the trie.
+     */
+    private static final TrieContext ROOT = new TrieContext(null, null);
+
+    static {
+        World.registerResetCallback(TrieContext::reset);
+    }
+
+    private final TrieContext parent;
+
+    private final Object element;
+
+    private final int length;
+
+    private final int id;
+
+    /**
+     * Map from context element to child context, created on demand.
+     */
+    private Map<Object, TrieContext> children;
+
+    private TrieContext(TrieContext parent, Object element) {
+        this.parent = parent;
+        this.element = element;
+        this.length = parent == null ? 0 : parent.length + 1;
+        this.id = count.getAndIncrement();
+    }
+
+    /**
+     * @return an empty context.
+     */
+    public static Context make() {
+        return ROOT;
+    }
+
+    /**
+     * @return a context that consists of given context elements.
+     */
+    @SafeVarargs
+    public static <T> Context make(T... elements) {
+        TrieContext context = ROOT;
+        for (T element : elements) {
+            context = context.getChild(element);
+        }
+        return context;
+    }
+
+    private static void reset() {
+        synchronized (ROOT) {
+            ROOT.children = null;
+        }
+        count.set(1);
+    }
+
+    private synchronized TrieContext getChild(Object element) {
+        if (children == null) {
+            children = Maps.newHybridMap();
+        }
+        return children.computeIfAbsent(element, e -> new TrieContext(this, e));
+    }
+
+    /**
+     * @return the unique id of this context. The ids are dense,
+     * i.e., they range from 0 to the number of contexts minus 1.
+     */
+    public int getId() {
+        return id;
+    }
+
+    @Override
+    public int getLength() {
+        return length;
+    }
+
+    @Override
+    public Object getElementAt(int i) {
+        if (i >= length) {
+            throw new AnalysisException(
+                    "Context " + this + " doesn't have " + i + "-th element");
+        }
+        TrieContext context = this;
+        for (int j = length - 1; j > i; --j) {
+            context = context.parent;
+        }
+        return context.element;
+    }
+
+    @Override
+    public int hashCode() {
+        return id;
+    }
+
+    @Override
+    public String toString() {
+        List<Object> elements = new ArrayList<>(length);
+        for (TrieContext c = this; c != ROOT; c = c.parent) {
+            elements.add(c.element);
+        }
+        Collections.reverse(elements);
+        return elements.toString();
+    }
+}
@@ -24,6 +24,7 @@ package pascal.taie.analysis.pta.core.cs.element;
 
 import pascal.taie.analysis.pta.core.cs.context.Context;
 import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.analysis.pta.pts.PointsToSetFactory;
 import pascal.taie.ir.exp.Var;
 import pascal.taie.ir.stmt.Invoke;
 import pascal.taie.language.classes.JField;
@@ -46,6 +47,12 @@ public interface CSManager {
      */
     CSObj getCSObj(Context heapContext, Obj obj);
 
+    /**
+     * @return the context-sensitive object with given index.
+     * @see CSObj#getIndex()
+     */
+    CSObj getObject(int index);
+
     /**
      * @return a context-sensitive call site for given context and call site.
      */
@@ -106,4 +113,11 @@ public interface CSManager {
      * @return all array index pointers.
      */
     Collection<ArrayIndex> getArrayIndexes();
+
+    /**
+     * @return the factory that makes the points-to sets of the pointers
+     * of this manager, which other points-to sets of the same analysis
+     * should also be made by.
+     */
+    PointsToSetFactory getPointsToSetFactory();
 }
@@ -24,17 +24,49 @@ package pascal.taie.analysis.pta.core.cs.element;
 
 import pascal.taie.analysis.pta.core.cs.context.Context;
 import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.language.classes.JField;
+import pascal.taie.util.Indexable;
+import pascal.taie.util.collection.Maps;
+
+import javax.annotation.Nullable;
+import java.util.Map;
 
 /**
  * Represents context-sensitive objects.
  */
-public class CSObj extends AbstractCSElement {
+public class CSObj extends AbstractCSElement implements Indexable {
 
     private final Obj obj;
 
-    CSObj(Obj obj, Context context) {
+    /**
+     * Dense index of this object, given by {@link CSManager}.
+     */
+    private final int index;
+
+    /**
+     * Pointers of the instance fields of this object, indexed by
+     * the field numbers. Only used when the fields are stored in slots
+     * (see {@link ArrayBasedCSManager}), and created on demand.
+     */
+    private InstanceField[] fieldSlots;
+
+    /**
+     * Pointers of the fields which do not fit in {@link #fieldSlots},
+     * i.e., the fields not declared in the class of this object
+     * or its superclasses.
+     */
+    private Map<JField, InstanceField> extraFields;
+
+    /**
+     * Pointer of the elements of this object if it is an array,
+     * only used when the fields are stored in slots.
+     */
+    private ArrayIndex arrayIndex;
+
+    CSObj(Obj obj, Context context, int index) {
         super(context);
         this.obj = obj;
+        this.index = index;
     }
 
     /**
@@ -44,6 +76,52 @@ public class CSObj extends AbstractCSElement {
         return obj;
     }
 
+    @Override
+    public int getIndex() {
+        return index;
+    }
+
+    @Nullable
+    InstanceField getFieldSlot(JField field, int number) {
+        if (fieldSlots != null && number < fieldSlots.length) {
+            InstanceField instanceField = fieldSlots[number];
+            if (instanceField != null && instanceField.getField() == field) {
+                return instanceField;
+            }
+        }
+        return extraFields != null ? extraFields.get(field) : null;
+    }
+
+    /**
+     * Stores the pointer of an instance field in the slot of its number,
+     * or in {@link #extraFields} if the slot is unavailable.
+     *
+     * @param slotCount number of field slots of this object.
+     */
+    void setFieldSlot(InstanceField instanceField, int number, int slotCount) {
+        if (fieldSlots == null && slotCount > 0) {
+            fieldSlots = new InstanceField[slotCount];
+        }
+        if (fieldSlots != null && number < fieldSlots.length
+                && fieldSlots[number] == null) {
+            fieldSlots[number] = instanceField;
+        } else {
+            if (extraFields == null) {
+                extraFields = Maps.newHybridMap();
+            }
+            extraFields.put(instanceField.getField(), instanceField);
+        }
+    }
+
+    @Nullable
+    ArrayIndex getArrayIndex() {
+        return arrayIndex;
+    }
+
+    void setArrayIndex(ArrayIndex arrayIndex) {
+        this.arrayIndex = arrayIndex;
+    }
+
     @Override
     public String toString() {
         return context + ":" + obj;
@@ -22,29 +22,62 @@
 
 package pascal.taie.analysis.pta.pts;
 
+import pascal.taie.analysis.pta.core.cs.element.CSManager;
 import pascal.taie.analysis.pta.core.cs.element.CSObj;
+import pascal.taie.config.ConfigException;
 import pascal.taie.util.collection.Sets;
 
 import java.util.Set;
 import java.util.function.Supplier;
 
 /**
- * Provides static factory methods for {@link PointsToSet}.
+ * Makes the {@link PointsToSet}s of one implementation. Each
+ * {@link CSManager} owns a factory, so that the points-to sets of
+ * different analyses never mix implementations.
  */
 public class PointsToSetFactory {
 
     private static final Supplier<Set<CSObj>> setFactory = Sets::newHybridSet;
 
-    public static PointsToSet make() {
-        return new DelegatePointsToSet(setFactory.get());
+    private final Supplier<PointsToSet> ptsFactory;
+
+    /**
+     * @param impl      "hybrid" (default, also used when impl is null) for
+     *                  sets of {@link CSObj}, "bit" for bit vectors over
+     *                  the object indexes given by csManager, or "shared"
+     *                  for hash-consed bit vectors shared among equal sets.
+     * @param csManager the manager that gives the indexes of the objects.
+     */
+    public PointsToSetFactory(String impl, CSManager csManager) {
+        if (impl == null || impl.equals("hybrid")) {
+            ptsFactory = PointsToSetFactory::makeHybrid;
+        } else if (impl.equals("bit")) {
+            ptsFactory = () -> new BitVectorPointsToSet(csManager);
+        } else if (impl.equals("shared")) {
+            SharedPointsToSet.Table table = new SharedPointsToSet.Table(csManager);
+            ptsFactory = () -> new SharedPointsToSet(table);
+        } else {
+            throw new ConfigException("Unexpected points-to set implementation: " + impl);
+        }
+    }
+
+    public PointsToSet make() {
+        return ptsFactory.get();
     }
 
     /**
      * Convenient method for making one-element points-to set.
      */
-    public static PointsToSet make(CSObj obj) {
+    public PointsToSet make(CSObj obj) {
         PointsToSet set = make();
         set.addObject(obj);
         return set;
     }
+
+    /**
+     * @return an empty points-to set of the default implementation.
+     */
+    static PointsToSet makeHybrid() {
+        return new DelegatePointsToSet(setFactory.get());
+    }
 }
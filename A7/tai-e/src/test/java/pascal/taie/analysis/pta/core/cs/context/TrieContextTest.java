@@ -0,0 +1,54 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.core.cs.context;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TrieContextTest {
+
+    private static int getId(Context context) {
+        return ((TrieContext) context).getId();
+    }
+
+    @Test
+    public void testDistinctIds() {
+        Context root = TrieContext.make();
+        assertEquals(0, getId(root));
+        Set<Integer> ids = new HashSet<>();
+        ids.add(getId(root));
+        // the first child must not reuse the id of the root
+        assertTrue(ids.add(getId(TrieContext.make("a"))));
+        assertTrue(ids.add(getId(TrieContext.make("b"))));
+        assertTrue(ids.add(getId(TrieContext.make("a", "b"))));
+        assertTrue(ids.add(getId(TrieContext.make("b", "a"))));
+        assertSame(TrieContext.make("a", "b"), TrieContext.make("a", "b"));
+        assertEquals(2, TrieContext.make("a", "b").getLength());
+    }
+}
@@ -0,0 +1,359 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.core.cs.element;
+
+import pascal.taie.analysis.pta.core.cs.context.Context;
+import pascal.taie.analysis.pta.core.cs.context.TrieContext;
+import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.analysis.pta.pts.PointsToSetFactory;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.language.classes.JField;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.language.type.ClassType;
+import pascal.taie.util.AnalysisException;
+import pascal.taie.util.collection.Maps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Manages context-sensitive elements and pointers by flat tables.
+ * <p>
+ * For each variable, object, call site and method, the context-sensitive
+ * elements are kept in an open-addressing table keyed by the ids of
+ * their contexts (see {@link TrieContext#getId()}), so the lookups never
+ * hash or compare contexts. The instance fields and array indexes are
+ * kept in arrays indexed by {@link CSObj#getIndex()}.
+ * All created elements are also kept in lists for cheap enumeration.
+ * <p>
+ * In slot mode, the instance fields of each object are instead kept in
+ * an array of slots, indexed by the dense numbers of the fields in the
+ * class of the object (see {@link FieldNumbering}). The solver computes
+ * the slot of each field access once by {@link #getFieldSlot(JField)},
+ * so accessing the instance fields needs no hash lookups.
+ */
+public class ArrayBasedCSManager implements CSManager {
+
+    private static final InstanceField[] NO_SLOTS = new InstanceField[0];
+
+    private final Map<Var, ContextTable<CSVar>> vars = Maps.newMap();
+
+    private final List<CSVar> varList = new ArrayList<>();
+
+    private final Map<Obj, ContextTable<CSObj>> objs = Maps.newMap();
+
+    /**
+     * Context-sensitive objects, indexed by {@link CSObj#getIndex()}.
+     */
+    private final List<CSObj> objList = new ArrayList<>();
+
+    private final Map<Invoke, ContextTable<CSCallSite>> callSites = Maps.newMap();
+
+    private final Map<JMethod, ContextTable<CSMethod>> methods = Maps.newMap();
+
+    private final Map<JField, StaticField> staticFields = Maps.newMap();
+
+    /**
+     * Instance fields of each object, indexed by {@link CSObj#getIndex()}.
+     */
+    private final List<Map<JField, InstanceField>> instanceFields = new ArrayList<>();
+
+    private final List<InstanceField> instanceFieldList = new ArrayList<>();
+
+    /**
+     * Array index of each object, indexed by {@link CSObj#getIndex()}.
+     */
+    private final List<ArrayIndex> arrayIndexes = new ArrayList<>();
+
+    private final List<ArrayIndex> arrayIndexList = new ArrayList<>();
+
+    /**
+     * Whether the instance fields are kept in the slots of the objects.
+     */
+    private final boolean fieldSlots;
+
+    /**
+     * Slots of the instance fields of each object, indexed by
+     * {@link CSObj#getIndex()} and then by the field numbers,
+     * only used in slot mode. The fields which do not fit in
+     * the slots are kept in {@link #instanceFields}.
+     */
+    private final List<InstanceField[]> slots = new ArrayList<>();
+
+    private final FieldNumbering fieldNumbering;
+
+    private final PointsToSetFactory ptsFactory;
+
+    public ArrayBasedCSManager() {
+        this(false, null);
+    }
+
+    /**
+     * @param fieldSlots whether the instance fields are kept
+     *                   in the slots of the objects.
+     * @param ptsImpl    the implementation of the points-to sets of the
+     *                   pointers, as accepted by {@link PointsToSetFactory}.
+     */
+    public ArrayBasedCSManager(boolean fieldSlots, String ptsImpl) {
+        this.fieldSlots = fieldSlots;
+        this.ptsFactory = new PointsToSetFactory(ptsImpl, this);
+        this.fieldNumbering = fieldSlots ? new FieldNumbering() : null;
+    }
+
+    @Override
+    public CSVar getCSVar(Context context, Var var) {
+        return vars.computeIfAbsent(var, v -> new ContextTable<>())
+                .computeIfAbsent(context, () -> {
+                    CSVar csVar = initializePointsToSet(new CSVar(var, context));
+                    varList.add(csVar);
+                    return csVar;
+                });
+    }
+
+    @Override
+    public CSObj getCSObj(Context heapContext, Obj obj) {
+        return objs.computeIfAbsent(obj, o -> new ContextTable<>())
+                .computeIfAbsent(heapContext, () -> {
+                    CSObj csObj = new CSObj(obj, heapContext, objList.size());
+                    objList.add(csObj);
+                    instanceFields.add(null);
+                    arrayIndexes.add(null);
+                    if (fieldSlots) {
+                        slots.add(null);
+                    }
+                    return csObj;
+                });
+    }
+
+    @Override
+    public CSObj getObject(int index) {
+        return objList.get(index);
+    }
+
+    @Override
+    public CSCallSite getCSCallSite(Context context, Invoke callSite) {
+        return callSites.computeIfAbsent(callSite, c -> new ContextTable<>())
+                .computeIfAbsent(context, () -> new CSCallSite(callSite, context));
+    }
+
+    @Override
+    public CSMethod getCSMethod(Context context, JMethod method) {
+        return methods.computeIfAbsent(method, m -> new ContextTable<>())
+                .computeIfAbsent(context, () -> new CSMethod(method, context));
+    }
+
+    @Override
+    public StaticField getStaticField(JField field) {
+        return staticFields.computeIfAbsent(field, f ->
+                initializePointsToSet(new StaticField(f)));
+    }
+
+    @Override
+    public InstanceField getInstanceField(CSObj base, JField field) {
+        if (fieldSlots) {
+            return getInstanceField(base, field, fieldNumbering.getNumber(field));
+        }
+        return getMappedInstanceField(base, field);
+    }
+
+    @Override
+    public int getFieldSlot(JField field) {
+        return fieldSlots ? fieldNumbering.getNumber(field) : -1;
+    }
+
+    @Override
+    public InstanceField getInstanceField(CSObj base, JField field, int slot) {
+        if (!fieldSlots) {
+            return getMappedInstanceField(base, field);
+        }
+        InstanceField[] fields = slots.get(base.getIndex());
+        if (fields == null) {
+            int slotCount = base.getObject().getType() instanceof ClassType type ?
+                    fieldNumbering.getFieldCount(type.getJClass()) : 0;
+            fields = slotCount > 0 ? new InstanceField[slotCount] : NO_SLOTS;
+            slots.set(base.getIndex(), fields);
+        }
+        if (slot < fields.length) {
+            InstanceField instanceField = fields[slot];
+            if (instanceField == null) {
+                instanceField = initializePointsToSet(new InstanceField(base, field));
+                instanceFieldList.add(instanceField);
+                fields[slot] = instanceField;
+                return instanceField;
+            } else if (instanceField.getField() == field) {
+                return instanceField;
+            }
+        }
+        // the field is not declared in the class of base or its superclasses,
+        // e.g., it is accessed on an object flowing via an imprecise path
+        return getMappedInstanceField(base, field);
+    }
+
+    private InstanceField getMappedInstanceField(CSObj base, JField field) {
+        Map<JField, InstanceField> fields = instanceFields.get(base.getIndex());
+        if (fields == null) {
+            fields = Maps.newHybridMap();
+            instanceFields.set(base.getIndex(), fields);
+        }
+        return fields.computeIfAbsent(field, f -> {
+            InstanceField instanceField =
+                    initializePointsToSet(new InstanceField(base, f));
+            instanceFieldList.add(instanceField);
+            return instanceField;
+        });
+    }
+
+    @Override
+    public ArrayIndex getArrayIndex(CSObj array) {
+        ArrayIndex arrayIndex = arrayIndexes.get(array.getIndex());
+        if (arrayIndex == null) {
+            arrayIndex = initializePointsToSet(new ArrayIndex(array));
+            arrayIndexes.set(array.getIndex(), arrayIndex);
+            arrayIndexList.add(arrayIndex);
+        }
+        return arrayIndex;
+    }
+
+    @Override
+    public Collection<Var> getVars() {
+        return Collections.unmodifiableSet(vars.keySet());
+    }
+
+    @Override
+    public Collection<CSVar> getCSVars() {
+        return Collections.unmodifiableList(varList);
+    }
+
+    @Override
+    public Collection<CSVar> getCSVarsOf(Var var) {
+        var csVars = vars.get(var);
+        return csVars != null ? csVars.values() : Set.of();
+    }
+
+    @Override
+    public Collection<CSObj> getObjects() {
+        return Collections.unmodifiableList(objList);
+    }
+
+    @Override
+    public Collection<StaticField> getStaticFields() {
+        return Collections.unmodifiableCollection(staticFields.values());
+    }
+
+    @Override
+    public Collection<InstanceField> getInstanceFields() {
+        return Collections.unmodifiableList(instanceFieldList);
+    }
+
+    @Override
+    public Collection<ArrayIndex> getArrayIndexes() {
+        return Collections.unmodifiableList(arrayIndexList);
+    }
+
+    @Override
+    public PointsToSetFactory getPointsToSetFactory() {
+        return ptsFactory;
+    }
+
+    private <P extends Pointer> P initializePointsToSet(P pointer) {
+        pointer.setPointsToSet(ptsFactory.make());
+        return pointer;
+    }
+
+    /**
+     * Open-addressing (linear probing) table from context ids to
+     * the context-sensitive elements of one program element.
+     */
+    private static class ContextTable<E extends CSElement> {
+
+        private static final int INITIAL_CAPACITY = 4;
+
+        private int[] keys = new int[INITIAL_CAPACITY];
+
+        private Object[] values = new Object[INITIAL_CAPACITY];
+
+        private int size = 0;
+
+        @SuppressWarnings("unchecked")
+        private E computeIfAbsent(Context context, Supplier<E> factory) {
+            int id = getId(context);
+            int mask = keys.length - 1;
+            int i = id & mask;
+            while (values[i] != null) {
+                if (keys[i] == id) {
+                    return (E) values[i];
+                }
+                i = (i + 1) & mask;
+            }
+            E element = factory.get();
+            keys[i] = id;
+            values[i] = element;
+            if (++size * 2 > keys.length) {
+                resize();
+            }
+            return element;
+        }
+
+        private void resize() {
+            int[] oldKeys = keys;
+            Object[] oldValues = values;
+            keys = new int[oldKeys.length * 2];
+            values = new Object[oldValues.length * 2];
+            int mask = keys.length - 1;
+            for (int j = 0; j < oldKeys.length; ++j) {
+                if (oldValues[j] != null) {
+                    int i = oldKeys[j] & mask;
+                    while (values[i] != null) {
+                        i = (i + 1) & mask;
+                    }
+                    keys[i] = oldKeys[j];
+                    values[i] = oldValues[j];
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private Collection<E> values() {
+            List<E> result = new ArrayList<>(size);
+            Arrays.stream(values)
+                    .filter(v -> v != null)
+                    .forEach(v -> result.add((E) v));
+            return result;
+        }
+
+        private static int getId(Context context) {
+            if (context instanceof TrieContext trieContext) {
+                return trieContext.getId();
+            }
+            throw new AnalysisException(
+                    "ArrayBasedCSManager requires TrieContext, given: " + context);
+        }
+    }
+}
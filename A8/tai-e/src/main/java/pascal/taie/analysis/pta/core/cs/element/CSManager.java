@@ -24,6 +24,7 @@ package pascal.taie.analysis.pta.core.cs.element;
 
 import pascal.taie.analysis.pta.core.cs.context.Context;
 import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.analysis.pta.pts.PointsToSetFactory;
 import pascal.taie.ir.exp.Var;
 import pascal.taie.ir.stmt.Invoke;
 import pascal.taie.language.classes.JField;
@@ -46,6 +47,12 @@ public interface CSManager {
      */
     CSObj getCSObj(Context heapContext, Obj obj);
 
+    /**
+     * @return the context-sensitive object with given index.
+     * @see CSObj#getIndex()
+     */
+    CSObj getObject(int index);
+
     /**
      * @return a context-sensitive call site for given context and call site.
      */
@@ -67,6 +74,25 @@ public interface CSManager {
      */
     InstanceField getInstanceField(CSObj base, JField field);
 
+    /**
+     * @return the slot number of given instance field, which can be
+     * computed once for each field access and passed to
+     * {@link #getInstanceField(CSObj, JField, int)}, or -1 if this
+     * manager does not keep the instance fields in slots.
+     */
+    default int getFieldSlot(JField field) {
+        return -1;
+    }
+
+    /**
+     * @return the corresponding InstanceField pointer for given object
+     * and instance field, where slot is the result of
+     * {@link #getFieldSlot(JField)} for the field.
+     */
+    default InstanceField getInstanceField(CSObj base, JField field, int slot) {
+        return getInstanceField(base, field);
+    }
+
     /**
      * @return the corresponding ArrayIndex pointer for given array object.
      */
@@ -106,4 +132,11 @@ public interface CSManager {
      * @return all array index pointers.
      */
     Collection<ArrayIndex> getArrayIndexes();
+
+    /**
+     * @return the factory that makes the points-to sets of the pointers
+     * of this manager, which other points-to sets of the same analysis
+     * should also be made by.
+     */
+    PointsToSetFactory getPointsToSetFactory();
 }
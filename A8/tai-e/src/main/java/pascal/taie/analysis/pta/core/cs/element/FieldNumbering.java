@@ -0,0 +1,74 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.core.cs.element;
+
+import pascal.taie.language.classes.JClass;
+import pascal.taie.language.classes.JField;
+import pascal.taie.util.collection.Maps;
+
+import java.util.Map;
+
+/**
+ * Dense numbering of instance fields. The instance fields of a class are
+ * numbered after the ones of its superclass, so that the fields of
+ * a class (including the inherited ones) are numbered from 0 to
+ * {@link #getFieldCount(JClass)} - 1, and each field has the same number
+ * in all classes which inherit it.
+ */
+class FieldNumbering {
+
+    private final Map<JField, Integer> numbers = Maps.newMap();
+
+    private final Map<JClass, Integer> fieldCounts = Maps.newMap();
+
+    /**
+     * @return the number of given instance field.
+     */
+    int getNumber(JField field) {
+        Integer number = numbers.get(field);
+        if (number == null) {
+            getFieldCount(field.getDeclaringClass());
+            number = numbers.get(field);
+        }
+        return number;
+    }
+
+    /**
+     * @return the number of instance fields of given class,
+     * including the ones inherited from its superclasses.
+     */
+    int getFieldCount(JClass jclass) {
+        Integer count = fieldCounts.get(jclass);
+        if (count == null) {
+            JClass superclass = jclass.getSuperClass();
+            count = superclass != null ? getFieldCount(superclass) : 0;
+            for (JField field : jclass.getDeclaredFields()) {
+                if (!field.isStatic()) {
+                    numbers.put(field, count++);
+                }
+            }
+            fieldCounts.put(jclass, count);
+        }
+        return count;
+    }
+}
@@ -25,13 +25,14 @@ package pascal.taie.analysis.pta.cs;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import pascal.taie.World;
-import pascal.taie.analysis.graph.callgraph.CallGraphs;
 import pascal.taie.analysis.graph.callgraph.CallKind;
+import pascal.taie.analysis.graph.callgraph.DispatchCache;
 import pascal.taie.analysis.graph.callgraph.Edge;
 import pascal.taie.analysis.pta.PointerAnalysisResult;
 import pascal.taie.analysis.pta.PointerAnalysisResultImpl;
 import pascal.taie.analysis.pta.core.cs.CSCallGraph;
 import pascal.taie.analysis.pta.core.cs.context.Context;
+import pascal.taie.analysis.pta.core.cs.element.ArrayBasedCSManager;
 import pascal.taie.analysis.pta.core.cs.element.ArrayIndex;
 import pascal.taie.analysis.pta.core.cs.element.CSCallSite;
 import pascal.taie.analysis.pta.core.cs.element.CSManager;
@@ -47,8 +48,8 @@ import pascal.taie.analysis.pta.core.heap.HeapModel;
 import pascal.taie.analysis.pta.core.heap.Obj;
 import pascal.taie.analysis.pta.plugin.taint.TaintAnalysiss;
 import pascal.taie.analysis.pta.pts.PointsToSet;
-import pascal.taie.analysis.pta.pts.PointsToSetFactory;
 import pascal.taie.config.AnalysisOptions;
+import pascal.taie.config.ConfigException;
 import pascal.taie.ir.exp.InvokeExp;
 import pascal.taie.ir.exp.Var;
 import pascal.taie.ir.stmt.Copy;
@@ -111,7 +112,8 @@ public class Solver {
     }
 
     private void initialize() {
-        csManager = new MapBasedCSManager();
+        csManager = makeCSManager(options.getString("cs-manager"),
+                options.getString("pts-impl"));
         callGraph = new CSCallGraph(csManager);
         pointerFlowGraph = new PointerFlowGraph();
         workList = new WorkList();
@@ -124,6 +126,23 @@ public class Solver {
         addReachable(csMethod);
     }
 
+    /**
+     * @return the context-sensitive element manager of given kind,
+     * i.e., "map" (default), "array" or "slot", whose pointers have
+     * points-to sets of implementation ptsImpl.
+     */
+    private static CSManager makeCSManager(String kind, String ptsImpl) {
+        if (kind == null || kind.equals("map")) {
+            return new MapBasedCSManager(ptsImpl);
+        } else if (kind.equals("array")) {
+            return new ArrayBasedCSManager(false, ptsImpl);
+        } else if (kind.equals("slot")) {
+            return new ArrayBasedCSManager(true, ptsImpl);
+        } else {
+            throw new ConfigException("Unexpected CS manager: " + kind);
+        }
+    }
+
     /**
      * Processes new reachable context-sensitive method.
      */
@@ -192,7 +211,7 @@ public class Solver {
      */
     private JMethod resolveCallee(CSObj recv, Invoke callSite) {
         Type type = recv != null ? recv.getObject().getType() : null;
-        return CallGraphs.resolveCallee(type, callSite);
+        return DispatchCache.get().resolveCallee(type, callSite);
     }
 
     public PointerAnalysisResult getResult() {